@@ -0,0 +1,283 @@
+package ca.othello.othello_v3;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects the AI move requests of many games and runs them on a fixed set of search threads.
+ * <ul>
+ *     <li>Requests for the same position, side and budget are merged while pending or running:
+ *     one search answers all of them, which is common in openings.</li>
+ *     <li>All searches share one {@link TranspositionTable}, so positions met by one game's search
+ *     are not searched again for another.</li>
+ *     <li>Each client (usually a session) has its own queue and the workers take from the clients
+ *     in turn, so one busy client cannot starve the others.</li>
+ *     <li>Answers are kept in the shared {@link PositionCache}, so a position asked again later is not searched.</li>
+ *     <li>Each request has a deadline: the search budget is cut to fit the earliest deadline of a job,
+ *     and a job whose deadline has passed only gets a depth 1 search.</li>
+ * </ul>
+ *
+ * @see SessionHost#requestAIMove(GameSession, long)
+ */
+public class AIMoveBatcher implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(AIMoveBatcher.class.getName());
+
+    private static final int LATENCY_SAMPLES = 8192;
+    private static final Histogram requestLatency = Metrics.histogram(Metrics.AI_REQUEST_LATENCY, "us");
+
+    private final TranspositionTable table;
+    private final Thread[] workers;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition jobAvailable = lock.newCondition();
+
+    // All guarded by the lock
+    private final Map<JobKey, Job> jobs = new HashMap<>();
+    private final Map<Long, ArrayDeque<Job>> queues = new HashMap<>();
+    private final ArrayDeque<Long> turns = new ArrayDeque<>();
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private long requests;
+    private long merged;
+    private long searches;
+    private long deadlineMisses;
+    private boolean closed;
+
+    /**
+     * Statistics of a batcher since it was created.
+     *
+     * @param requests       the number of requests answered
+     * @param searches       the number of searches run
+     * @param merged         the number of requests answered by the search of another request
+     * @param deadlineMisses the number of requests answered after their deadline
+     * @param p50Ms          the median latency of the recent requests, in milliseconds
+     * @param p99Ms          the 99th percentile latency of the recent requests, in milliseconds
+     */
+    public record Stats(long requests, long searches, long merged, long deadlineMisses, double p50Ms, double p99Ms) {
+        @Override
+        public String toString() {
+            return String.format("%d requests, %d searches, %d merged, %d past deadline, p50 %.2f ms, p99 %.2f ms",
+                    requests, searches, merged, deadlineMisses, p50Ms, p99Ms);
+        }
+    }
+
+    private record JobKey(long hash, char side, long budgetMs) {
+    }
+
+    private static final class Job {
+        final JobKey key;
+        final Board board;
+        final List<Waiter> waiters = new ArrayList<>(1);
+        long deadline;
+
+        Job(JobKey key, Board board, long deadline) {
+            this.key = key;
+            this.board = board;
+            this.deadline = deadline;
+        }
+    }
+
+    private record Waiter(CompletableFuture<Move> future, long submitted, long deadline) {
+    }
+
+    /**
+     * Constructor for a batcher with its own transposition table.
+     *
+     * @param threads   the number of search threads
+     * @param tableBits the base 2 logarithm of the number of entries of the transposition table
+     */
+    public AIMoveBatcher(int threads, int tableBits) {
+        this.table = new TranspositionTable(tableBits);
+        this.workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(this::work, "ai-batcher-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Request the best move of a position.
+     *
+     * @param clientId the client making the request, for fair scheduling
+     * @param board    the position, which must not be changed afterwards
+     * @param side     the side to move
+     * @param budgetMs the time budget of the search, in milliseconds
+     * @param deadline the time the answer is needed by, as a {@link System#nanoTime()} value
+     * @return a future completed with the move, or (-1, -1) if the side must pass
+     */
+    public CompletableFuture<Move> submit(long clientId, Board board, char side, long budgetMs, long deadline) {
+        CompletableFuture<Move> future = new CompletableFuture<>();
+        Waiter waiter = new Waiter(future, System.nanoTime(), deadline);
+        JobKey key = new JobKey(board.getHash(side), side, budgetMs);
+        lock.lock();
+        try {
+            if (closed) {
+                future.completeExceptionally(new CancellationException("Batcher closed"));
+                return future;
+            }
+            Job job = jobs.get(key);
+            if (job != null) {
+                merged++;
+                job.deadline = Math.min(job.deadline, deadline);
+            } else {
+                job = new Job(key, board, deadline);
+                jobs.put(key, job);
+                ArrayDeque<Job> queue = queues.get(clientId);
+                if (queue == null) {
+                    queue = new ArrayDeque<>();
+                    queues.put(clientId, queue);
+                    turns.add(clientId);
+                }
+                queue.add(job);
+                jobAvailable.signal();
+            }
+            job.waiters.add(waiter);
+        } finally {
+            lock.unlock();
+        }
+        return future;
+    }
+
+    /**
+     * Get the statistics of the batcher.
+     *
+     * @return the statistics
+     */
+    public Stats getStats() {
+        lock.lock();
+        try {
+            int samples = (int) Math.min(requests, LATENCY_SAMPLES);
+            long[] sorted = Arrays.copyOf(latencies, samples);
+            Arrays.sort(sorted);
+            return new Stats(requests, searches, merged, deadlineMisses,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop the search threads; pending requests are cancelled.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            for (Job job : jobs.values()) {
+                for (Waiter waiter : job.waiters) {
+                    waiter.future.completeExceptionally(new CancellationException("Batcher closed"));
+                }
+            }
+            jobs.clear();
+            queues.clear();
+            turns.clear();
+            jobAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The loop of a search thread: take the next job in turn, search it and answer its waiters.
+     */
+    private void work() {
+        while (true) {
+            Job job;
+            long budgetMs;
+            boolean expired;
+            lock.lock();
+            try {
+                while (turns.isEmpty() && !closed) {
+                    jobAvailable.awaitUninterruptibly();
+                }
+                if (closed) {
+                    return;
+                }
+                long clientId = turns.poll();
+                ArrayDeque<Job> queue = queues.get(clientId);
+                job = queue.poll();
+                if (queue.isEmpty()) {
+                    queues.remove(clientId);
+                } else {
+                    turns.add(clientId);
+                }
+                long remainingMs = (job.deadline - System.nanoTime()) / 1_000_000L;
+                expired = remainingMs <= 0;
+                budgetMs = Math.max(1, Math.min(job.key.budgetMs, remainingMs));
+            } finally {
+                lock.unlock();
+            }
+
+            Move move = null;
+            Throwable error = null;
+            try {
+                IntelligentAI ai = new IntelligentAI(job.key.side, 1);
+                ai.setTranspositionTable(table);
+                ai.setPositionCache(PositionCache.getShared());
+                int[] best;
+                if (expired) {
+                    // Past its deadline: a depth 1 search, not a timed one that a budget of 0 would leave unbounded
+                    best = job.board.hasLegalMove(job.key.side) ? ai.getBestMove(job.board) : null;
+                } else {
+                    best = ai.getBestMove(job.board, budgetMs);
+                }
+                move = best == null ? new Move(-1, -1) : new Move(best[0], best[1]);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "AI search failed", e);
+                error = e;
+            }
+            finish(job, move, error);
+        }
+    }
+
+    /**
+     * Answer the waiters of a finished job and record their latencies.
+     */
+    private void finish(Job job, Move move, Throwable error) {
+        List<Waiter> waiters;
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            if (jobs.remove(job.key) != job) {
+                return;
+            }
+            waiters = job.waiters;
+            searches++;
+            for (Waiter waiter : waiters) {
+                latencies[(int) (requests++ % LATENCY_SAMPLES)] = now - waiter.submitted;
+                requestLatency.record((now - waiter.submitted) / 1000);
+                if (now > waiter.deadline) {
+                    deadlineMisses++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Waiter waiter : waiters) {
+            if (error != null) {
+                waiter.future.completeExceptionally(error);
+            } else {
+                waiter.future.complete(move);
+            }
+        }
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
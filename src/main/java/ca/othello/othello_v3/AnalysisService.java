@@ -0,0 +1,220 @@
+package ca.othello.othello_v3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Background analysis of a position: every legal move is scored by iterative deepening,
+ * one search per depth ranking all the moves, with a transposition table shared by all depths and positions.
+ * Results are delivered to a sink as {@link Snapshot}s, at most once per throttle interval
+ * and only when something changed, so the receiver never gets flooded.
+ * The search thread runs at minimum priority so the UI stays responsive.
+ */
+public class AnalysisService {
+
+    private static final Logger logger = Logger.getLogger(AnalysisService.class.getName());
+
+    /** Score of a square that has not been searched (yet). */
+    public static final int NO_SCORE = Integer.MIN_VALUE;
+
+    private static final int TABLE_BITS = 20;
+
+    private final int maxDepth;
+    private final Consumer<Snapshot> sink;
+    private final ExecutorService coordinator;
+    private final ScheduledExecutorService ticker;
+    private final Set<IntelligentAI> running = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final TranspositionTable table = new TranspositionTable(TABLE_BITS);
+
+    // Current results, guarded by this
+    private String positionKey = "";
+    private char side;
+    private final int[] scores = new int[Board.MAX_SIZE * Board.MAX_SIZE];
+    private final List<List<Move>> lines = new ArrayList<>(Collections.nCopies(scores.length, List.of()));
+    private int completedDepth;
+    private boolean dirty;
+
+    /**
+     * A copy of the analysis results at one point in time.
+     *
+     * @param side     the player (character) whose moves are scored
+     * @param depth    the last depth completed for every move
+     * @param scores   the score of each square (row * size + col), {@link #NO_SCORE} if not scored
+     * @param bestLine the principal variation of the best move
+     */
+    public record Snapshot(char side, int depth, int[] scores, List<Move> bestLine) {
+    }
+
+    /**
+     * Constructor for the analysis service.
+     *
+     * @param maxDepth   the depth at which the analysis stops
+     * @param throttleMs the minimum interval between two snapshots delivered to the sink
+     * @param sink       receives the snapshots, on a background thread
+     */
+    public AnalysisService(int maxDepth, long throttleMs, Consumer<Snapshot> sink) {
+        this.maxDepth = maxDepth;
+        this.sink = sink;
+        this.coordinator = Executors.newSingleThreadExecutor(r -> daemon(r, "analysis-coordinator"));
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "analysis-ticker"));
+        Arrays.fill(scores, NO_SCORE);
+        ticker.scheduleAtFixedRate(this::deliver, throttleMs, throttleMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Start analysing the given position, unless it is already being analysed.
+     * The previous analysis is abandoned.
+     *
+     * @param board the position to analyse (copied)
+     * @param side  the player (character) to move
+     */
+    public void analyze(Board board, char side) {
+        String key = keyOf(board, side);
+        synchronized (this) {
+            if (key.equals(positionKey)) {
+                return;
+            }
+            positionKey = key;
+            this.side = side;
+            Arrays.fill(scores, NO_SCORE);
+            Collections.fill(lines, List.of());
+            completedDepth = 0;
+            dirty = true;
+        }
+        int id = cancelRunning();
+        Board position = board.cloneBoard();
+        coordinator.execute(() -> run(id, position, side));
+    }
+
+    /**
+     * Stop the analysis in progress, if any.
+     */
+    public void stop() {
+        synchronized (this) {
+            positionKey = "";
+        }
+        cancelRunning();
+    }
+
+    /**
+     * Stop the analysis and release its threads.
+     */
+    public void shutdown() {
+        stop();
+        ticker.shutdownNow();
+        coordinator.shutdownNow();
+    }
+
+    /**
+     * Run the iterative deepening loop for one position: each depth ranks every legal move with its exact score,
+     * in one search that shares the transposition table of the previous depths.
+     *
+     * @param id       the generation of this analysis
+     * @param position the position to analyse
+     * @param side     the player (character) to move
+     */
+    private void run(int id, Board position, char side) {
+        int count = position.getAllLegalMoves(side).size();
+        for (int depth = 1; depth <= maxDepth && id == generation.get() && count > 0; depth++) {
+            IntelligentAI ai = new IntelligentAI(side, depth);
+            ai.setTranspositionTable(table);
+            List<IntelligentAI.ScoredMove> ranked;
+            running.add(ai);
+            try {
+                if (id != generation.get()) {
+                    return;
+                }
+                // With every move wanted, none is cut off by the window of the others and each gets its exact score
+                ranked = ai.getTopMoves(position, count);
+            } catch (RuntimeException e) {
+                logger.warning("Analysis failed: " + e);
+                return;
+            } finally {
+                running.remove(ai);
+            }
+            if (ai.isStopped()) {
+                return;
+            }
+            synchronized (this) {
+                if (id != generation.get()) {
+                    return;
+                }
+                for (IntelligentAI.ScoredMove scored : ranked) {
+                    int square = scored.move().getRow() * position.getSize() + scored.move().getCol();
+                    scores[square] = scored.score();
+                    lines.set(square, scored.line());
+                }
+                completedDepth = depth;
+                dirty = true;
+            }
+        }
+        logger.fine("Analysis " + id + " finished.");
+    }
+
+    /**
+     * Send a snapshot to the sink if the results changed since the last one.
+     */
+    private void deliver() {
+        Snapshot snapshot;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            int best = 0;
+            for (int square = 1; square < scores.length; square++) {
+                if (scores[square] > scores[best]) {
+                    best = square;
+                }
+            }
+            snapshot = new Snapshot(side, completedDepth, scores.clone(), lines.get(best));
+        }
+        try {
+            sink.accept(snapshot);
+        } catch (RuntimeException e) {
+            logger.warning("Analysis sink failed: " + e);
+        }
+    }
+
+    /**
+     * Abandon the current analysis and stop its searches.
+     *
+     * @return the generation of the next analysis
+     */
+    private int cancelRunning() {
+        int id = generation.incrementAndGet();
+        for (IntelligentAI ai : running) {
+            ai.stop();
+        }
+        return id;
+    }
+
+    private static String keyOf(Board board, char side) {
+        StringBuilder key = new StringBuilder(board.getSize() * board.getSize() + 1);
+        for (int i = 0; i < board.getSize(); i++) {
+            for (int j = 0; j < board.getSize(); j++) {
+                key.append(board.getPiece(new Move(i, j)));
+            }
+        }
+        return key.append(side).toString();
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    }
+}
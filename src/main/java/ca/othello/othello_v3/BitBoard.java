@@ -0,0 +1,108 @@
+package ca.othello.othello_v3;
+
+/**
+ * Move generation and flipping on bit boards: the pieces of each player as one long,
+ * bit row * 8 + col standing for square (row, col).
+ * All eight directions are handled at once by shifting whole boards, so a position is
+ * two longs and playing a move allocates nothing.
+ * <p>
+ * A shift by 1, 7 or 9 moves pieces across a file, and a piece on the first or last file would
+ * wrap around to the other side of the board. Instead of masking every shift, the opponent pieces
+ * are masked once to the inner files for these directions: a run of opponent pieces then never
+ * touches the edge files, so neither it nor the square after it can wrap.
+ *
+ * @see Board#getBitBoard(char)
+ * @see Playout
+ */
+public final class BitBoard {
+
+    private static final long INNER_FILES = 0x7E7E7E7E7E7E7E7EL;
+
+    private BitBoard() {
+    }
+
+    /**
+     * Get the legal moves of a player.
+     *
+     * @param own the pieces of the player to move
+     * @param opp the pieces of the opponent
+     * @return the squares where the player can move
+     */
+    public static long legalMoves(long own, long opp) {
+        long inner = opp & INNER_FILES;
+        long moves = movesUp(own, inner, 1) | movesDown(own, inner, 1)
+                | movesUp(own, opp, 8) | movesDown(own, opp, 8)
+                | movesUp(own, inner, 7) | movesDown(own, inner, 7)
+                | movesUp(own, inner, 9) | movesDown(own, inner, 9);
+        return moves & ~(own | opp);
+    }
+
+    // Runs of opponent pieces next to the player's pieces, at most 6 long, and the square after them
+    private static long movesUp(long own, long opp, int shift) {
+        long run = (own << shift) & opp;
+        run |= (run << shift) & opp;
+        run |= (run << shift) & opp;
+        run |= (run << shift) & opp;
+        run |= (run << shift) & opp;
+        run |= (run << shift) & opp;
+        return run << shift;
+    }
+
+    private static long movesDown(long own, long opp, int shift) {
+        long run = (own >>> shift) & opp;
+        run |= (run >>> shift) & opp;
+        run |= (run >>> shift) & opp;
+        run |= (run >>> shift) & opp;
+        run |= (run >>> shift) & opp;
+        run |= (run >>> shift) & opp;
+        return run >>> shift;
+    }
+
+    /**
+     * Get the pieces flipped by a move.
+     *
+     * @param own    the pieces of the player to move
+     * @param opp    the pieces of the opponent
+     * @param square the square of the move, row * 8 + col
+     * @return the opponent pieces flipped, empty if the move is illegal
+     */
+    public static long flips(long own, long opp, int square) {
+        long placed = 1L << square;
+        long inner = opp & INNER_FILES;
+        return flipsUp(placed, own, inner, 1) | flipsDown(placed, own, inner, 1)
+                | flipsUp(placed, own, opp, 8) | flipsDown(placed, own, opp, 8)
+                | flipsUp(placed, own, inner, 7) | flipsDown(placed, own, inner, 7)
+                | flipsUp(placed, own, inner, 9) | flipsDown(placed, own, inner, 9);
+    }
+
+    // The run of opponent pieces from the placed piece, if one of the player's pieces closes it
+    private static long flipsUp(long placed, long own, long opp, int shift) {
+        long run = (placed << shift) & opp;
+        run |= (run << shift) & opp;
+        run |= (run << shift) & opp;
+        run |= (run << shift) & opp;
+        run |= (run << shift) & opp;
+        run |= (run << shift) & opp;
+        return ((run << shift) & own) != 0 ? run : 0L;
+    }
+
+    private static long flipsDown(long placed, long own, long opp, int shift) {
+        long run = (placed >>> shift) & opp;
+        run |= (run >>> shift) & opp;
+        run |= (run >>> shift) & opp;
+        run |= (run >>> shift) & opp;
+        run |= (run >>> shift) & opp;
+        run |= (run >>> shift) & opp;
+        return ((run >>> shift) & own) != 0 ? run : 0L;
+    }
+
+    /**
+     * Count the pieces of a bit board.
+     *
+     * @param bits the pieces
+     * @return the number of pieces
+     */
+    public static int count(long bits) {
+        return Long.bitCount(bits);
+    }
+}
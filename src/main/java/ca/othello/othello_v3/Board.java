@@ -1,44 +1,103 @@
 package ca.othello.othello_v3;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.SplittableRandom;
 import java.util.logging.Logger;
 
 /**
  * Represents the game board for Othello (Reversi)
- * The board is a 8x8 grid with initial pieces placed in the center
+ * The board is a square grid, 8x8 by default, with initial pieces placed in the center
  * The board is represented as a 2D char array
  * 'W' - White piece
  * 'B' - Black piece
  * ' ' - Empty cell
+ * The pieces of each player are also kept as bit sets (bit row * size + col), which the rules are computed on:
+ * a single long handled by {@link BitBoard} and {@link FlipTables} on 8x8 boards, an array of longs handled by {@link WideBitBoard} otherwise
  */
 public class Board {
 
     private static final Logger logger = Logger.getLogger(Board.class.getName());
-    private static final int SIZE = 8;
+    public static final int DEFAULT_SIZE = 8;
+    public static final int MIN_SIZE = 4;
+    public static final int MAX_SIZE = WideBitBoard.MAX_SIZE;
+    private static final int MAX_SQUARES = MAX_SIZE * MAX_SIZE;
+    private final int size;
     private char[][] board;
     private int numMoves;
 
+    // Bit sets of the pieces, and the generic rules for sizes other than 8 (null on 8x8 boards)
+    private final int words;
+    private final long[] black;
+    private final long[] white;
+    private final WideBitBoard wide;
+    private final long[] flipped;
+
+    // Zobrist hashing: one random key per (colour, square), the hash of the position is kept up to date by every move
+    // The keys of the 8x8 squares are drawn first, so 8x8 hashes do not depend on the largest size
+    private static final long[][] ZOBRIST = new long[2][MAX_SQUARES];
+    private static final long BLACK_TO_MOVE;
+    private static final long[] SIZE_KEYS = new long[MAX_SIZE + 1];
+    private long hash;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x0DE110L);
+        int defaultSquares = DEFAULT_SIZE * DEFAULT_SIZE;
+        for (long[] keys : ZOBRIST) {
+            for (int i = 0; i < defaultSquares; i++) {
+                keys[i] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+        for (long[] keys : ZOBRIST) {
+            for (int i = defaultSquares; i < keys.length; i++) {
+                keys[i] = random.nextLong();
+            }
+        }
+        for (int i = 0; i < SIZE_KEYS.length; i++) {
+            SIZE_KEYS[i] = i == DEFAULT_SIZE ? 0L : random.nextLong();
+        }
+    }
+
+    // Undo stack: the square of each move (row * size + col) and the pieces it flipped, as a bit set of `words` longs
+    private int[] undoSquares;
+    private long[] undoFlips;
+    private int undoCount;
+
     /**
-     * Default constructor to initialize the board with initial pieces
+     * Default constructor to initialize an 8x8 board with initial pieces
      * White pieces at (3,3) and (4,4)
      * Black pieces at (3,4) and (4,3)
      *
-     * @see #SIZE
+     * @see #DEFAULT_SIZE
      */
     public Board() {
-        this.board = new char[SIZE][SIZE];
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                this.board[i][j] = ' ';
-            }
-        }
-        this.board[3][3] = 'W';
-        this.board[3][4] = 'B';
-        this.board[4][3] = 'B';
-        this.board[4][4] = 'W';
+        this(DEFAULT_SIZE);
+    }
 
-        this.numMoves = 4;
+    /**
+     * Constructor for a board of the given size with the four initial pieces in the center
+     * White pieces at (size/2-1, size/2-1) and (size/2, size/2)
+     * Black pieces at (size/2-1, size/2) and (size/2, size/2-1)
+     *
+     * @param size the number of rows and columns, even, from {@link #MIN_SIZE} to {@link #MAX_SIZE}
+     * @throws IllegalArgumentException if the size is not supported
+     */
+    public Board(int size) {
+        if (size < MIN_SIZE || size > MAX_SIZE || size % 2 != 0) {
+            throw new IllegalArgumentException("Board size must be even and between " + MIN_SIZE + " and " + MAX_SIZE + ": " + size);
+        }
+        this.size = size;
+        this.board = new char[size][size];
+        this.words = WideBitBoard.words(size);
+        this.black = new long[words];
+        this.white = new long[words];
+        this.wide = size == DEFAULT_SIZE ? null : new WideBitBoard(size);
+        this.flipped = new long[words];
+        this.undoSquares = new int[size * size];
+        this.undoFlips = new long[size * size * words];
+        placeInitialPieces();
     }
 
     /**
@@ -46,42 +105,46 @@ public class Board {
      * Used for creating a copy of the board for the minimax algorithm
      *
      * @return a deep copy of the board
-     * @see #SIZE
      */
     public Board cloneBoard() {
-        Board newBoard = new Board();
-        for (int i = 0; i < SIZE; i++) {
-            System.arraycopy(this.board[i], 0, newBoard.board[i], 0, SIZE);
+        Board newBoard = new Board(this.size);
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(this.board[i], 0, newBoard.board[i], 0, size);
         }
+        System.arraycopy(this.black, 0, newBoard.black, 0, words);
+        System.arraycopy(this.white, 0, newBoard.white, 0, words);
         newBoard.numMoves = this.numMoves;
+        newBoard.hash = this.hash;
         return newBoard;
     }
 
 
     /**
      * Print the current state of the board to the console
-     *
-     * @see #SIZE
      */
     public void printBoard() {
-        System.out.println("   0   1   2   3   4   5   6   7");
+        StringBuilder header = new StringBuilder("  ");
+        for (int j = 0; j < size; j++) {
+            header.append(String.format("%3d ", j));
+        }
+        System.out.println(header.toString().stripTrailing());
 
-        for (int i = 0; i < SIZE; i++) {
-            System.out.print(i + " ");
+        for (int i = 0; i < size; i++) {
+            System.out.print(String.format("%2d", i));
 
-            for (int j = 0; j < SIZE; j++) {
+            for (int j = 0; j < size; j++) {
                 System.out.print(" " + this.board[i][j] + " ");
-                if (j < SIZE - 1) {
+                if (j < size - 1) {
                     System.out.print("|");
                 }
             }
 
             System.out.println();
 
-            if (i < SIZE - 1) {
+            if (i < size - 1) {
                 System.out.print("  ");
-                for (int j = 0; j < SIZE; j++) {
-                    if (j < SIZE - 1) {
+                for (int j = 0; j < size; j++) {
+                    if (j < size - 1) {
                         System.out.print("---+");
                     } else {
                         System.out.print("---");
@@ -97,98 +160,259 @@ public class Board {
      * Reset the board to the initial state with 4 pieces placed in the center
      * Two white pieces at (3,3) and (4,4)
      * Two black pieces at (3,4) and (4,3)
-     *
-     * @see #SIZE
+     * (on an 8x8 board, see {@link #Board(int)} for the other sizes)
      */
     public void resetBoard() {
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
+        placeInitialPieces();
+        this.undoCount = 0;
+        logger.info("Board reset to initial state.");
+    }
+
+    /**
+     * Empty the board and place the 4 initial pieces in the center
+     */
+    private void placeInitialPieces() {
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
                 this.board[i][j] = ' ';
             }
         }
+        Arrays.fill(black, 0L);
+        Arrays.fill(white, 0L);
+
+        int center = size / 2;
+        place('W', center - 1, center - 1);
+        place('B', center - 1, center);
+        place('B', center, center - 1);
+        place('W', center, center);
+        this.numMoves = 4;
+        this.hash = computeHash();
+    }
 
-        board[3][3] = 'W';
-        board[3][4] = 'B';
-        board[4][3] = 'B';
-        board[4][4] = 'W';
-        logger.info("Board reset to initial state.");
+    private void place(char player, int row, int col) {
+        int square = row * size + col;
+        board[row][col] = player;
+        pieces(player)[square >>> 6] |= 1L << square;
     }
 
     /**
      * Check if the board is full (no empty cells left)
      *
      * @return true if the board is full, false otherwise
-     * @see #SIZE
      */
     public boolean isFull() {
-        return this.numMoves == SIZE * SIZE;
+        return this.numMoves == size * size;
     }
 
+
     /**
      * Check if a move is legal for the given player
      *
      * @param move   the move to be checked
      * @param player the player (character) making the move
      * @return true if the move is legal, false otherwise
-     * @see #isLegalMoveForPlayer(char, Move)
-     * @see #SIZE)
+     * @see #isLegalMoveForPlayer(char, int)
      */
     public boolean isLegalMove(Move move, char player) {
 
-        return move.getRow() >= 0 && move.getRow() < SIZE && move.getCol() >= 0 && move.getCol() < SIZE &&
+        return move.getRow() >= 0 && move.getRow() < size && move.getCol() >= 0 && move.getCol() < size &&
                 this.board[move.getRow()][move.getCol()] == ' '
-                && isLegalMoveForPlayer(player, move);
+                && isLegalMoveForPlayer(player, move.getRow() * size + move.getCol());
     }
 
     /**
      * Make a move on the board for the given player
      * Update the board state and flip opponent pieces as needed
+     * The move is pushed on the undo stack, see {@link #unmakeMove()}
      *
      * @param player the player (character) making the move
      * @param move   the move to be made
      * @return a list of moves that were flipped after making the move
-     * @see #flipPiecesInDirection(char, Move, int, int)
-     * @see #canCaptureInDirection(char, char, Move, int, int)
+     * @see #makeMove(char, int)
      */
     public List<Move> makeMove(char player, Move move) {
-        logger.fine("Making move at (" + move.getRow() + ", " + move.getCol() + ") for player " + player);
-        this.board[move.getRow()][move.getCol()] = player;
-        this.numMoves++;
+        int count = makeMove(player, move.getRow() * size + move.getCol());
+        List<Move> totalFlippedMoves = new ArrayList<>(count);
+        int base = (undoCount - 1) * words;
+        for (int w = 0; w < words; w++) {
+            for (long bits = undoFlips[base + w]; bits != 0; bits &= bits - 1) {
+                int square = (w << 6) + Long.numberOfTrailingZeros(bits);
+                totalFlippedMoves.add(new Move(square / size, square % size));
+            }
+        }
+        return totalFlippedMoves;
+    }
 
-        char opponent = (player == 'W') ? 'B' : 'W';
+    /**
+     * Make a move on the board for the given player, without allocating anything
+     * Update the board state and flip opponent pieces as needed
+     * The move is pushed on the undo stack, see {@link #unmakeMove()}
+     *
+     * @param player the player (character) making the move
+     * @param square the square of the move, row * size + col
+     * @return the number of pieces flipped
+     */
+    public int makeMove(char player, int square) {
+        logger.fine(() -> "Making move at (" + square / size + ", " + square % size + ") for player " + player);
+        long[] own = pieces(player);
+        long[] opp = pieces(player == 'W' ? 'B' : 'W');
+        if (undoCount == undoSquares.length) {
+            undoSquares = Arrays.copyOf(undoSquares, undoCount * 2);
+            undoFlips = Arrays.copyOf(undoFlips, undoCount * 2 * words);
+        }
+        int base = undoCount * words;
+        int count;
+        if (wide == null) {
+            long flips = FlipTables.flips(own[0], opp[0], square);
+            undoFlips[base] = flips;
+            count = Long.bitCount(flips);
+        } else {
+            count = wide.flips(own, opp, square, flipped);
+            System.arraycopy(flipped, 0, undoFlips, base, words);
+        }
 
-        int[][] directions = {
-                {-1, 0}, {1, 0}, {0, -1}, {0, 1},
-                {-1, -1}, {-1, 1}, {1, -1}, {1, 1}
-        };
-        List<Move> totalFlippedMoves = new ArrayList<>();
+        long[] playerKeys = ZOBRIST[player == 'B' ? 0 : 1];
+        long[] opponentKeys = ZOBRIST[player == 'B' ? 1 : 0];
+        for (int w = 0; w < words; w++) {
+            long flips = undoFlips[base + w];
+            own[w] |= flips;
+            opp[w] &= ~flips;
+            for (long bits = flips; bits != 0; bits &= bits - 1) {
+                int flippedSquare = (w << 6) + Long.numberOfTrailingZeros(bits);
+                this.board[flippedSquare / size][flippedSquare % size] = player;
+                hash ^= playerKeys[flippedSquare] ^ opponentKeys[flippedSquare];
+            }
+        }
+        own[square >>> 6] |= 1L << square;
+        this.board[square / size][square % size] = player;
+        this.numMoves++;
+        hash ^= playerKeys[square];
+        undoSquares[undoCount] = square;
+        undoCount++;
+        return count;
+    }
 
-        for (int[] direction : directions) {
-            int dx = direction[0];
-            int dy = direction[1];
+    /**
+     * Undo the last move made with {@link #makeMove(char, Move)}
+     * The placed piece is removed and the flipped pieces are given back to the opponent,
+     * so the cost only depends on the number of flipped pieces
+     *
+     * @return the squares changed by the undo as a bit mask (bit row * size + col), 0 if there is nothing to undo;
+     * only the squares below 64 are included, see {@link #unmakeMove(long[])} for larger boards
+     */
+    public long unmakeMove() {
+        if (undoCount == 0) {
+            return 0L;
+        }
+        long changed = undoFlips[(undoCount - 1) * words];
+        int square = undoSquares[undoCount - 1];
+        if (square < 64) {
+            changed |= 1L << square;
+        }
+        undo();
+        return changed;
+    }
 
-            if (canCaptureInDirection(player, opponent, move, dx, dy)) {
-                logger.fine("Capturing in direction (" + dx + ", " + dy + ")");
-                List<Move> flippedMoves = flipPiecesInDirection(player, move, dx, dy);
-                totalFlippedMoves.addAll(flippedMoves);
-            }
+    /**
+     * Undo the last move made with {@link #makeMove(char, Move)}, on a board of any size
+     *
+     * @param changed receives the squares changed by the undo, added to its bits (bit row * size + col),
+     *                {@link #getBitSetWords()} longs
+     * @return true if a move was undone, false if there is nothing to undo
+     */
+    public boolean unmakeMove(long[] changed) {
+        if (undoCount == 0) {
+            return false;
         }
+        int base = (undoCount - 1) * words;
+        for (int w = 0; w < words; w++) {
+            changed[w] |= undoFlips[base + w];
+        }
+        int square = undoSquares[undoCount - 1];
+        changed[square >>> 6] |= 1L << square;
+        undo();
+        return true;
+    }
 
-        return totalFlippedMoves;
+    private void undo() {
+        undoCount--;
+        int square = undoSquares[undoCount];
+        int base = undoCount * words;
+        char player = this.board[square / size][square % size];
+        char opponent = (player == 'W') ? 'B' : 'W';
+        long[] own = pieces(player);
+        long[] opp = pieces(opponent);
+
+        long[] playerKeys = ZOBRIST[player == 'B' ? 0 : 1];
+        long[] opponentKeys = ZOBRIST[player == 'B' ? 1 : 0];
+
+        this.board[square / size][square % size] = ' ';
+        own[square >>> 6] &= ~(1L << square);
+        this.numMoves--;
+        hash ^= playerKeys[square];
+        for (int w = 0; w < words; w++) {
+            long flips = undoFlips[base + w];
+            own[w] &= ~flips;
+            opp[w] |= flips;
+            for (long bits = flips; bits != 0; bits &= bits - 1) {
+                int flippedSquare = (w << 6) + Long.numberOfTrailingZeros(bits);
+                this.board[flippedSquare / size][flippedSquare % size] = opponent;
+                hash ^= playerKeys[flippedSquare] ^ opponentKeys[flippedSquare];
+            }
+        }
     }
 
     /**
      * Undo the last move made on the board
+     * The move must be the last one made with {@link #makeMove(char, Move)}
      *
      * @param move the move to be undone
-     * @see #SIZE
+     * @see #unmakeMove()
      */
     public void undoMove(Move move) {
-        if (move.getRow() >= 0 && move.getRow() < SIZE && move.getCol() >= 0 && move.getCol() < SIZE
-                && this.board[move.getRow()][move.getCol()] != ' ') {
-            this.board[move.getRow()][move.getCol()] = ' ';
-            this.numMoves--;
+        if (undoCount > 0 && undoSquares[undoCount - 1] == move.getRow() * size + move.getCol()) {
+            undo();
+        } else {
+            logger.warning("Cannot undo (" + move.getRow() + ", " + move.getCol() + "), it is not the last move.");
+        }
+    }
+
+    /**
+     * Get the Zobrist hash of the position, including the side to move
+     * Equal positions with the same side to move have equal hashes
+     *
+     * @param sideToMove the player (character) to move
+     * @return the hash of the position
+     */
+    public long getHash(char sideToMove) {
+        return sideToMove == 'B' ? hash ^ BLACK_TO_MOVE : hash;
+    }
+
+    /**
+     * Compute the Zobrist hash of the pieces from scratch
+     * Boards of different sizes get different hashes, the 8x8 hashes being those of the pieces alone
+     *
+     * @return the hash of the pieces on the board
+     */
+    private long computeHash() {
+        long h = SIZE_KEYS[size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (this.board[i][j] != ' ') {
+                    h ^= ZOBRIST[this.board[i][j] == 'B' ? 0 : 1][i * size + j];
+                }
+            }
         }
+        return h;
+    }
+
+    /**
+     * Get the number of moves that can be undone
+     *
+     * @return the size of the undo stack
+     */
+    public int getUndoDepth() {
+        return undoCount;
     }
 
     /**
@@ -234,16 +458,12 @@ public class Board {
      *
      * @param player the player (character) whose score is to be calculated
      * @return the score of the player
-     * @see #SIZE
      */
     public int getScore(char player) {
+        long[] bits = pieces(player);
         int score = 0;
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                if (this.board[i][j] == player) {
-                    score++;
-                }
-            }
+        for (long word : bits) {
+            score += Long.bitCount(word);
         }
         return score;
     }
@@ -258,6 +478,60 @@ public class Board {
         return board[move.getRow()][move.getCol()];
     }
 
+    /**
+     * Get the pieces of a player as a bit board: bit row * 8 + col is set if the player has a piece there
+     * Only 8x8 boards fit in a long, see {@link #fillLegalMoves(char, long[])} for the other sizes
+     *
+     * @param player the player (character) whose pieces are wanted
+     * @return the bit board of the player's pieces
+     * @throws IllegalStateException if the board is not 8x8
+     * @see BitBoard
+     */
+    public long getBitBoard(char player) {
+        if (wide != null) {
+            throw new IllegalStateException("Bit boards are only available on 8x8 boards, not " + size + "x" + size);
+        }
+        return pieces(player)[0];
+    }
+
+    /**
+     * Get the pieces of a player as a bit set: bit row * size + col is set if the player has a piece there
+     * The array is the board's own, kept up to date by the moves; it must not be modified
+     *
+     * @param player the player (character) whose pieces are wanted
+     * @return the pieces of the player, {@link #getBitSetWords()} longs
+     */
+    long[] getBitSet(char player) {
+        return pieces(player);
+    }
+
+    /**
+     * Get the legal moves of a player as a bit set, without allocating anything
+     * Not thread safe on boards other than 8x8, which share scratch space between calls
+     *
+     * @param player the player (character) to move
+     * @param moves  receives the legal squares (bit row * size + col), {@link #getBitSetWords()} longs
+     * @return the number of legal moves
+     */
+    public int fillLegalMoves(char player, long[] moves) {
+        long[] own = pieces(player);
+        long[] opp = pieces(player == 'W' ? 'B' : 'W');
+        if (wide == null) {
+            moves[0] = BitBoard.legalMoves(own[0], opp[0]);
+            return Long.bitCount(moves[0]);
+        }
+        return wide.legalMoves(own, opp, moves);
+    }
+
+    /**
+     * Get the number of longs of the bit sets of this board
+     *
+     * @return the number of longs holding one bit per square
+     */
+    public int getBitSetWords() {
+        return words;
+    }
+
     /**
      * Evaluate the board state for the given player
      * The evaluation function calculates the score difference between the player and the opponent
@@ -266,7 +540,6 @@ public class Board {
      * @param player the player (character) for whom the board is to be evaluated
      * @return the evaluation score for the player
      * @see #getScore(char)
-     * @see #getPiece(Move)
      */
     public int evaluate(char player) {
         int playerScore = this.getScore(player);
@@ -276,21 +549,22 @@ public class Board {
 
         int cornerWeight = 25;
         int edgeWeight = 5;
+        int last = size - 1;
 
         // Corners
         int cornerScore = 0;
-        if (this.getPiece(new Move(0, 0)) == player) cornerScore += cornerWeight;
-        if (this.getPiece(new Move(0, 7)) == player) cornerScore += cornerWeight;
-        if (this.getPiece(new Move(7, 0)) == player) cornerScore += cornerWeight;
-        if (this.getPiece(new Move(7, 7)) == player) cornerScore += cornerWeight;
+        if (this.board[0][0] == player) cornerScore += cornerWeight;
+        if (this.board[0][last] == player) cornerScore += cornerWeight;
+        if (this.board[last][0] == player) cornerScore += cornerWeight;
+        if (this.board[last][last] == player) cornerScore += cornerWeight;
 
         // Edges
         int edgeScore = 0;
-        for (int i = 0; i < 8; i++) {
-            if (this.getPiece(new Move(0, i)) == player) edgeScore += edgeWeight;
-            if (this.getPiece(new Move(7, i)) == player) edgeScore += edgeWeight;
-            if (this.getPiece(new Move(i, 0)) == player) edgeScore += edgeWeight;
-            if (this.getPiece(new Move(i, 7)) == player) edgeScore += edgeWeight;
+        for (int i = 0; i < size; i++) {
+            if (this.board[0][i] == player) edgeScore += edgeWeight;
+            if (this.board[last][i] == player) edgeScore += edgeWeight;
+            if (this.board[i][0] == player) edgeScore += edgeWeight;
+            if (this.board[i][last] == player) edgeScore += edgeWeight;
         }
 
         return scoreDifference + cornerScore + edgeScore;
@@ -300,10 +574,9 @@ public class Board {
      * Get the size of the board (number of rows/columns)
      *
      * @return the size of the board
-     * @see #SIZE
      */
     public int getSize() {
-        return SIZE;
+        return size;
     }
 
     // Helper Methods
@@ -316,14 +589,19 @@ public class Board {
      * @see #isLegalMove(Move, char)
      */
     public boolean hasLegalMove(char player) {
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                if (isLegalMove(new Move(i, j), player)) {
+        long[] own = pieces(player);
+        long[] opp = pieces(player == 'W' ? 'B' : 'W');
+        if (wide == null) {
+            if (BitBoard.legalMoves(own[0], opp[0]) != 0) {
+                return true;
+            }
+        } else {
+            for (int square = 0; square < size * size; square++) {
+                if (this.board[square / size][square % size] == ' ' && wide.flipsAny(own, opp, square)) {
                     return true;
                 }
             }
         }
-        System.out.println("No legal moves available for " + player);
         return false;
     }
 
@@ -332,113 +610,26 @@ public class Board {
      * A move is legal if it captures at least one opponent piece
      *
      * @param player the player (character) making the move
-     * @param move   the move to be checked
+     * @param square the square of the move, row * size + col
      * @return true if the move is legal, false otherwise
-     * @see #canCaptureInDirection(char, char, Move, int, int)
      */
-    private boolean isLegalMoveForPlayer(char player, Move move) {
-        char opponent = (player == 'W') ? 'B' : 'W';
-
-        int[][] directions = {
-                {-1, 0}, {1, 0}, {0, -1}, {0, 1},
-                {-1, -1}, {-1, 1}, {1, -1}, {1, 1}
-        };
-
-        for (int[] direction : directions) {
-            int dx = direction[0];
-            int dy = direction[1];
-
-            if (canCaptureInDirection(player, opponent, move, dx, dy)) {
-                return true;
-            }
+    private boolean isLegalMoveForPlayer(char player, int square) {
+        long[] own = pieces(player);
+        long[] opp = pieces(player == 'W' ? 'B' : 'W');
+        if (wide == null) {
+            return FlipTables.flips(own[0], opp[0], square) != 0;
         }
-
-        return false;
+        return wide.flipsAny(own, opp, square);
     }
 
     /**
-     * Check if the given player can capture opponent pieces in the specified direction
+     * Get the bit set of a player's pieces
      *
-     * @param player   the player (character) making the move
-     * @param opponent the opponent's piece
-     * @param move     the move to be checked
-     * @param dx       the change in x-coordinate for the direction
-     * @param dy       the change in y-coordinate for the direction
-     * @return true if the player can capture opponent pieces in the direction, false otherwise
-     * @see #isInBounds(Move)
+     * @param player the player (character)
+     * @return the bit set, updated in place by the moves
      */
-    private boolean canCaptureInDirection(char player, char opponent, Move move, int dx, int dy) {
-        int x = move.getRow() + dx;
-        int y = move.getCol() + dy;
-        boolean hasOpponentPiece = false;
-
-        logger.fine("Checking direction (" + dx + ", " + dy + ") from (" + move.getRow() + ", " + move.getCol() + ")");
-
-        while (isInBounds(new Move(x, y))) {
-            if (this.board[x][y] == opponent) {
-                hasOpponentPiece = true;
-                logger.fine("Opponent piece at (" + x + ", " + y + ")");
-            } else if (this.board[x][y] == player) {
-//                return hasOpponentPiece;
-                if (hasOpponentPiece) {
-                    logger.fine("Found player's own piece at (" + x + ", " + y + ") with opponents in between");
-                    return true;
-                } else {
-                    logger.fine("Found player's own piece at (" + x + ", " + y + ") without any opponents in between");
-                    break;
-                }
-            } else {
-                logger.fine("Encountered empty cell at (" + x + ", " + y + "), cannot capture in this direction");
-                break;
-            }
-            x += dx;
-            y += dy;
-        }
-        return false;
-    }
-
-    /**
-     * Check if the given move is within the bounds of the board
-     *
-     * @param move the move to be checked
-     * @return true if the move is within the bounds, false otherwise
-     * @see #SIZE
-     */
-    private boolean isInBounds(Move move) {
-        return move.getRow() >= 0 && move.getRow() < SIZE && move.getCol() >= 0 && move.getCol() < SIZE;
-    }
-
-    /**
-     * Flip opponent pieces in the specified direction after making a move
-     *
-     * @param player the player (character) making the move
-     * @param move   the move that was made
-     * @param dx     the change in x-coordinate for the direction
-     * @param dy     the change in y-coordinate for the direction
-     * @see #isInBounds(Move)
-     */
-    private List<Move> flipPiecesInDirection(char player, Move move, int dx, int dy) {
-        int x = move.getRow() + dx;
-        int y = move.getCol() + dy;
-        List<Move> flippedMoves = new ArrayList<>();
-        char opponent = (player == 'W') ? 'B' : 'W';
-
-        logger.fine("Flipping pieces in direction (" + dx + ", " + dy + ") starting at (" + x + ", " + y + ")");
-
-        while (isInBounds(new Move(x, y)) && this.board[x][y] == opponent) {
-            flippedMoves.add(new Move(x, y));
-            x += dx;
-            y += dy;
-        }
-        if (isInBounds(new Move(x, y)) && this.board[x][y] == player) {
-            for (Move m : flippedMoves) {
-                this.board[m.getRow()][m.getCol()] = player;
-                logger.fine("Flipping piece at (" + m.getRow() + ", " + m.getCol() + ") to " + player);
-            }
-            return flippedMoves;
-        } else {
-            return new ArrayList<>();
-        }
+    private long[] pieces(char player) {
+        return player == 'B' ? black : white;
     }
 
     /**
@@ -463,4 +654,3 @@ public class Board {
 
 
 }
-
@@ -0,0 +1,28 @@
+package ca.othello.othello_v3;
+
+/**
+ * An Othello engine: something that chooses the move of one player for a board.
+ *
+ * @see IntelligentAI
+ * @see MctsAI
+ */
+public interface Engine {
+
+    /**
+     * Gets the best move of the engine's player on the given board, with the engine's own limits.
+     * The player must have a legal move.
+     *
+     * @param board The current board state, which is left unchanged.
+     * @return The best move as an array of two integers (row, column).
+     */
+    int[] getBestMove(Board board);
+
+    /**
+     * Gets the best move of the engine's player on the given board within a time budget.
+     *
+     * @param board        The current board state, which is left unchanged.
+     * @param timeBudgetMs The time the search may take, in milliseconds.
+     * @return The best move as an array of two integers (row, column), or null if the player has no legal move.
+     */
+    int[] getBestMove(Board board, long timeBudgetMs);
+}
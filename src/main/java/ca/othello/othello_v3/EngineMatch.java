@@ -0,0 +1,88 @@
+package ca.othello.othello_v3;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plays alpha-beta ({@link IntelligentAI} with a transposition table) against Monte Carlo Tree Search
+ * ({@link MctsAI}) with the same time budget per move, each engine taking black in half of the games.
+ * The first plies of each game are random so the games differ.
+ * <pre>
+ * java ca.othello.othello_v3.EngineMatch [games=10] [budgetMs=100] [mctsThreads=cores] [seed=1]
+ * </pre>
+ */
+public class EngineMatch {
+
+    private static final int RANDOM_OPENING_PLIES = 4;
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        long budgetMs = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        Logger.getLogger("").setLevel(Level.WARNING);
+
+        SplittableRandom random = new SplittableRandom(seed);
+        int mctsWins = 0;
+        int alphaBetaWins = 0;
+        int draws = 0;
+        long mctsPlayouts = 0;
+        long mctsReused = 0;
+        long alphaBetaNodes = 0;
+        int mctsMoves = 0;
+        int alphaBetaMoves = 0;
+
+        for (int game = 0; game < games; game++) {
+            char mctsColor = (game % 2 == 0) ? 'B' : 'W';
+            char alphaBetaColor = (mctsColor == 'B') ? 'W' : 'B';
+            MctsAI mcts = new MctsAI(mctsColor, threads, 1 << 20, random.nextLong());
+            IntelligentAI alphaBeta = new IntelligentAI(alphaBetaColor, 1);
+            alphaBeta.setTranspositionTable(new TranspositionTable(20));
+
+            Board board = new Board();
+            char side = 'B';
+            int ply = 0;
+            while (!board.isGameOver()) {
+                if (board.hasLegalMove(side)) {
+                    int[] move;
+                    if (ply < RANDOM_OPENING_PLIES) {
+                        List<Move> legalMoves = board.getAllLegalMoves(side);
+                        Move chosen = legalMoves.get(random.nextInt(legalMoves.size()));
+                        move = new int[]{chosen.getRow(), chosen.getCol()};
+                    } else if (side == mctsColor) {
+                        move = mcts.getBestMove(board, budgetMs);
+                        mctsPlayouts += mcts.getPlayouts();
+                        mctsReused += mcts.getReusedNodes();
+                        mctsMoves++;
+                    } else {
+                        long nodesBefore = alphaBeta.getNodesSearched();
+                        move = alphaBeta.getBestMove(board, budgetMs);
+                        alphaBetaNodes += alphaBeta.getNodesSearched() - nodesBefore;
+                        alphaBetaMoves++;
+                    }
+                    board.makeMove(side, new Move(move[0], move[1]));
+                }
+                side = (side == 'B') ? 'W' : 'B';
+                ply++;
+            }
+
+            int mctsDiscs = board.getScore(mctsColor);
+            int alphaBetaDiscs = board.getScore(alphaBetaColor);
+            if (mctsDiscs > alphaBetaDiscs) {
+                mctsWins++;
+            } else if (mctsDiscs < alphaBetaDiscs) {
+                alphaBetaWins++;
+            } else {
+                draws++;
+            }
+            System.out.printf("Game %d: MCTS (%c) %d - %d alpha-beta (%c)%n", game + 1, mctsColor, mctsDiscs, alphaBetaDiscs, alphaBetaColor);
+        }
+
+        System.out.printf("MCTS %d, alpha-beta %d, draws %d, with %d ms per move%n", mctsWins, alphaBetaWins, draws, budgetMs);
+        System.out.printf("MCTS:       %.0f playouts per move on %d threads, %.0f nodes reused per move%n",
+                (double) mctsPlayouts / Math.max(1, mctsMoves), threads, (double) mctsReused / Math.max(1, mctsMoves));
+        System.out.printf("Alpha-beta: %.0f nodes per move%n", (double) alphaBetaNodes / Math.max(1, alphaBetaMoves));
+    }
+}
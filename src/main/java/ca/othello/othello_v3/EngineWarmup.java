@@ -0,0 +1,137 @@
+package ca.othello.othello_v3;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.logging.Logger;
+
+/**
+ * Gets the AI ready before its first move, on a background thread: the resources the profiles use are
+ * loaded (opening book, tuned weights), then moves of random positions are searched with each profile's
+ * evaluator until the budget is spent, so that the search, move generation and evaluation are compiled
+ * by the JIT before a player waits for them. Without it, the first move is searched in the interpreter
+ * and takes several times longer than the next ones.
+ * <p>
+ * Warm-up searches use their own tables: nothing is left in the position cache or in the metrics.
+ * The warm-up is disabled by -Dothello.warmup=false, and its budget is set by othello.warmup.ms
+ * (1500 by default); it stops early when {@link #cancel()} is called, e.g. when a real search starts.
+ */
+public final class EngineWarmup {
+
+    private static final Logger logger = Logger.getLogger(EngineWarmup.class.getName());
+
+    /** Whether {@link #start(Collection)} warms up the AI. */
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("othello.warmup", "true"));
+    private static final long BUDGET_MS = Long.getLong("othello.warmup.ms", 1500);
+
+    // Searches deeper than this take long enough to miss the budget; the hot paths are the same
+    private static final int MAX_DEPTH = 4;
+    private static final int MAX_OPENING_PLIES = 40;
+
+    private static Thread thread;
+    private static volatile boolean cancelled;
+    private static volatile boolean done;
+    private static volatile IntelligentAI current;
+
+    private EngineWarmup() {
+    }
+
+    /**
+     * Start warming up the AI on a daemon thread of minimum priority, unless disabled or already started.
+     *
+     * @param profiles the profiles the AI may play
+     */
+    public static synchronized void start(Collection<StrengthProfile> profiles) {
+        if (!ENABLED || thread != null) {
+            return;
+        }
+        List<StrengthProfile> copy = new ArrayList<>(profiles);
+        thread = new Thread(() -> run(copy, BUDGET_MS), "engine-warmup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Stop the warm-up as soon as possible. Can be called from any thread.
+     */
+    public static void cancel() {
+        cancelled = true;
+        IntelligentAI ai = current;
+        if (ai != null) {
+            ai.stop();
+        }
+    }
+
+    /**
+     * Check whether the warm-up ran to the end of its budget.
+     *
+     * @return true if the warm-up finished without being cancelled
+     */
+    public static boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Warm up the AI on the calling thread.
+     *
+     * @param profiles the profiles the AI may play
+     * @param budgetMs the time to spend searching
+     * @return the number of moves searched
+     */
+    static int run(Collection<StrengthProfile> profiles, long budgetMs) {
+        long begin = System.nanoTime();
+        for (StrengthProfile profile : profiles) {
+            if (profile.book()) {
+                OpeningBook.getDefault();
+            }
+            if (profile.evaluator() == Evaluator.TUNED) {
+                EvaluationWeights.getDefault();
+            }
+        }
+        long deadline = begin + budgetMs * 1_000_000;
+        SplittableRandom random = new SplittableRandom(0x3A7E);
+        int searches = 0;
+        while (!cancelled && System.nanoTime() < deadline && !profiles.isEmpty()) {
+            for (StrengthProfile profile : profiles) {
+                Board board = randomPosition(random);
+                char side = random.nextBoolean() ? 'B' : 'W';
+                if (cancelled || !board.hasLegalMove(side)) {
+                    continue;
+                }
+                int depth = profile.depth() > 0 ? Math.min(profile.depth(), MAX_DEPTH) : MAX_DEPTH;
+                IntelligentAI ai = new IntelligentAI(side, depth);
+                ai.setEvaluator(profile.evaluator());
+                current = ai;
+                for (Move move : board.getAllLegalMoves(side)) {
+                    if (cancelled || System.nanoTime() >= deadline) {
+                        break;
+                    }
+                    ai.scoreMove(board, move);
+                    searches++;
+                }
+                current = null;
+            }
+        }
+        done = !cancelled;
+        logger.info(String.format("Engine warm-up: %d moves searched in %d ms%s.", searches,
+                (System.nanoTime() - begin) / 1_000_000, cancelled ? " (cancelled)" : ""));
+        return searches;
+    }
+
+    // An 8x8 position reached by random moves from the start
+    private static Board randomPosition(SplittableRandom random) {
+        Board board = new Board();
+        char side = 'B';
+        int plies = random.nextInt(MAX_OPENING_PLIES);
+        for (int ply = 0; ply < plies && !board.isGameOver(); ply++) {
+            if (board.hasLegalMove(side)) {
+                List<Move> moves = board.getAllLegalMoves(side);
+                board.makeMove(side, moves.get(random.nextInt(moves.size())));
+            }
+            side = (side == 'B') ? 'W' : 'B';
+        }
+        return board;
+    }
+}
@@ -0,0 +1,251 @@
+package ca.othello.othello_v3;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * The weights of the tuned evaluation function, {@link Evaluator#TUNED}: the score of a position is
+ * a weighted sum of features, each the difference between the player and the opponent:
+ * <ul>
+ *     <li>discs: the number of discs,</li>
+ *     <li>corners, cSquares (the edge squares next to a corner), xSquares (the squares diagonally
+ *     next to a corner) and edges (the other edge squares): the number of discs on those squares,</li>
+ *     <li>mobility: the number of legal moves.</li>
+ * </ul>
+ * The weights are read from evaluation-weights.properties, bundled with the game, then from
+ * ~/.othello/evaluation-weights.properties if it exists, where {@link WeightTuner} writes the weights it fits.
+ * Weights missing from the user's file keep their bundled value.
+ *
+ * @see WeightTuner
+ */
+public final class EvaluationWeights {
+
+    private static final Logger logger = Logger.getLogger(EvaluationWeights.class.getName());
+
+    /** The names of the features, as used in the weight files. */
+    public static final String[] FEATURES = {"discs", "corners", "cSquares", "xSquares", "edges", "mobility"};
+    static final int FEATURE_COUNT = FEATURES.length;
+    private static final int MOBILITY = 5;
+
+    private static final String RESOURCE = "evaluation-weights.properties";
+    /** The file the tuned weights are read from, overriding the bundled ones. */
+    public static final Path OVERRIDE_FILE = Path.of(System.getProperty("user.home"), ".othello", RESOURCE);
+
+    private static EvaluationWeights defaultWeights;
+
+    // The squares counted by each feature but mobility, by board size: [size][feature][word]
+    private static final long[][][] SQUARES = new long[Board.MAX_SIZE + 1][][];
+
+    // Legal moves of the boards that do not fit in a long
+    private static final ThreadLocal<long[]> WIDE_MOVES =
+            ThreadLocal.withInitial(() -> new long[WideBitBoard.words(Board.MAX_SIZE)]);
+
+    static {
+        for (int size = Board.MIN_SIZE; size <= Board.MAX_SIZE; size += 2) {
+            SQUARES[size] = squareClasses(size);
+        }
+    }
+
+    private final double[] weights;
+
+    /**
+     * Constructor for a set of weights.
+     *
+     * @param weights the weight of each feature, in the order of {@link #FEATURES}
+     */
+    public EvaluationWeights(double[] weights) {
+        if (weights.length != FEATURE_COUNT) {
+            throw new IllegalArgumentException("Expected " + FEATURE_COUNT + " weights, got " + weights.length);
+        }
+        this.weights = weights.clone();
+    }
+
+    /**
+     * Get the weights of the bundled file, overridden by the user's file, loaded on first use.
+     *
+     * @return the weights used by {@link Evaluator#TUNED}
+     */
+    public static synchronized EvaluationWeights getDefault() {
+        if (defaultWeights == null) {
+            Properties properties = new Properties();
+            try (InputStream in = EvaluationWeights.class.getResourceAsStream(RESOURCE)) {
+                if (in != null) {
+                    properties.load(in);
+                }
+            } catch (IOException e) {
+                logger.warning("Could not read the bundled evaluation weights: " + e.getMessage());
+            }
+            if (Files.exists(OVERRIDE_FILE)) {
+                try (InputStream in = Files.newInputStream(OVERRIDE_FILE)) {
+                    properties.load(in);
+                    logger.info("Evaluation weights overridden by " + OVERRIDE_FILE + ".");
+                } catch (IOException e) {
+                    logger.warning("Could not read " + OVERRIDE_FILE + ": " + e.getMessage());
+                }
+            }
+            defaultWeights = parse(properties);
+        }
+        return defaultWeights;
+    }
+
+    /**
+     * Read weights from properties, one entry per feature; missing features weigh 0.
+     *
+     * @param properties the weights by feature name
+     * @return the weights
+     * @throws IllegalArgumentException if a weight is not a number
+     */
+    public static EvaluationWeights parse(Properties properties) {
+        double[] weights = new double[FEATURE_COUNT];
+        for (int feature = 0; feature < FEATURE_COUNT; feature++) {
+            String value = properties.getProperty(FEATURES[feature], "0").trim();
+            try {
+                weights[feature] = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid weight for " + FEATURES[feature] + ": " + value);
+            }
+        }
+        return new EvaluationWeights(weights);
+    }
+
+    /**
+     * Write the weights in the format read by {@link #getDefault()}, replacing the content of the file.
+     *
+     * @param path    the file
+     * @param comment a line written at the top of the file, or null
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path, String comment) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("# Evaluation weights, read by EvaluationWeights.\n");
+            if (comment != null) {
+                writer.write("# " + comment + "\n");
+            }
+            for (int feature = 0; feature < FEATURE_COUNT; feature++) {
+                writer.write(String.format(Locale.ROOT, "%s=%.6f%n", FEATURES[feature], weights[feature]));
+            }
+        }
+    }
+
+    /**
+     * Get the weight of a feature.
+     *
+     * @param feature the index of the feature in {@link #FEATURES}
+     * @return the weight
+     */
+    public double getWeight(int feature) {
+        return weights[feature];
+    }
+
+    /**
+     * Get the weights as an array.
+     *
+     * @return a copy of the weights, in the order of {@link #FEATURES}
+     */
+    public double[] toArray() {
+        return weights.clone();
+    }
+
+    /**
+     * Get a number that changes with the weights, so that answers cached with other weights are not reused.
+     *
+     * @return a hash of the weights
+     */
+    public int fingerprint() {
+        return Arrays.hashCode(weights);
+    }
+
+    /**
+     * Score a position with these weights.
+     *
+     * @param board  the position
+     * @param player the player (character) for whom the position is evaluated
+     * @return the weighted sum of the features, rounded
+     */
+    public int evaluate(Board board, char player) {
+        long[] own = board.getBitSet(player);
+        long[] opp = board.getBitSet(player == 'W' ? 'B' : 'W');
+        long[][] squares = SQUARES[board.getSize()];
+        double score = weights[MOBILITY] * mobility(board, player, own, opp);
+        for (int feature = 0; feature < MOBILITY; feature++) {
+            score += weights[feature] * difference(own, opp, squares[feature]);
+        }
+        return (int) Math.round(score);
+    }
+
+    /**
+     * Compute the features of a position.
+     *
+     * @param board    the position
+     * @param player   the player (character) for whom the features are computed
+     * @param features receives the value of each feature, in the order of {@link #FEATURES}
+     */
+    static void extract(Board board, char player, int[] features) {
+        long[] own = board.getBitSet(player);
+        long[] opp = board.getBitSet(player == 'W' ? 'B' : 'W');
+        long[][] squares = SQUARES[board.getSize()];
+        for (int feature = 0; feature < MOBILITY; feature++) {
+            features[feature] = difference(own, opp, squares[feature]);
+        }
+        features[MOBILITY] = mobility(board, player, own, opp);
+    }
+
+    private static int difference(long[] own, long[] opp, long[] squares) {
+        int difference = 0;
+        for (int w = 0; w < squares.length; w++) {
+            difference += Long.bitCount(own[w] & squares[w]) - Long.bitCount(opp[w] & squares[w]);
+        }
+        return difference;
+    }
+
+    private static int mobility(Board board, char player, long[] own, long[] opp) {
+        if (own.length == 1) {
+            return Long.bitCount(BitBoard.legalMoves(own[0], opp[0])) - Long.bitCount(BitBoard.legalMoves(opp[0], own[0]));
+        }
+        long[] moves = WIDE_MOVES.get();
+        return board.fillLegalMoves(player, moves) - board.fillLegalMoves(player == 'B' ? 'W' : 'B', moves);
+    }
+
+    // Masks of the squares of each feature: all squares, corners, C-squares, X-squares, other edge squares
+    private static long[][] squareClasses(int size) {
+        long[][] classes = new long[MOBILITY][WideBitBoard.words(size)];
+        int last = size - 1;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int square = row * size + col;
+                boolean rowEdge = row == 0 || row == last;
+                boolean colEdge = col == 0 || col == last;
+                boolean nextToCornerRow = row == 1 || row == last - 1;
+                boolean nextToCornerCol = col == 1 || col == last - 1;
+                int feature;
+                if (rowEdge && colEdge) {
+                    feature = 1;
+                } else if ((rowEdge && nextToCornerCol) || (colEdge && nextToCornerRow)) {
+                    feature = 2;
+                } else if (nextToCornerRow && nextToCornerCol) {
+                    feature = 3;
+                } else if (rowEdge || colEdge) {
+                    feature = 4;
+                } else {
+                    feature = -1;
+                }
+                classes[0][square >>> 6] |= 1L << square;
+                if (feature > 0) {
+                    classes[feature][square >>> 6] |= 1L << square;
+                }
+            }
+        }
+        return classes;
+    }
+}
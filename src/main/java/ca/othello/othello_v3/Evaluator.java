@@ -0,0 +1,167 @@
+package ca.othello.othello_v3;
+
+import java.util.Locale;
+
+/**
+ * The evaluation functions the AI can score positions with.
+ * The name of a constant is the one used in strength profiles; new constants must be added at the end,
+ * as the ordinal is part of the keys of cached answers.
+ *
+ * @see IntelligentAI#setEvaluator(Evaluator)
+ * @see StrengthProfile
+ */
+public enum Evaluator {
+
+    /**
+     * Disc difference plus bonuses for corners and edges.
+     *
+     * @see Board#evaluate(char)
+     */
+    POSITIONAL {
+        @Override
+        public int evaluate(Board board, char player) {
+            return board.evaluate(player);
+        }
+    },
+
+    /**
+     * Disc difference only.
+     */
+    DISCS {
+        @Override
+        public int evaluate(Board board, char player) {
+            return board.getScore(player) - board.getScore(player == 'W' ? 'B' : 'W');
+        }
+
+        @Override
+        int getEndgameScale() {
+            return 1;
+        }
+    },
+
+    /**
+     * Mean final disc difference of random games played from the position, with the player to move.
+     * The games are seeded by the position, so a position always gets the same score.
+     * The playouts run on 8x8 bit boards; other board sizes are scored like {@link #DISCS}.
+     *
+     * @see Playout
+     */
+    PLAYOUTS {
+        private static final int GAMES = 32;
+
+        @Override
+        public int evaluate(Board board, char player) {
+            if (board.getSize() != Board.DEFAULT_SIZE) {
+                return DISCS.evaluate(board, player);
+            }
+            Playout playout = Playout.current();
+            playout.setSeed(board.getHash(player));
+            long own = board.getBitBoard(player);
+            long opp = board.getBitBoard(player == 'W' ? 'B' : 'W');
+            int total = 0;
+            for (int game = 0; game < GAMES; game++) {
+                total += playout.play(own, opp);
+            }
+            return total / GAMES;
+        }
+    },
+
+    /**
+     * Weighted sum of disc, square class and mobility differences, with the weights fitted by {@link WeightTuner}.
+     *
+     * @see EvaluationWeights
+     */
+    TUNED {
+        @Override
+        public int evaluate(Board board, char player) {
+            return EvaluationWeights.getDefault().evaluate(board, player);
+        }
+
+        @Override
+        public int getCacheId() {
+            return ordinal() ^ (EvaluationWeights.getDefault().fingerprint() << 8);
+        }
+    },
+
+    /**
+     * Disc difference plus bonuses for corners and for stable discs, which unlike {@link #POSITIONAL} leaves out
+     * the edge discs that can still be flipped, and counts the bonuses of both players.
+     * A finished game scores its disc difference times the weight of a stable disc plus one, as if all its discs
+     * were stable, so the search can bound endgame scores by the stable discs.
+     * The stable discs are computed on 8x8 bit boards; other board sizes are scored like {@link #POSITIONAL}.
+     *
+     * @see Stability
+     */
+    STABILITY {
+        private static final long CORNERS = 0x8100000000000081L;
+        private static final int CORNER_WEIGHT = 25;
+        private static final int STABLE_WEIGHT = 5;
+
+        @Override
+        public int evaluate(Board board, char player) {
+            if (board.getSize() != Board.DEFAULT_SIZE) {
+                return POSITIONAL.evaluate(board, player);
+            }
+            long own = board.getBitBoard(player);
+            long opp = board.getBitBoard(player == 'W' ? 'B' : 'W');
+            int discs = Long.bitCount(own) - Long.bitCount(opp);
+            if (BitBoard.legalMoves(own, opp) == 0 && BitBoard.legalMoves(opp, own) == 0) {
+                return getEndgameScale() * discs;
+            }
+            int corners = Long.bitCount(own & CORNERS) - Long.bitCount(opp & CORNERS);
+            int stable = Long.bitCount(Stability.stableDiscs(own, opp)) - Long.bitCount(Stability.stableDiscs(opp, own));
+            return discs + CORNER_WEIGHT * corners + STABLE_WEIGHT * stable;
+        }
+
+        @Override
+        int getEndgameScale() {
+            return STABLE_WEIGHT + 1;
+        }
+    };
+
+    /**
+     * Evaluate a position.
+     *
+     * @param board  the position
+     * @param player the player (character) for whom the position is evaluated
+     * @return the score of the position for the player, higher is better
+     */
+    public abstract int evaluate(Board board, char player);
+
+    /**
+     * Get the identifier of the evaluator in the keys of cached answers.
+     * It changes when the scores do, e.g. with new weights, so older answers are not reused.
+     *
+     * @return the identifier, the ordinal unless the evaluator has settings
+     * @see PositionCache.Key
+     */
+    public int getCacheId() {
+        return ordinal();
+    }
+
+    /**
+     * Get the factor by which the score of a finished 8x8 game is its disc difference, letting the search cut off
+     * endgame positions whose stable discs already decide the comparison with alpha or beta.
+     *
+     * @return the factor, 0 if finished games are not scored by their discs alone
+     * @see Stability
+     */
+    int getEndgameScale() {
+        return 0;
+    }
+
+    /**
+     * Get an evaluator from its name, ignoring case.
+     *
+     * @param name the name, e.g. "positional"
+     * @return the evaluator
+     * @throws IllegalArgumentException if there is no evaluator of this name
+     */
+    public static Evaluator forName(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown evaluator: " + name);
+        }
+    }
+}
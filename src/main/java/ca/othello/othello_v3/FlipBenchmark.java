@@ -0,0 +1,120 @@
+package ca.othello.othello_v3;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the flips of 8x8 moves computed by shifting along the eight directions ({@link BitBoard#flips(long, long, int)})
+ * and by table lookups along the four lines ({@link FlipTables#flips(long, long, int)}): the legal moves of random positions
+ * from random games are flipped over and over with each, after checking that both flip the same pieces for every move:
+ * <pre>
+ * java ca.othello.othello_v3.FlipBenchmark [positions=5000] [rounds=200] [seed=1]
+ * </pre>
+ * The two methods take turns for several trials, and the best time of each is reported.
+ */
+public class FlipBenchmark {
+
+    private static final int WARM_UP_ROUNDS = 50;
+    private static final int TRIALS = 5;
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int positions = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        long[] own = new long[positions];
+        long[] opp = new long[positions];
+        long[] moves = new long[positions];
+        long totalMoves = 0;
+        Random random = new Random(seed);
+        for (int i = 0; i < positions; i++) {
+            Board board = randomPosition(random);
+            own[i] = board.getBitBoard('B');
+            opp[i] = board.getBitBoard('W');
+            moves[i] = BitBoard.legalMoves(own[i], opp[i]);
+            totalMoves += Long.bitCount(moves[i]);
+        }
+        checkSameFlips(own, opp, moves);
+
+        for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+            runShifts(own, opp, moves);
+            runTables(own, opp, moves);
+        }
+        long shifts = Long.MAX_VALUE;
+        long tables = Long.MAX_VALUE;
+        for (int trial = 0; trial < TRIALS; trial++) {
+            shifts = Math.min(shifts, time(() -> { for (int r = 0; r < rounds; r++) runShifts(own, opp, moves); }));
+            tables = Math.min(tables, time(() -> { for (int r = 0; r < rounds; r++) runTables(own, opp, moves); }));
+        }
+
+        long flips = totalMoves * rounds;
+        System.out.printf("%d positions, %.1f moves per position, %d rounds%n", positions, (double) totalMoves / positions, rounds);
+        System.out.printf("%-22s %8.2f ns/move%n", "BitBoard (shifts)", (double) shifts / flips);
+        System.out.printf("%-22s %8.2f ns/move%n", "FlipTables (lookups)", (double) tables / flips);
+        System.out.printf("Speed-up: %.2fx%n", (double) shifts / tables);
+        System.out.println("(checksum " + Long.toHexString(sink) + ")");
+    }
+
+    // A position after a random number of random moves, with black to move and at least one legal move
+    private static Board randomPosition(Random random) {
+        while (true) {
+            Board board = new Board();
+            int plies = 2 * random.nextInt(30);
+            char side = 'B';
+            for (int ply = 0; ply < plies && !board.isGameOver(); ply++) {
+                List<Move> legalMoves = board.getAllLegalMoves(side);
+                if (!legalMoves.isEmpty()) {
+                    board.makeMove(side, legalMoves.get(random.nextInt(legalMoves.size())));
+                }
+                side = (side == 'B') ? 'W' : 'B';
+            }
+            if (side == 'B' && !board.getAllLegalMoves('B').isEmpty()) {
+                return board;
+            }
+        }
+    }
+
+    private static void checkSameFlips(long[] own, long[] opp, long[] moves) {
+        for (int i = 0; i < own.length; i++) {
+            // Every empty square, so that illegal moves flip nothing with both
+            for (long bits = ~(own[i] | opp[i]); bits != 0; bits &= bits - 1) {
+                int square = Long.numberOfTrailingZeros(bits);
+                long expected = BitBoard.flips(own[i], opp[i], square);
+                long actual = FlipTables.flips(own[i], opp[i], square);
+                if (expected != actual) {
+                    throw new IllegalStateException("Different flips for square " + square + " of position "
+                            + Long.toHexString(own[i]) + "/" + Long.toHexString(opp[i]) + ": "
+                            + Long.toHexString(expected) + " and " + Long.toHexString(actual));
+                }
+            }
+        }
+    }
+
+    private static void runShifts(long[] own, long[] opp, long[] moves) {
+        long total = 0;
+        for (int i = 0; i < own.length; i++) {
+            for (long bits = moves[i]; bits != 0; bits &= bits - 1) {
+                total += BitBoard.flips(own[i], opp[i], Long.numberOfTrailingZeros(bits));
+            }
+        }
+        sink += total;
+    }
+
+    private static void runTables(long[] own, long[] opp, long[] moves) {
+        long total = 0;
+        for (int i = 0; i < own.length; i++) {
+            for (long bits = moves[i]; bits != 0; bits &= bits - 1) {
+                total += FlipTables.flips(own[i], opp[i], Long.numberOfTrailingZeros(bits));
+            }
+        }
+        sink += total;
+    }
+
+    private static long time(Runnable work) {
+        long begin = System.nanoTime();
+        work.run();
+        return System.nanoTime() - begin;
+    }
+}
@@ -0,0 +1,355 @@
+package ca.othello.othello_v3;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A finished or ongoing game stored in the compact binary record format.
+ * On an 8x8 board every ply takes one byte: row * 8 + col for a move, 0xFF for a pass.
+ * <p>
+ * Layout of one record of an 8x8 game, version 1 (all fields unsigned bytes unless noted):
+ * <pre>
+ * magic 'O' | version 1 | black engine | black depth | white engine | white depth |
+ * black discs | white discs | ply count n |
+ * black name length | black name (UTF-8) | white name length | white name (UTF-8) |
+ * n plies
+ * </pre>
+ * Games on other board sizes do not fit one byte per ply (a 16x16 board has 256 squares, and up
+ * to 256 discs per player), so they are written in version 2, whose counts and plies take two bytes
+ * (big-endian), a pass being 0xFFFF:
+ * <pre>
+ * magic 'O' | version 2 | board size | black engine | black depth | white engine | white depth |
+ * black discs (2) | white discs (2) | ply count n (2) |
+ * black name length | black name (UTF-8) | white name length | white name (UTF-8) |
+ * n plies (2 each)
+ * </pre>
+ * 8x8 games are always written in version 1, so their files can still be read by older versions.
+ * The disc counts hold the result once the game is over.
+ *
+ * @see GameRecordWriter
+ * @see GameRecordReader
+ */
+public class GameRecord {
+
+    public static final byte MAGIC = 'O';
+    public static final byte VERSION = 1;
+    public static final byte WIDE_VERSION = 2;
+    /** The ply of a pass, as returned by {@link #getPly(int)}. */
+    public static final int PASS = 0xFFFF;
+    static final int NARROW_PASS = 0xFF;
+
+    public static final int ENGINE_HUMAN = 0;
+    public static final int ENGINE_RANDOM = 1;
+    public static final int ENGINE_MINIMAX = 2;
+
+    /** Size of the fixed part of the header, up to and including the ply count. */
+    static final int FIXED_HEADER_LENGTH = 9;
+    static final int WIDE_FIXED_HEADER_LENGTH = 13;
+    static final int MAX_NAME_LENGTH = 255;
+    static final int MAX_PLIES = 255;
+    /** A game has at most one pass per move, plus the final one. */
+    static final int MAX_WIDE_PLIES = 2 * Board.MAX_SIZE * Board.MAX_SIZE;
+    /** Upper bound of the encoded length of any record. */
+    static final int MAX_RECORD_LENGTH = WIDE_FIXED_HEADER_LENGTH + 2 * (1 + MAX_NAME_LENGTH) + 2 * MAX_WIDE_PLIES;
+
+    private String blackName;
+    private String whiteName;
+    private int blackEngine;
+    private int blackDepth;
+    private int whiteEngine;
+    private int whiteDepth;
+    private int blackDiscs;
+    private int whiteDiscs;
+    private final int boardSize;
+    private short[] plies = new short[64];
+    private int plyCount;
+
+    /**
+     * Constructor for a record of an 8x8 game that has not started yet.
+     *
+     * @param blackName the name of the black player
+     * @param whiteName the name of the white player
+     */
+    public GameRecord(String blackName, String whiteName) {
+        this(blackName, whiteName, Board.DEFAULT_SIZE);
+    }
+
+    /**
+     * Constructor for a record of a game that has not started yet.
+     *
+     * @param blackName the name of the black player
+     * @param whiteName the name of the white player
+     * @param boardSize the size of the board
+     */
+    public GameRecord(String blackName, String whiteName, int boardSize) {
+        this.blackName = blackName;
+        this.whiteName = whiteName;
+        this.boardSize = boardSize;
+        this.blackDiscs = 2;
+        this.whiteDiscs = 2;
+    }
+
+    /**
+     * Copy the record, e.g. to hand a finished game to another thread while the game goes on.
+     *
+     * @return a new record with the same players, engines, plies and result
+     */
+    public GameRecord copy() {
+        GameRecord copy = new GameRecord(blackName, whiteName, boardSize);
+        copy.blackEngine = blackEngine;
+        copy.blackDepth = blackDepth;
+        copy.whiteEngine = whiteEngine;
+        copy.whiteDepth = whiteDepth;
+        copy.blackDiscs = blackDiscs;
+        copy.whiteDiscs = whiteDiscs;
+        copy.plies = Arrays.copyOf(plies, Math.max(plyCount, 1));
+        copy.plyCount = plyCount;
+        return copy;
+    }
+
+    /**
+     * Encode a move of an 8x8 game as a ply.
+     *
+     * @param move the move, or (-1, -1) for a pass
+     * @return the encoded ply
+     */
+    public static int encode(Move move) {
+        return encode(move, Board.DEFAULT_SIZE);
+    }
+
+    /**
+     * Encode a move as a ply.
+     *
+     * @param move      the move, or (-1, -1) for a pass
+     * @param boardSize the size of the board
+     * @return the encoded ply, row * size + col or {@link #PASS}
+     */
+    public static int encode(Move move, int boardSize) {
+        return move.isPass() ? PASS : move.getRow() * boardSize + move.getCol();
+    }
+
+    /**
+     * Decode a ply of an 8x8 game into a move.
+     *
+     * @param ply the encoded ply
+     * @return the move, (-1, -1) for a pass
+     */
+    public static Move decode(int ply) {
+        return decode(ply, Board.DEFAULT_SIZE);
+    }
+
+    /**
+     * Decode a ply into a move.
+     *
+     * @param ply       the encoded ply
+     * @param boardSize the size of the board
+     * @return the move, (-1, -1) for a pass
+     */
+    public static Move decode(int ply, int boardSize) {
+        return ply == PASS ? new Move(-1, -1) : new Move(ply / boardSize, ply % boardSize);
+    }
+
+    /**
+     * Append a ply to the record.
+     *
+     * @param move the move played, or (-1, -1) for a pass
+     * @throws IllegalStateException if the record already holds the maximum number of plies
+     */
+    public void addPly(Move move) {
+        int maxPlies = isWide() ? MAX_WIDE_PLIES : MAX_PLIES;
+        if (plyCount == maxPlies) {
+            throw new IllegalStateException("A game record holds at most " + maxPlies + " plies.");
+        }
+        if (plyCount == plies.length) {
+            plies = Arrays.copyOf(plies, plies.length * 2);
+        }
+        plies[plyCount++] = (short) encode(move, boardSize);
+    }
+
+    /**
+     * Remove the last ply of the record, if any.
+     */
+    public void removeLastPly() {
+        if (plyCount > 0) {
+            plyCount--;
+        }
+    }
+
+    /**
+     * Get the number of plies, passes included.
+     *
+     * @return the number of plies
+     */
+    public int getPlyCount() {
+        return plyCount;
+    }
+
+    /**
+     * Get the encoded ply at the given index.
+     *
+     * @param index the index of the ply
+     * @return the encoded ply, row * size + col, {@link #PASS} for a pass
+     */
+    public int getPly(int index) {
+        return plies[index] & 0xFFFF;
+    }
+
+    /**
+     * Get every ply of the game as moves.
+     *
+     * @return the list of moves, passes as (-1, -1)
+     */
+    public List<Move> getMoves() {
+        List<Move> moves = new ArrayList<>(plyCount);
+        for (int i = 0; i < plyCount; i++) {
+            moves.add(decode(getPly(i), boardSize));
+        }
+        return moves;
+    }
+
+    /**
+     * Set the engine playing one side.
+     *
+     * @param color  the side ('B' or 'W')
+     * @param engine one of the ENGINE_ constants
+     * @param depth  the search depth, 0 if not applicable
+     */
+    public void setEngine(char color, int engine, int depth) {
+        if (color == 'B') {
+            this.blackEngine = engine;
+            this.blackDepth = depth;
+        } else {
+            this.whiteEngine = engine;
+            this.whiteDepth = depth;
+        }
+    }
+
+    /**
+     * Store the disc counts of the board, as the result of the game.
+     *
+     * @param board the board after the last ply
+     */
+    public void setResult(Board board) {
+        this.blackDiscs = board.getScore('B');
+        this.whiteDiscs = board.getScore('W');
+    }
+
+    /**
+     * Store the disc counts at the end of the game.
+     *
+     * @param blackDiscs the number of black discs
+     * @param whiteDiscs the number of white discs
+     */
+    public void setResult(int blackDiscs, int whiteDiscs) {
+        this.blackDiscs = blackDiscs;
+        this.whiteDiscs = whiteDiscs;
+    }
+
+    /**
+     * Get the encoded length of this record in bytes.
+     *
+     * @return the number of bytes written by {@link #writeTo(ByteBuffer)}
+     */
+    public int getEncodedLength() {
+        int names = 2 + nameBytes(blackName).length + nameBytes(whiteName).length;
+        return isWide() ? WIDE_FIXED_HEADER_LENGTH + names + 2 * plyCount : FIXED_HEADER_LENGTH + names + plyCount;
+    }
+
+    /**
+     * Write this record at the current position of the buffer.
+     *
+     * @param buffer the buffer, with at least {@link #getEncodedLength()} bytes remaining
+     */
+    public void writeTo(ByteBuffer buffer) {
+        byte[] black = nameBytes(blackName);
+        byte[] white = nameBytes(whiteName);
+        if (isWide()) {
+            buffer.put(MAGIC)
+                    .put(WIDE_VERSION)
+                    .put((byte) boardSize)
+                    .put((byte) blackEngine)
+                    .put((byte) blackDepth)
+                    .put((byte) whiteEngine)
+                    .put((byte) whiteDepth)
+                    .putShort((short) blackDiscs)
+                    .putShort((short) whiteDiscs)
+                    .putShort((short) plyCount)
+                    .put((byte) black.length).put(black)
+                    .put((byte) white.length).put(white);
+            for (int i = 0; i < plyCount; i++) {
+                buffer.putShort(plies[i]);
+            }
+            return;
+        }
+        buffer.put(MAGIC)
+                .put(VERSION)
+                .put((byte) blackEngine)
+                .put((byte) blackDepth)
+                .put((byte) whiteEngine)
+                .put((byte) whiteDepth)
+                .put((byte) blackDiscs)
+                .put((byte) whiteDiscs)
+                .put((byte) plyCount)
+                .put((byte) black.length).put(black)
+                .put((byte) white.length).put(white);
+        for (int i = 0; i < plyCount; i++) {
+            buffer.put((byte) (plies[i] == (short) PASS ? NARROW_PASS : plies[i]));
+        }
+    }
+
+    /**
+     * Check whether this record is written in version 2, as its board is not 8x8.
+     *
+     * @return true for the two bytes per ply format
+     */
+    private boolean isWide() {
+        return boardSize != Board.DEFAULT_SIZE;
+    }
+
+    /**
+     * Encode a player name, truncated to fit its one byte length prefix.
+     * The name is cut before a character, never inside one, so it always decodes.
+     *
+     * @param name the name of the player
+     * @return the UTF-8 bytes of the name
+     */
+    private static byte[] nameBytes(String name) {
+        byte[] bytes = (name == null ? "" : name).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_NAME_LENGTH) {
+            return bytes;
+        }
+        // Back to the first byte of the character the limit falls in: continuation bytes are 10xxxxxx
+        int length = MAX_NAME_LENGTH;
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        return Arrays.copyOf(bytes, length);
+    }
+
+    // ============= Getters and Setters =============
+
+    public int getBoardSize() { return boardSize; }
+
+    public String getBlackName() { return blackName; }
+
+    public void setBlackName(String blackName) { this.blackName = blackName; }
+
+    public String getWhiteName() { return whiteName; }
+
+    public void setWhiteName(String whiteName) { this.whiteName = whiteName; }
+
+    public int getBlackEngine() { return blackEngine; }
+
+    public int getBlackDepth() { return blackDepth; }
+
+    public int getWhiteEngine() { return whiteEngine; }
+
+    public int getWhiteDepth() { return whiteDepth; }
+
+    public int getBlackDiscs() { return blackDiscs; }
+
+    public int getWhiteDiscs() { return whiteDiscs; }
+}
@@ -0,0 +1,234 @@
+package ca.othello.othello_v3;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Scans a file of game records through memory-mapped windows.
+ * The reader is a cursor: {@link #next()} moves to the following record and the getters
+ * read its fields straight from the mapped file, so scanning creates no object per game.
+ * Only {@link #getBlackName()}, {@link #getWhiteName()} and {@link #toRecord()} materialise data.
+ * <pre>
+ * try (GameRecordReader reader = new GameRecordReader(path)) {
+ *     while (reader.next()) {
+ *         int plies = reader.getPlyCount();
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @see GameRecord
+ * @see GameRecordWriter
+ */
+public class GameRecordReader implements AutoCloseable {
+
+    private static final long WINDOW_SIZE = 64L << 20;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int position;
+
+    // Offsets of the current record, relative to the window
+    private int recordStart = -1;
+    private boolean wide;
+    private int blackNameOffset;
+    private int whiteNameOffset;
+    private int pliesOffset;
+    private long gamesRead;
+
+    /**
+     * Open a reader on the given file.
+     *
+     * @param path the file of game records
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public GameRecordReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        map(0);
+    }
+
+    /**
+     * Move to the next record.
+     *
+     * @return true if a record is available, false at the end of the file
+     * @throws IOException if the file is truncated or corrupt
+     */
+    public boolean next() throws IOException {
+        long absolute = windowStart + position;
+        if (absolute >= fileSize) {
+            return false;
+        }
+        if (window.limit() - position < GameRecord.MAX_RECORD_LENGTH && windowStart + window.limit() < fileSize) {
+            map(absolute);
+        }
+        if (window.limit() - position < GameRecord.FIXED_HEADER_LENGTH + 2) {
+            throw new IOException("Truncated game record at offset " + absolute);
+        }
+        byte version = window.get(position + 1);
+        if (window.get(position) != GameRecord.MAGIC || (version != GameRecord.VERSION && version != GameRecord.WIDE_VERSION)) {
+            throw new IOException("Corrupt game record at offset " + absolute);
+        }
+        wide = version == GameRecord.WIDE_VERSION;
+        if (wide && window.limit() - position < GameRecord.WIDE_FIXED_HEADER_LENGTH + 2) {
+            throw new IOException("Truncated game record at offset " + absolute);
+        }
+
+        recordStart = position;
+        blackNameOffset = position + (wide ? GameRecord.WIDE_FIXED_HEADER_LENGTH : GameRecord.FIXED_HEADER_LENGTH);
+        whiteNameOffset = blackNameOffset + 1 + unsigned(blackNameOffset);
+        pliesOffset = whiteNameOffset + 1 + unsigned(whiteNameOffset);
+        position = pliesOffset + (wide ? 2 : 1) * getPlyCount();
+        if (position > window.limit()) {
+            throw new IOException("Truncated game record at offset " + absolute);
+        }
+        gamesRead++;
+        return true;
+    }
+
+    /**
+     * Get the number of plies of the current record, passes included.
+     *
+     * @return the number of plies
+     */
+    public int getPlyCount() {
+        return wide ? unsignedShort(recordStart + 11) : unsigned(recordStart + 8);
+    }
+
+    /**
+     * Get the encoded ply at the given index of the current record.
+     *
+     * @param index the index of the ply
+     * @return row * size + col, or {@link GameRecord#PASS}
+     */
+    public int getPly(int index) {
+        if (wide) {
+            return unsignedShort(pliesOffset + 2 * index);
+        }
+        int ply = unsigned(pliesOffset + index);
+        return ply == GameRecord.NARROW_PASS ? GameRecord.PASS : ply;
+    }
+
+    /**
+     * Get the size of the board of the current record.
+     *
+     * @return the number of rows and columns
+     */
+    public int getBoardSize() {
+        return wide ? unsigned(recordStart + 2) : Board.DEFAULT_SIZE;
+    }
+
+    public int getBlackEngine() { return unsigned(recordStart + header(2)); }
+
+    public int getBlackDepth() { return unsigned(recordStart + header(3)); }
+
+    public int getWhiteEngine() { return unsigned(recordStart + header(4)); }
+
+    public int getWhiteDepth() { return unsigned(recordStart + header(5)); }
+
+    public int getBlackDiscs() { return wide ? unsignedShort(recordStart + 7) : unsigned(recordStart + 6); }
+
+    public int getWhiteDiscs() { return wide ? unsignedShort(recordStart + 9) : unsigned(recordStart + 7); }
+
+    // Version 2 has the board size before the engines
+    private int header(int offset) {
+        return wide ? offset + 1 : offset;
+    }
+
+    /**
+     * Get the name of the black player of the current record.
+     *
+     * @return the name of the black player
+     */
+    public String getBlackName() {
+        return readName(blackNameOffset);
+    }
+
+    /**
+     * Get the name of the white player of the current record.
+     *
+     * @return the name of the white player
+     */
+    public String getWhiteName() {
+        return readName(whiteNameOffset);
+    }
+
+    /**
+     * Get the file offset of the current record.
+     *
+     * @return the offset in bytes from the start of the file
+     */
+    public long getOffset() {
+        return windowStart + recordStart;
+    }
+
+    /**
+     * Get the number of records read so far.
+     *
+     * @return the number of records
+     */
+    public long getGamesRead() {
+        return gamesRead;
+    }
+
+    /**
+     * Materialise the current record.
+     *
+     * @return a copy of the current record
+     */
+    public GameRecord toRecord() {
+        int boardSize = getBoardSize();
+        GameRecord record = new GameRecord(getBlackName(), getWhiteName(), boardSize);
+        record.setEngine('B', getBlackEngine(), getBlackDepth());
+        record.setEngine('W', getWhiteEngine(), getWhiteDepth());
+        for (int i = 0; i < getPlyCount(); i++) {
+            record.addPly(GameRecord.decode(getPly(i), boardSize));
+        }
+        record.setResult(getBlackDiscs(), getWhiteDiscs());
+        return record;
+    }
+
+    /**
+     * Close the file.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Map the window starting at the given file offset.
+     *
+     * @param start the file offset of the window
+     * @throws IOException if mapping fails
+     */
+    private void map(long start) throws IOException {
+        long length = Math.min(WINDOW_SIZE, fileSize - start);
+        this.window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        this.windowStart = start;
+        this.position = 0;
+        this.recordStart = -1;
+    }
+
+    private int unsigned(int offset) {
+        return window.get(offset) & 0xFF;
+    }
+
+    private int unsignedShort(int offset) {
+        return window.getShort(offset) & 0xFFFF;
+    }
+
+    private String readName(int offset) {
+        byte[] bytes = new byte[unsigned(offset)];
+        window.get(offset + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,96 @@
+package ca.othello.othello_v3;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends game records to a file.
+ * Records are collected in a direct buffer and written to the channel in large chunks,
+ * so writing millions of games costs a few system calls per megabyte.
+ *
+ * @see GameRecord
+ * @see GameRecordReader
+ */
+public class GameRecordWriter implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long gamesWritten;
+
+    /**
+     * Open a writer that appends to the given file, creating it if needed.
+     *
+     * @param path the file to append to
+     * @throws IOException if the file cannot be opened
+     */
+    public GameRecordWriter(Path path) throws IOException {
+        this(path, true);
+    }
+
+    /**
+     * Open a writer on the given file, creating it if needed.
+     *
+     * @param path   the file to write to
+     * @param append true to append to the existing records, false to replace them
+     * @throws IOException if the file cannot be opened
+     */
+    public GameRecordWriter(Path path, boolean append) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Append a record.
+     *
+     * @param record the game to write
+     * @throws IOException if the buffer cannot be flushed
+     */
+    public void write(GameRecord record) throws IOException {
+        if (buffer.remaining() < record.getEncodedLength()) {
+            flush();
+        }
+        record.writeTo(buffer);
+        gamesWritten++;
+    }
+
+    /**
+     * Write every buffered record to the file.
+     *
+     * @throws IOException if writing fails
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Get the number of records written by this writer.
+     *
+     * @return the number of records
+     */
+    public long getGamesWritten() {
+        return gamesWritten;
+    }
+
+    /**
+     * Flush the remaining records and close the file.
+     *
+     * @throws IOException if writing or closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package ca.othello.othello_v3;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One game, independent of any UI: the board, the players, whose turn it is,
+ * the history of plies and the AI settings.
+ * All operations are serialised by a lock, so a session can be driven from any thread;
+ * the lock is a {@link ReentrantLock} so virtual threads waiting on it do not pin their carrier.
+ * The AI search works on a copy of the board and does not hold the lock.
+ *
+ * @see SessionHost
+ */
+public class GameSession {
+
+    private final long id;
+    private final Board board = new Board();
+    private final Player black;
+    private final Player white;
+    private final GameRecord record;
+    private final ReentrantLock lock = new ReentrantLock();
+    private char turn = 'B';
+    private volatile long lastActive = System.currentTimeMillis();
+
+    /**
+     * Constructor for a session at the initial position.
+     *
+     * @param id    the identifier of the session
+     * @param black the black player
+     * @param white the white player
+     */
+    public GameSession(long id, Player black, Player white) {
+        this.id = id;
+        this.black = black;
+        this.white = white;
+        this.record = new GameRecord(black.getName(), white.getName());
+    }
+
+    /**
+     * Set the engine of one side, as stored in the game record.
+     *
+     * @param color  the side ('B' or 'W')
+     * @param engine one of the GameRecord ENGINE_ constants
+     * @param depth  the search depth, 0 if not applicable
+     */
+    public void setEngine(char color, int engine, int depth) {
+        lock.lock();
+        try {
+            record.setEngine(color, engine, depth);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Play a move, or pass, for the side to move.
+     *
+     * @param move the move, or (-1, -1) to pass
+     * @return true if the move was played, false if it is illegal
+     */
+    public boolean play(Move move) {
+        lock.lock();
+        try {
+            touch();
+            if (board.isGameOver()) {
+                return false;
+            }
+            if (move.isPass()) {
+                if (board.hasLegalMove(turn)) {
+                    return false;
+                }
+            } else if (!board.isLegalMove(move, turn)) {
+                return false;
+            } else {
+                board.makeMove(turn, move);
+            }
+            record.addPly(move);
+            turn = (turn == 'B') ? 'W' : 'B';
+            if (board.isGameOver()) {
+                record.setResult(board);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Start the game again from the initial position, keeping the players and settings.
+     */
+    public void reset() {
+        lock.lock();
+        try {
+            touch();
+            board.resetBoard();
+            while (record.getPlyCount() > 0) {
+                record.removeLastPly();
+            }
+            record.setResult(2, 2);
+            turn = 'B';
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the legal moves of the side to move.
+     *
+     * @return the legal moves, empty if the side must pass or the game is over
+     */
+    public List<Move> getLegalMoves() {
+        lock.lock();
+        try {
+            return board.getAllLegalMoves(turn);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Request the best move of the side to move from a batcher, without playing it.
+     * The batcher searches a copy of the board, so other calls are not blocked meanwhile.
+     *
+     * @param batcher  the batcher running the search
+     * @param budgetMs the time budget of the search, in milliseconds
+     * @param deadline the time the move is needed by, as a {@link System#nanoTime()} value
+     * @return a future completed with the best move, (-1, -1) if the side must pass, or null if the game is over
+     * @see AIMoveBatcher#submit(long, Board, char, long, long)
+     */
+    public CompletableFuture<Move> requestAIMove(AIMoveBatcher batcher, long budgetMs, long deadline) {
+        Board position;
+        char side;
+        lock.lock();
+        try {
+            touch();
+            if (board.isGameOver()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            position = board.cloneBoard();
+            side = turn;
+        } finally {
+            lock.unlock();
+        }
+        return batcher.submit(id, position, side, budgetMs, deadline);
+    }
+
+    /**
+     * Get a copy of the board.
+     *
+     * @return a copy of the current position
+     */
+    public Board getBoard() {
+        lock.lock();
+        try {
+            return board.cloneBoard();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Check if the game is over.
+     *
+     * @return true if neither side can move, false otherwise
+     */
+    public boolean isGameOver() {
+        lock.lock();
+        try {
+            return board.isGameOver();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the side to move.
+     *
+     * @return 'B' or 'W'
+     */
+    public char getTurn() {
+        lock.lock();
+        try {
+            return turn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the record of the game so far.
+     *
+     * @return a copy of the game record, which later moves of the session do not change
+     */
+    public GameRecord getRecord() {
+        lock.lock();
+        try {
+            return record.copy();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the time of the last operation on this session.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getLastActive() {
+        return lastActive;
+    }
+
+    private void touch() {
+        lastActive = System.currentTimeMillis();
+    }
+
+    // ============= Getters =============
+
+    public long getId() { return id; }
+
+    public Player getBlack() { return black; }
+
+    public Player getWhite() { return white; }
+}
@@ -0,0 +1,103 @@
+package ca.othello.othello_v3;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts games to and from the standard Othello transcript notation, e.g. "f5d6c3d3c4".
+ * Each move is a column letter (a-h) followed by a row number (1-8); on larger boards
+ * the letters go up to p and the numbers up to 16, e.g. "j10".
+ * Passes are not written; they are inferred when a transcript is parsed.
+ */
+public final class GameTranscript {
+
+    private GameTranscript() {
+    }
+
+    /**
+     * Convert a list of plies into a transcript.
+     *
+     * @param plies the plies of the game, passes as (-1, -1)
+     * @return the transcript, without passes
+     */
+    public static String toTranscript(List<Move> plies) {
+        StringBuilder transcript = new StringBuilder(plies.size() * 2);
+        for (Move ply : plies) {
+            if (!ply.isPass()) {
+                transcript.append(toNotation(ply));
+            }
+        }
+        return transcript.toString();
+    }
+
+    /**
+     * Convert a move into its square name.
+     *
+     * @param move the move
+     * @return the square name, e.g. "f5"
+     */
+    public static String toNotation(Move move) {
+        return String.valueOf((char) ('a' + move.getCol())) + (move.getRow() + 1);
+    }
+
+    /**
+     * Parse a transcript of an 8x8 game into the list of plies, inserting the passes.
+     *
+     * @param transcript the transcript to parse
+     * @return the plies of the game, passes as (-1, -1)
+     * @throws IllegalArgumentException if the transcript is malformed or contains an illegal move
+     * @see #parse(String, int)
+     */
+    public static List<Move> parse(String transcript) {
+        return parse(transcript, Board.DEFAULT_SIZE);
+    }
+
+    /**
+     * Parse a transcript into the list of plies, inserting the passes.
+     * Letters may be upper or lower case, and whitespace, commas and dashes between moves are ignored.
+     *
+     * @param transcript the transcript to parse
+     * @param size       the size of the board the game was played on
+     * @return the plies of the game, passes as (-1, -1)
+     * @throws IllegalArgumentException if the transcript is malformed or contains an illegal move
+     */
+    public static List<Move> parse(String transcript, int size) {
+        String squares = transcript.toLowerCase().replaceAll("[\\s,\\-]", "");
+
+        Board board = new Board(size);
+        List<Move> plies = new ArrayList<>(squares.length() / 2 + 4);
+        char turn = 'B';
+        int moveNumber = 0;
+        int i = 0;
+        while (i < squares.length()) {
+            moveNumber++;
+            // A letter, then one digit, or two if the board has that many rows
+            int start = i;
+            int col = squares.charAt(i++) - 'a';
+            int row = 0;
+            while (i < squares.length() && Character.isDigit(squares.charAt(i)) && i - start <= 2
+                    && (i == start + 1 || row * 10 + (squares.charAt(i) - '0') <= size)) {
+                row = row * 10 + (squares.charAt(i++) - '0');
+            }
+            row--;
+            if (i == start + 1 || col < 0 || col >= size || row < 0 || row >= size) {
+                throw new IllegalArgumentException("Invalid square \"" + squares.substring(start, Math.min(i + 1, squares.length()))
+                        + "\" in transcript.");
+            }
+
+            Move move = new Move(row, col);
+            char opponent = (turn == 'B') ? 'W' : 'B';
+            if (!board.isLegalMove(move, turn)) {
+                if (board.hasLegalMove(turn) || !board.isLegalMove(move, opponent)) {
+                    throw new IllegalArgumentException("Illegal move " + toNotation(move) + " at move " + moveNumber + ".");
+                }
+                plies.add(new Move(-1, -1));
+                turn = opponent;
+            }
+            board.makeMove(turn, move);
+            plies.add(move);
+            turn = (turn == 'B') ? 'W' : 'B';
+        }
+        return plies;
+    }
+}
@@ -0,0 +1,377 @@
+package ca.othello.othello_v3;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * The tree of variations from a position, for browsing them: the children of a node are generated only
+ * when the node is expanded, and each child is then scored by a search in the background.
+ * <p>
+ * Nodes hold a move, not a board; the position of a node is rebuilt by replaying the moves from the root
+ * when needed. The tree is kept within a budget of nodes: once an expansion takes it over the budget, or
+ * the heap is nearly full, the least recently used subtrees are collapsed (their children dropped, the scores
+ * of their roots kept) until it is back to 3/4 of the budget. The node being expanded and its ancestors are
+ * never collapsed. Pending searches of dropped nodes are cancelled.
+ * <p>
+ * The structure of the tree must only be changed from one thread (the FX thread for the explorer view);
+ * scores are set by the search threads and reported to a listener on those threads.
+ *
+ * @see GameTreeExplorer
+ */
+public class GameTree {
+
+    private static final Logger logger = Logger.getLogger(GameTree.class.getName());
+
+    /** Score of a node that has not been searched (yet). */
+    public static final int NO_SCORE = AnalysisService.NO_SCORE;
+
+    /** The default budget of nodes, about 200 bytes each; see the othello.explorer.nodes property. */
+    public static final int DEFAULT_MAX_NODES = Integer.getInteger("othello.explorer.nodes", 100_000);
+
+    // Share of the maximum heap above which subtrees are collapsed, whatever the number of nodes
+    private static final double HEAP_THRESHOLD = 0.8;
+
+    /**
+     * A position of the tree, reached by a move from its parent.
+     */
+    public static final class Node {
+        private final Node parent;
+        private final Move move;
+        private final char sideToMove;
+        private final int ply;
+        private List<Node> children;
+        private Runnable pendingSearch;
+        private volatile boolean dropped;
+        private volatile int score = NO_SCORE;
+        private volatile int scoreDepth;
+
+        private Node(Node parent, Move move, char sideToMove) {
+            this.parent = parent;
+            this.move = move;
+            this.sideToMove = sideToMove;
+            this.ply = parent == null ? 0 : parent.ply + 1;
+        }
+
+        /**
+         * Get the move leading to this node.
+         *
+         * @return the move, (-1, -1) for a pass, null for the root
+         */
+        public Move getMove() { return move; }
+
+        public Node getParent() { return parent; }
+
+        /**
+         * Get the player to move in the position of this node.
+         *
+         * @return 'B' or 'W'
+         */
+        public char getSideToMove() { return sideToMove; }
+
+        /**
+         * Get the number of moves from the root.
+         *
+         * @return 0 for the root
+         */
+        public int getPly() { return ply; }
+
+        /**
+         * Check whether the children of the node have been generated.
+         *
+         * @return true if the node is expanded (a node at the end of the game has no children once expanded)
+         */
+        public boolean isExpanded() { return children != null; }
+
+        /**
+         * Get the children of the node.
+         *
+         * @return the children, empty if the node is not expanded
+         */
+        public List<Node> getChildren() { return children == null ? List.of() : Collections.unmodifiableList(children); }
+
+        /**
+         * Get the score of the move leading to this node.
+         *
+         * @return the score from the point of view of the player who made the move, {@link #NO_SCORE} if not searched yet
+         */
+        public int getScore() { return score; }
+
+        /**
+         * Get the depth of the search that gave the score.
+         *
+         * @return the depth, 0 if not searched yet
+         */
+        public int getScoreDepth() { return scoreDepth; }
+
+        /**
+         * Get the moves from the root to this node.
+         *
+         * @return the moves, passes as (-1, -1); empty for the root
+         */
+        public List<Move> getLine() {
+            List<Move> line = new ArrayList<>(ply);
+            for (Node node = this; node.parent != null; node = node.parent) {
+                line.add(node.move);
+            }
+            Collections.reverse(line);
+            return line;
+        }
+    }
+
+    private final Board root;
+    private final Node rootNode;
+    private final int depth;
+    private final int maxNodes;
+    private final Consumer<Node> scoreListener;
+    private final ThreadPoolExecutor searches;
+    private final Set<IntelligentAI> running = ConcurrentHashMap.newKeySet();
+    // Expanded nodes, least recently used first
+    private final LinkedHashMap<Node, Boolean> expanded = new LinkedHashMap<>(16, 0.75f, true);
+    private Consumer<Node> collapseListener = node -> { };
+    private int nodeCount = 1;
+    private volatile boolean closed;
+
+    /**
+     * Constructor for a tree rooted at a position.
+     *
+     * @param board         the position of the root (copied)
+     * @param sideToMove    the player (character) to move at the root
+     * @param depth         the depth of the searches scoring the nodes
+     * @param maxNodes      the budget of nodes
+     * @param scoreListener called on a search thread each time a node gets its score
+     */
+    public GameTree(Board board, char sideToMove, int depth, int maxNodes, Consumer<Node> scoreListener) {
+        this.root = board.cloneBoard();
+        this.rootNode = new Node(null, null, sideToMove);
+        this.depth = depth;
+        this.maxNodes = maxNodes;
+        this.scoreListener = scoreListener;
+        int threads = Runtime.getRuntime().availableProcessors();
+        this.searches = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "game-tree-search");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Set the listener told about collapsed nodes, called on the thread that changes the tree.
+     *
+     * @param collapseListener receives each node whose children were dropped to stay within the budget
+     */
+    public void setCollapseListener(Consumer<Node> collapseListener) {
+        this.collapseListener = collapseListener;
+    }
+
+    public Node getRoot() { return rootNode; }
+
+    /**
+     * Get the number of nodes in the tree.
+     *
+     * @return the number of nodes, the root included
+     */
+    public int getNodeCount() { return nodeCount; }
+
+    /**
+     * Generate the children of a node, if not done yet, and queue their searches.
+     * Other subtrees may be collapsed to make room for them.
+     *
+     * @param node a node of the tree
+     * @return the children of the node, one per legal move, a single pass if the player must pass,
+     * none if the game is over
+     */
+    public List<Node> expand(Node node) {
+        if (node.dropped) {
+            throw new IllegalArgumentException("The node was dropped from the tree");
+        }
+        expanded.get(node);
+        if (node.children != null) {
+            return node.getChildren();
+        }
+        Board position = positionOf(node);
+        char opponent = node.sideToMove == 'B' ? 'W' : 'B';
+        List<Node> children = new ArrayList<>();
+        if (position.hasLegalMove(node.sideToMove)) {
+            for (Move move : position.getAllLegalMoves(node.sideToMove)) {
+                children.add(new Node(node, move, opponent));
+            }
+        } else if (position.hasLegalMove(opponent)) {
+            children.add(new Node(node, new Move(-1, -1), opponent));
+        }
+        node.children = children;
+        expanded.put(node, Boolean.TRUE);
+        nodeCount += children.size();
+        for (Node child : children) {
+            child.pendingSearch = () -> score(child);
+            searches.execute(child.pendingSearch);
+        }
+        if (nodeCount > maxNodes || heapNearlyFull()) {
+            shrink(node);
+        }
+        return node.getChildren();
+    }
+
+    /**
+     * Drop the children of a node and everything below them.
+     *
+     * @param node an expanded node of the tree
+     */
+    public void collapse(Node node) {
+        if (node.children == null) {
+            return;
+        }
+        expanded.remove(node);
+        for (Node child : node.children) {
+            drop(child);
+        }
+        nodeCount -= node.children.size();
+        node.children = null;
+    }
+
+    /**
+     * Mark a node as used, e.g. when it is selected, so its subtree is among the last to be collapsed.
+     *
+     * @param node a node of the tree
+     */
+    public void touch(Node node) {
+        for (Node ancestor = node; ancestor != null; ancestor = ancestor.parent) {
+            expanded.get(ancestor);
+        }
+    }
+
+    /**
+     * Rebuild the position of a node. Can be called from any thread.
+     *
+     * @param node a node of the tree
+     * @return a new board holding the position of the node
+     */
+    public Board positionOf(Node node) {
+        Board board = root.cloneBoard();
+        char side = rootNode.sideToMove;
+        for (Move move : node.getLine()) {
+            if (!move.isPass()) {
+                board.makeMove(side, move);
+            }
+            side = (side == 'B') ? 'W' : 'B';
+        }
+        return board;
+    }
+
+    /**
+     * Stop the searches and release their threads.
+     */
+    public void shutdown() {
+        closed = true;
+        searches.shutdownNow();
+        for (IntelligentAI ai : running) {
+            ai.stop();
+        }
+    }
+
+    /**
+     * Collapse the least recently used subtrees until the tree is back to 3/4 of its budget,
+     * or has lost half of its nodes if the heap is nearly full.
+     *
+     * @param keep the node whose path from the root must stay
+     */
+    private void shrink(Node keep) {
+        Set<Node> path = new HashSet<>();
+        for (Node ancestor = keep; ancestor != null; ancestor = ancestor.parent) {
+            path.add(ancestor);
+        }
+        int target = maxNodes / 4 * 3;
+        if (heapNearlyFull()) {
+            target = Math.min(target, nodeCount / 2);
+        }
+        int before = nodeCount;
+        while (nodeCount > target) {
+            Node victim = null;
+            for (Iterator<Node> nodes = expanded.keySet().iterator(); nodes.hasNext() && victim == null; ) {
+                Node node = nodes.next();
+                if (!path.contains(node)) {
+                    victim = node;
+                }
+            }
+            if (victim == null) {
+                break;
+            }
+            collapse(victim);
+            collapseListener.accept(victim);
+        }
+        logger.info("Game tree shrunk from " + before + " to " + nodeCount + " nodes.");
+    }
+
+    // Forget a node and its subtree, cancelling their searches
+    private void drop(Node node) {
+        node.dropped = true;
+        if (node.pendingSearch != null) {
+            searches.remove(node.pendingSearch);
+            node.pendingSearch = null;
+        }
+        if (node.children != null) {
+            expanded.remove(node);
+            for (Node child : node.children) {
+                drop(child);
+            }
+            nodeCount -= node.children.size();
+            node.children = null;
+        }
+    }
+
+    /**
+     * Search the move of a node from its parent's position and store the score.
+     *
+     * @param node the node to score
+     */
+    private void score(Node node) {
+        node.pendingSearch = null;
+        if (node.dropped || closed) {
+            return;
+        }
+        Board position = positionOf(node.parent);
+        char mover = node.parent.sideToMove;
+        int score;
+        if (node.move.isPass()) {
+            // Nothing to search: a pass is forced
+            score = Evaluator.POSITIONAL.evaluate(position, mover);
+        } else {
+            IntelligentAI ai = new IntelligentAI(mover, depth);
+            running.add(ai);
+            try {
+                score = ai.scoreMove(position, node.move);
+                if (ai.isStopped()) {
+                    return;
+                }
+            } finally {
+                running.remove(ai);
+            }
+        }
+        if (node.dropped || closed) {
+            return;
+        }
+        node.scoreDepth = depth;
+        node.score = score;
+        try {
+            scoreListener.accept(node);
+        } catch (RuntimeException e) {
+            logger.warning("Game tree listener failed: " + e);
+        }
+    }
+
+    private static boolean heapNearlyFull() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory() > HEAP_THRESHOLD * runtime.maxMemory();
+    }
+}
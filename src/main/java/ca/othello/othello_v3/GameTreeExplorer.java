@@ -0,0 +1,207 @@
+package ca.othello.othello_v3;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
+import javafx.scene.control.TreeCell;
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeView;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A window for browsing the variations from a position, as a tree of moves: expanding a move lists the
+ * replies to it, each with its score once searched in the background, and selecting a move shows the
+ * position it leads to.
+ * <p>
+ * The items of the tree view are created only when their parent is expanded, and the subtrees that
+ * {@link GameTree} collapses to stay within its budget are collapsed in the view too, so a long session
+ * keeps a bounded number of nodes and items.
+ *
+ * @see GameTree
+ */
+public class GameTreeExplorer {
+
+    private static final int PREVIEW_PIXELS = 240;
+
+    private final GameTree tree;
+    private final Stage stage;
+    private final TreeView<GameTree.Node> view;
+    private final Canvas preview = new Canvas(PREVIEW_PIXELS, PREVIEW_PIXELS);
+    private final Label line = new Label();
+    private final Label nodes = new Label();
+    // Items whose children have been created, by node
+    private final Map<GameTree.Node, NodeItem> loaded = new HashMap<>();
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+    /**
+     * Constructor for an explorer of a position; call {@link #show()} to open it.
+     *
+     * @param owner      the window the explorer belongs to
+     * @param board      the position to explore (copied)
+     * @param sideToMove the player (character) to move
+     * @param depth      the depth of the searches scoring the moves
+     */
+    public GameTreeExplorer(Window owner, Board board, char sideToMove, int depth) {
+        this.tree = new GameTree(board, sideToMove, depth, GameTree.DEFAULT_MAX_NODES, node -> scoreChanged());
+        tree.setCollapseListener(this::collapsed);
+
+        view = new TreeView<>(new NodeItem(tree.getRoot()));
+        view.setCellFactory(v -> new TreeCell<>() {
+            @Override
+            protected void updateItem(GameTree.Node node, boolean empty) {
+                super.updateItem(node, empty);
+                setText(empty || node == null ? null : describe(node));
+            }
+        });
+        view.getRoot().setExpanded(true);
+        view.getSelectionModel().selectedItemProperty().addListener((obs, old, item) -> select(item));
+
+        line.setWrapText(true);
+        VBox details = new VBox(10, preview, line, nodes);
+        details.setPadding(new Insets(10));
+        details.setPrefWidth(PREVIEW_PIXELS + 20);
+        BorderPane pane = new BorderPane(view);
+        pane.setRight(details);
+
+        stage = new Stage();
+        stage.initOwner(owner);
+        stage.setTitle("Variations");
+        stage.setScene(new Scene(pane, 560, 420));
+        stage.setOnHidden(e -> tree.shutdown());
+        view.getSelectionModel().select(view.getRoot());
+    }
+
+    /**
+     * Open the window.
+     */
+    public void show() {
+        stage.show();
+    }
+
+    /**
+     * A tree item whose children are created from the node's when first asked for.
+     */
+    private final class NodeItem extends TreeItem<GameTree.Node> {
+        private boolean childrenLoaded;
+
+        private NodeItem(GameTree.Node node) {
+            super(node);
+        }
+
+        @Override
+        public boolean isLeaf() {
+            // Unknown until expanded; an expanded node without children is the end of the game
+            return childrenLoaded && super.getChildren().isEmpty();
+        }
+
+        @Override
+        public ObservableList<TreeItem<GameTree.Node>> getChildren() {
+            if (!childrenLoaded) {
+                childrenLoaded = true;
+                loaded.put(getValue(), this);
+                ObservableList<TreeItem<GameTree.Node>> children = super.getChildren();
+                for (GameTree.Node child : tree.expand(getValue())) {
+                    children.add(new NodeItem(child));
+                }
+                updateNodeCount();
+            }
+            return super.getChildren();
+        }
+
+        // Drop the items below this one, whose nodes the tree dropped
+        private void unload() {
+            loaded.remove(getValue());
+            for (TreeItem<GameTree.Node> child : super.getChildren()) {
+                NodeItem item = (NodeItem) child;
+                if (item.childrenLoaded) {
+                    item.unload();
+                }
+            }
+            setExpanded(false);
+            childrenLoaded = false;
+            super.getChildren().clear();
+        }
+    }
+
+    private void collapsed(GameTree.Node node) {
+        NodeItem item = loaded.get(node);
+        if (item != null) {
+            item.unload();
+        }
+    }
+
+    private void select(TreeItem<GameTree.Node> item) {
+        if (item == null) {
+            return;
+        }
+        GameTree.Node node = item.getValue();
+        tree.touch(node);
+        drawPreview(tree.positionOf(node));
+        StringBuilder text = new StringBuilder();
+        for (Move move : node.getLine()) {
+            text.append(move.isPass() ? "--" : GameTranscript.toNotation(move)).append(' ');
+        }
+        line.setText(node.getPly() == 0 ? "Starting position" : text.toString().trim());
+    }
+
+    // Called on the search threads: one refresh of the visible cells for any number of scores
+    private void scoreChanged() {
+        if (refreshPending.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                refreshPending.set(false);
+                view.refresh();
+            });
+        }
+    }
+
+    private void updateNodeCount() {
+        nodes.setText(tree.getNodeCount() + " positions in the tree");
+    }
+
+    private static String describe(GameTree.Node node) {
+        if (node.getMove() == null) {
+            return (node.getSideToMove() == 'B' ? "Black" : "White") + " to move";
+        }
+        String move = node.getMove().isPass() ? "pass" : GameTranscript.toNotation(node.getMove());
+        String mover = node.getSideToMove() == 'B' ? "W " : "B ";
+        int score = node.getScore();
+        if (score == GameTree.NO_SCORE) {
+            return mover + move + "   ...";
+        }
+        return mover + move + "   " + (score > 0 ? "+" : "") + score + " (depth " + node.getScoreDepth() + ")";
+    }
+
+    private void drawPreview(Board board) {
+        int size = board.getSize();
+        double cell = (double) PREVIEW_PIXELS / size;
+        GraphicsContext g = preview.getGraphicsContext2D();
+        g.setFill(Color.DARKGREEN);
+        g.fillRect(0, 0, PREVIEW_PIXELS, PREVIEW_PIXELS);
+        g.setStroke(Color.BLACK);
+        for (int i = 0; i <= size; i++) {
+            g.strokeLine(i * cell, 0, i * cell, PREVIEW_PIXELS);
+            g.strokeLine(0, i * cell, PREVIEW_PIXELS, i * cell);
+        }
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                char piece = board.getPiece(new Move(row, col));
+                if (piece != ' ') {
+                    g.setFill(piece == 'B' ? Color.BLACK : Color.WHITE);
+                    g.fillOval(col * cell + 2, row * cell + 2, cell - 4, cell - 4);
+                }
+            }
+        }
+    }
+}
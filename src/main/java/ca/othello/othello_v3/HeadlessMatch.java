@@ -0,0 +1,94 @@
+package ca.othello.othello_v3;
+
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * An AI-vs-AI game played without any UI on its own board.
+ * Every ply is published to a {@link SpectatorFeed} as soon as it is chosen,
+ * so the game can be watched while it is still being played.
+ * A depth of 0 makes that side play random legal moves (the "Weak" AI).
+ */
+public class HeadlessMatch implements Runnable {
+
+    private static final Logger logger = Logger.getLogger(HeadlessMatch.class.getName());
+
+    private final Board board = new Board();
+    private final SpectatorFeed feed;
+    private final int blackDepth;
+    private final int whiteDepth;
+    private final Random random = new Random();
+    private final GameRecord record = new GameRecord("Black AI", "White AI");
+    private volatile boolean cancelled;
+
+    /**
+     * Constructor for a headless match.
+     *
+     * @param feed       the feed that receives every ply
+     * @param blackDepth the search depth of the black AI, 0 for random moves
+     * @param whiteDepth the search depth of the white AI, 0 for random moves
+     */
+    public HeadlessMatch(SpectatorFeed feed, int blackDepth, int whiteDepth) {
+        this.feed = feed;
+        this.blackDepth = blackDepth;
+        this.whiteDepth = whiteDepth;
+        record.setEngine('B', blackDepth == 0 ? GameRecord.ENGINE_RANDOM : GameRecord.ENGINE_MINIMAX, blackDepth);
+        record.setEngine('W', whiteDepth == 0 ? GameRecord.ENGINE_RANDOM : GameRecord.ENGINE_MINIMAX, whiteDepth);
+    }
+
+    /**
+     * Play the game to the end (or until cancelled), then finish the feed.
+     */
+    @Override
+    public void run() {
+        char turn = 'B';
+        try {
+            while (!cancelled && !board.isGameOver()) {
+                Move ply = board.hasLegalMove(turn) ? chooseMove(turn) : new Move(-1, -1);
+                if (!ply.isPass()) {
+                    board.makeMove(turn, ply);
+                }
+                record.addPly(ply);
+                feed.publish(ply);
+                turn = (turn == 'B') ? 'W' : 'B';
+            }
+        } finally {
+            record.setResult(board);
+            feed.finish();
+        }
+        logger.info("Headless match " + (cancelled ? "cancelled." : "finished."));
+    }
+
+    /**
+     * Get the record of the match, complete once the feed is finished.
+     *
+     * @return the game record
+     */
+    public GameRecord getRecord() {
+        return record;
+    }
+
+    /**
+     * Stop the match after the ply currently being searched.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Choose the move for the given side according to its depth.
+     *
+     * @param turn the player (character) to move
+     * @return the chosen move
+     */
+    private Move chooseMove(char turn) {
+        int depth = (turn == 'B') ? blackDepth : whiteDepth;
+        if (depth == 0) {
+            List<Move> legalMoves = board.getAllLegalMoves(turn);
+            return legalMoves.get(random.nextInt(legalMoves.size()));
+        }
+        int[] best = new IntelligentAI(turn, depth).getBestMove(board);
+        return new Move(best[0], best[1]);
+    }
+}
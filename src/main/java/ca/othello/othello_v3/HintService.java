@@ -0,0 +1,141 @@
+package ca.othello.othello_v3;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Best-move hints for a human player. As soon as it is the player's turn, {@link #prepare(Board, char)} searches
+ * the position in the background for at most {@link #BUDGET_MS}, so that the hint is ready by the time it is asked for;
+ * {@link #request(Board, char, Consumer)} then answers at once, or as soon as the search ends.
+ * <p>
+ * Searches go through the shared {@link PositionCache}, so a position hinted before (in this session or an earlier one)
+ * is answered without searching, and keep a transposition table from one hint to the next.
+ * Hints are delivered on the search thread; callers hand them to their UI thread.
+ */
+public class HintService {
+
+    private static final Logger logger = Logger.getLogger(HintService.class.getName());
+
+    /** The longest a hint is searched for, in milliseconds. */
+    public static final long BUDGET_MS = 50;
+
+    private static final int TABLE_BITS = 18;
+
+    /**
+     * The move hinted for a position.
+     *
+     * @param move  the best move found
+     * @param score the score of the move, from the point of view of the player to move
+     */
+    public record Hint(Move move, int score) {
+    }
+
+    private final ExecutorService searcher;
+    private final TranspositionTable table = new TranspositionTable(TABLE_BITS);
+
+    // The position of the hint being prepared or ready, guarded by this
+    private long positionKey;
+    private int generation;
+    private Hint ready;
+    private Consumer<Hint> waiting;
+
+    public HintService() {
+        this.searcher = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "hint-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start searching the hint of a position, unless it is already prepared.
+     * The search of any other position is abandoned.
+     *
+     * @param board      the position (copied)
+     * @param sideToMove the player (character) to move, who must have a legal move
+     */
+    public synchronized void prepare(Board board, char sideToMove) {
+        long key = board.getHash(sideToMove);
+        if (key == positionKey && generation > 0) {
+            return;
+        }
+        positionKey = key;
+        ready = null;
+        waiting = null;
+        int searchGeneration = ++generation;
+        Board copy = board.cloneBoard();
+        searcher.execute(() -> search(copy, sideToMove, searchGeneration));
+    }
+
+    /**
+     * Get the hint of a position: at once if it is ready, otherwise when its search ends.
+     * Only the last request waits; a new position abandons it.
+     *
+     * @param board      the position
+     * @param sideToMove the player (character) to move, who must have a legal move
+     * @param consumer   receives the hint, on the calling thread or on the search thread
+     */
+    public void request(Board board, char sideToMove, Consumer<Hint> consumer) {
+        Hint hint;
+        synchronized (this) {
+            prepare(board, sideToMove);
+            hint = ready;
+            if (hint == null) {
+                waiting = consumer;
+            }
+        }
+        if (hint != null) {
+            consumer.accept(hint);
+        }
+    }
+
+    /**
+     * Abandon the hint being prepared, e.g. when it is no longer a human's turn.
+     */
+    public synchronized void cancel() {
+        generation++;
+        positionKey = 0;
+        ready = null;
+        waiting = null;
+    }
+
+    /**
+     * Stop the search thread.
+     */
+    public void shutdown() {
+        cancel();
+        searcher.shutdownNow();
+    }
+
+    private void search(Board board, char sideToMove, int searchGeneration) {
+        synchronized (this) {
+            if (searchGeneration != generation) {
+                return;
+            }
+        }
+        long start = System.nanoTime();
+        IntelligentAI ai = new IntelligentAI(sideToMove, 1);
+        ai.setTranspositionTable(table);
+        ai.setPositionCache(PositionCache.getShared());
+        int[] best = ai.getBestMove(board, BUDGET_MS);
+        if (best == null) {
+            return;
+        }
+        Hint hint = new Hint(new Move(best[0], best[1]), ai.getBestScore());
+        Consumer<Hint> consumer;
+        synchronized (this) {
+            if (searchGeneration != generation) {
+                return;
+            }
+            ready = hint;
+            consumer = waiting;
+            waiting = null;
+        }
+        logger.fine("Hint ready in " + (System.nanoTime() - start) / 1000 + " us: " + GameTranscript.toNotation(hint.move()) + ".");
+        if (consumer != null) {
+            consumer.accept(hint);
+        }
+    }
+}
@@ -1,16 +1,77 @@
 package ca.othello.othello_v3;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 /**
  * This class represents an intelligent AI that plays Othello.
  * It uses the Minimax algorithm with alpha-beta pruning to determine the best move.
  */
-public class IntelligentAI {
+public class IntelligentAI implements Engine {
     private char player;
     private char opponent;
     private int depth;
     private int[] bestMove;
     private int bestScore;
 
+    // Principal variation: pvTable[ply] holds the best line found from that ply, as row * size + col (-1 for a pass)
+    private static final int PASS = -1;
+    private int[][] pvTable;
+    private int[] pvLength;
+    private int ply;
+    private int size = Board.DEFAULT_SIZE;
+
+    // Legal moves of each ply, as bit sets of the board's squares
+    private long[][] moveSets;
+    private volatile boolean stopped;
+
+    // Limits: the node limit is checked at every node, the clock only every 64 nodes
+    private static final long NO_TIME_LIMIT = -1;
+    private long deadline = Long.MAX_VALUE;
+    private long nodeStop = Long.MAX_VALUE;
+    private boolean limitReached;
+    private long nodes;
+    private long nodeLimit;
+    private long timeLimitMs;
+
+    // Style of play
+    private Evaluator evaluator = Evaluator.POSITIONAL;
+    private int noise;
+    private int choices = 1;
+    private OpeningBook book;
+    private Random random = new Random();
+
+    // Deterministic mode: a private table cleared at each move and randomness seeded by the position
+    private static final int PRIVATE_TABLE_BITS = 16;
+    // The time budget in the cache keys of deterministic answers, which do not depend on the clock
+    private static final long DETERMINISTIC_BUDGET = -1;
+    private boolean deterministic;
+    private TranspositionTable privateTable;
+
+    // Stability cutoffs, on 8x8 boards only
+    private static final int SQUARES = Board.DEFAULT_SIZE * Board.DEFAULT_SIZE;
+
+    // Shared search results; scores are from this.player's point of view, so the key includes the perspective
+    private static final long WHITE_PERSPECTIVE = 0x9E3779B97F4A7C15L;
+    private static final long EVALUATOR_KEY = 0xC2B2AE3D27D4EB4FL;
+    private long evaluatorKey;
+    private TranspositionTable table;
+    private PositionCache cache;
+
+    private static final Histogram thinkTime = Metrics.histogram(Metrics.AI_THINK_TIME, "us");
+    private static final Histogram nodesPerMove = Metrics.histogram(Metrics.AI_NODES, "nodes");
+
+    /**
+     * A move with its exact score and its best line, as ranked by {@link #getTopMoves(Board, int)}.
+     *
+     * @param move  The move.
+     * @param score The score of the board after the move, from the AI's point of view.
+     * @param line  The principal variation, starting with the move; passes as (-1, -1).
+     */
+    public record ScoredMove(Move move, int score, List<Move> line) {
+    }
+
     /**
      * Constructor for the IntelligentAI class.
      *
@@ -27,16 +88,535 @@ public class IntelligentAI {
 
     /**
      * Gets the best move for the AI to make on the given board.
+     * Without node or time limit, the board is searched to the depth of the AI;
+     * otherwise it is searched one ply deeper at a time up to that depth, until a limit is reached.
+     * In deterministic mode, the move depends only on the board and the settings.
      *
      * @param board The current board state.
      * @return The best move as an array of two integers.
      * @see Board
      * @see #max(Board, int, int, int)
+     * @see #setNodeLimit(long)
+     * @see #setTimeLimit(long)
      */
+    @Override
     public int[] getBestMove(Board board) {
+        this.size = board.getSize();
+        long start = System.nanoTime();
+        long startNodes = this.nodes;
+        long budgetMs = deterministic ? 0 : this.timeLimitMs;
+        // A deterministic search always gives the same answer, which is cached apart from those of searches sharing a table
+        PositionCache.Key key = cacheKey(board, this.depth, deterministic ? DETERMINISTIC_BUDGET : budgetMs);
+        TranspositionTable sharedTable = this.table;
+        if (deterministic) {
+            startDeterministicMove(board);
+        }
+        try {
+            if (!useCachedResult(board, key) && !useBookMove(board)) {
+                if (this.choices > 1) {
+                    chooseTopMove(board);
+                } else if (this.nodeLimit == 0 && budgetMs == 0) {
+                    search(board);
+                    if (key != null && !stopped && pvLength[0] > 0 && pvTable[0][0] != PASS) {
+                        cache.put(key, new PositionCache.Result(pvTable[0][0], this.bestScore));
+                    }
+                } else {
+                    deepen(board, this.depth, budgetMs > 0 ? budgetMs : NO_TIME_LIMIT, key);
+                }
+            }
+        } finally {
+            this.table = sharedTable;
+        }
+        thinkTime.recordSince(start);
+        nodesPerMove.record(this.nodes - startNodes);
+        return this.bestMove;
+    }
+
+    /**
+     * Gets the best move found within a time budget, searching one ply deeper at a time
+     * and keeping the result of the deepest search completed in time.
+     * The first depth is always completed, so a legal move is returned even with a tiny budget,
+     * unless a node limit stops it first.
+     *
+     * @param board        The current board state.
+     * @param timeBudgetMs The time the search may take, in milliseconds.
+     * @return The best move as an array of two integers, or null if the AI has no legal move.
+     * @see #getBestMove(Board)
+     */
+    @Override
+    public int[] getBestMove(Board board, long timeBudgetMs) {
+        if (!board.hasLegalMove(this.player)) {
+            return null;
+        }
+        this.size = board.getSize();
+        long start = System.nanoTime();
+        long startNodes = this.nodes;
+        PositionCache.Key key = cacheKey(board, 0, timeBudgetMs);
+        if (!useCachedResult(board, key) && !useBookMove(board)) {
+            int emptySquares = board.getSize() * board.getSize() - board.getScore('B') - board.getScore('W');
+            deepen(board, Math.max(1, emptySquares), Math.max(0, timeBudgetMs), key);
+        }
+        thinkTime.recordSince(start);
+        nodesPerMove.record(this.nodes - startNodes);
+        return this.bestMove.clone();
+    }
+
+    /**
+     * Searches the board to the depth of the AI.
+     *
+     * @param board The current board state.
+     * @see #max(Board, int, int, int)
+     */
+    private void search(Board board) {
         Board clonedBoard = board.cloneBoard();
+        startSearch(this.depth, clonedBoard);
         this.bestScore = max(clonedBoard, this.depth, Integer.MIN_VALUE, Integer.MAX_VALUE);
-        return this.bestMove;
+    }
+
+    /**
+     * Searches the board one ply deeper at a time, keeping the result of the deepest search completed within the limits.
+     * The time budget starts once the first depth is completed. If the node limit stops the first depth,
+     * the best move among those searched is kept, or the first legal move if none was.
+     *
+     * @param board    The current board state.
+     * @param maxDepth The deepest search to run.
+     * @param budgetMs The time budget, 0 to stop after the first depth, {@link #NO_TIME_LIMIT} for none.
+     * @param key      The key of the answer in the cache, or null to not cache it.
+     */
+    private void deepen(Board board, int maxDepth, long budgetMs, PositionCache.Key key) {
+        int originalDepth = this.depth;
+        int[] completedMove = null;
+        int completedScore = 0;
+        boolean completed = false;
+        this.nodeStop = this.nodeLimit > 0 ? this.nodes + this.nodeLimit : Long.MAX_VALUE;
+
+        for (int d = 1; d <= maxDepth && !stopped; d++) {
+            this.depth = d;
+            search(board);
+            if (limitReached || stopped) {
+                if (completedMove == null && pvLength[0] > 0 && pvTable[0][0] != PASS) {
+                    completedMove = this.bestMove.clone();
+                    completedScore = this.bestScore;
+                }
+                break;
+            }
+            completedMove = this.bestMove.clone();
+            completedScore = this.bestScore;
+            completed = true;
+            if (d == 1 && budgetMs != NO_TIME_LIMIT) {
+                this.deadline = System.nanoTime() + budgetMs * 1_000_000L;
+            }
+        }
+        if (completedMove == null) {
+            List<Move> legalMoves = board.getAllLegalMoves(this.player);
+            if (!legalMoves.isEmpty()) {
+                completedMove = new int[]{legalMoves.get(0).getRow(), legalMoves.get(0).getCol()};
+            }
+        }
+
+        this.depth = originalDepth;
+        this.deadline = Long.MAX_VALUE;
+        this.nodeStop = Long.MAX_VALUE;
+        this.limitReached = false;
+        this.bestScore = completedScore;
+        if (completedMove != null) {
+            this.bestMove = completedMove;
+            if (key != null && completed && !stopped) {
+                cache.put(key, new PositionCache.Result(completedMove[0] * size + completedMove[1], completedScore));
+            }
+        }
+    }
+
+    /**
+     * Builds the key of an answer in the cache, from the position and every setting that changes the answer.
+     *
+     * @param board    The current board state.
+     * @param depth    The depth of the search.
+     * @param budgetMs The time budget of the search, 0 for none, {@link #DETERMINISTIC_BUDGET} in deterministic mode.
+     * @return The key, or null if there is no cache or the answers are randomised.
+     */
+    private PositionCache.Key cacheKey(Board board, int depth, long budgetMs) {
+        if (cache == null || noise > 0 || choices > 1) {
+            return null;
+        }
+        return new PositionCache.Key(board.getHash(this.player), depth, budgetMs, nodeLimit, evaluator.getCacheId());
+    }
+
+    /**
+     * Takes the best move and score from the cache, if it holds a legal answer for the position.
+     *
+     * @param board The current board state.
+     * @param key   The position and settings of the search, or null if the cache is not used.
+     * @return true if the cached answer was taken, false if the board must be searched.
+     */
+    private boolean useCachedResult(Board board, PositionCache.Key key) {
+        PositionCache.Result cached = key != null ? cache.get(key) : null;
+        if (cached == null || !board.isLegalMove(new Move(cached.square() / size, cached.square() % size), this.player)) {
+            return false;
+        }
+        useMove(cached.square(), cached.score());
+        return true;
+    }
+
+    /**
+     * Takes a move from the opening book, if the AI uses one and the position is in it.
+     *
+     * @param board The current board state.
+     * @return true if a book move was taken, false if the board must be searched.
+     */
+    private boolean useBookMove(Board board) {
+        Move move = book != null ? book.pick(board, this.player, random) : null;
+        if (move == null) {
+            return false;
+        }
+        useMove(move.getRow() * size + move.getCol(), 0);
+        return true;
+    }
+
+    /**
+     * Makes a move found without searching the result of the search.
+     *
+     * @param square The move as row * size + col.
+     * @param score  The score of the move.
+     */
+    private void useMove(int square, int score) {
+        startSearch(0, null);
+        this.pvTable[0][0] = square;
+        this.pvLength[0] = 1;
+        this.bestMove = new int[]{square / size, square % size};
+        this.bestScore = score;
+    }
+
+    /**
+     * Puts the AI in a state that depends only on the board: an empty private transposition table,
+     * and a random generator seeded by the position.
+     *
+     * @param board The current board state.
+     */
+    private void startDeterministicMove(Board board) {
+        if (privateTable == null) {
+            privateTable = new TranspositionTable(PRIVATE_TABLE_BITS);
+        } else {
+            privateTable.clear();
+        }
+        this.table = privateTable;
+        this.random.setSeed(board.getHash(this.player));
+    }
+
+    /**
+     * Sets the deterministic mode of {@link #getBestMove(Board)}, for reproducible cost and results:
+     * the time limit and the shared transposition table are ignored, and the noise and book choices are seeded
+     * by the position. With a node limit, the move and the number of nodes searched are then the same on any machine.
+     * As the answer of a position never changes, it is kept in the position cache, under a key of its own:
+     * a position met again is answered from the cache, without searching any node.
+     *
+     * @param deterministic true for deterministic mode.
+     * @see #setNodeLimit(long)
+     */
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+    }
+
+    /**
+     * Sets the maximum number of positions a move may search. The limit is exact: the search stops at that node.
+     *
+     * @param nodeLimit The limit, 0 for none.
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * Sets the time budget of a move for {@link #getBestMove(Board)}.
+     *
+     * @param timeLimitMs The budget in milliseconds, 0 for none.
+     */
+    public void setTimeLimit(long timeLimitMs) {
+        this.timeLimitMs = timeLimitMs;
+    }
+
+    /**
+     * Sets the function scoring the positions at the end of the search.
+     *
+     * @param evaluator The evaluator.
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Sets the amount of randomness of the choice: a random value between -noise and noise
+     * is added to the score of each move before the best is chosen.
+     *
+     * @param noise The largest random value, 0 to always choose the best move.
+     */
+    public void setNoise(int noise) {
+        this.noise = noise;
+    }
+
+    /**
+     * Sets how many of its best moves the AI chooses from: the moves are ranked by {@link #getTopMoves(Board, int)},
+     * and each is half as likely to be played as the one before it, so the best move is played about half the time.
+     * Unlike the noise, the choice costs a single search and never picks a move far below the ones ranked.
+     *
+     * @param choices The number of moves to choose from, 1 to always choose the best move.
+     */
+    public void setChoices(int choices) {
+        this.choices = Math.max(1, choices);
+    }
+
+    /**
+     * Sets the opening book the moves are taken from while the position is in it.
+     *
+     * @param book The book, or null to always search.
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Sets the transposition table the searches read and write, which may be shared with other AIs and threads.
+     *
+     * @param table The table, or null to search without one.
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Sets the cache of answers consulted before searching and filled after each completed search.
+     *
+     * @param cache The cache, usually {@link PositionCache#getShared()}, or null to always search.
+     */
+    public void setPositionCache(PositionCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Gets the number of positions visited by the searches of this AI.
+     *
+     * @return The number of nodes searched.
+     */
+    public long getNodesSearched() {
+        return this.nodes;
+    }
+
+    /**
+     * Computes the exact score of one move for the AI, searched to the depth of the AI.
+     * The principal variation of the move is available afterwards from {@link #getPrincipalVariation()}.
+     *
+     * @param board The current board state.
+     * @param move  A legal move of the AI on the board.
+     * @return The score of the board after the move, from the AI's point of view.
+     * @see #min(Board, int, int, int)
+     */
+    public int scoreMove(Board board, Move move) {
+        this.size = board.getSize();
+        Board clonedBoard = board.cloneBoard();
+        startSearch(this.depth, clonedBoard);
+        clonedBoard.makeMove(this.player, move);
+        this.ply = 1;
+        int score = min(clonedBoard, this.depth - 1, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        storePv(0, move.getRow() * size + move.getCol());
+        return score;
+    }
+
+    /**
+     * Ranks the best moves of the AI with their exact scores and principal variations, searched to the depth
+     * of the AI one ply deeper at a time, within its node and time limits (the result of the deepest search
+     * completed is kept). Each move is searched once per depth, in the window from the score of the K-th best
+     * move found so far to +infinity: a move that cannot enter the top K fails low, cut off as soon as that is known,
+     * the others come back with their exact score. The transposition table of the AI is used, or a private one
+     * if none was set, so each depth is ordered and cut by the previous ones.
+     *
+     * @param board The current board state.
+     * @param k     The number of moves wanted.
+     * @return Up to K legal moves, best first; empty if the AI has no legal move.
+     * @see #setTranspositionTable(TranspositionTable)
+     */
+    public List<ScoredMove> getTopMoves(Board board, int k) {
+        this.size = board.getSize();
+        TranspositionTable sharedTable = this.table;
+        if (deterministic) {
+            startDeterministicMove(board);
+        } else if (this.table == null) {
+            if (privateTable == null) {
+                privateTable = new TranspositionTable(PRIVATE_TABLE_BITS);
+            }
+            this.table = privateTable;
+        }
+        try {
+            return rankMoves(board, k);
+        } finally {
+            this.table = sharedTable;
+        }
+    }
+
+    /**
+     * Ranks the best moves by iterative deepening, see {@link #getTopMoves(Board, int)}.
+     *
+     * @param board The current board state.
+     * @param k     The number of moves wanted.
+     * @return Up to K moves, best first.
+     */
+    private List<ScoredMove> rankMoves(Board board, int k) {
+        // The caller's board may be in use elsewhere, and move generation on large boards shares scratch space
+        Board clonedBoard = board.cloneBoard();
+        long[] legalMoves = new long[clonedBoard.getBitSetWords()];
+        int count = clonedBoard.fillLegalMoves(this.player, legalMoves);
+        if (count == 0 || k <= 0) {
+            return List.of();
+        }
+        int[] order = new int[count];
+        for (int w = 0, n = 0; w < legalMoves.length; w++) {
+            for (long bits = legalMoves[w]; bits != 0; bits &= bits - 1) {
+                order[n++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+
+        long budgetMs = deterministic ? 0 : this.timeLimitMs;
+        this.nodeStop = this.nodeLimit > 0 ? this.nodes + this.nodeLimit : Long.MAX_VALUE;
+        List<ScoredMove> completed = List.of();
+        try {
+            for (int d = 1; d <= this.depth && !stopped; d++) {
+                List<ScoredMove> ranked = new ArrayList<>(Math.min(k, count) + 1);
+                boolean complete = rankRoot(clonedBoard, order, k, d, ranked);
+                if (!complete) {
+                    // A cut-short first depth still ranks the moves it got to
+                    if (completed.isEmpty()) {
+                        completed = ranked;
+                    }
+                    break;
+                }
+                completed = ranked;
+                // The next depth searches the ranked moves first, so the K-th score is known early
+                int n = 0;
+                for (ScoredMove move : ranked) {
+                    int square = move.move().getRow() * size + move.move().getCol();
+                    for (int i = n; i < order.length; i++) {
+                        if (order[i] == square) {
+                            System.arraycopy(order, n, order, n + 1, i - n);
+                            order[n++] = square;
+                            break;
+                        }
+                    }
+                }
+                if (d == 1 && budgetMs > 0) {
+                    this.deadline = System.nanoTime() + budgetMs * 1_000_000L;
+                }
+            }
+        } finally {
+            this.deadline = Long.MAX_VALUE;
+            this.nodeStop = Long.MAX_VALUE;
+            this.limitReached = false;
+        }
+        return completed;
+    }
+
+    /**
+     * Searches the moves of the root to one depth, keeping the K best with their exact scores.
+     * Each move is searched with alpha at the score of the K-th best move so far and beta at +infinity,
+     * so a move that cannot enter the top K fails low.
+     *
+     * @param board  The current board state, a copy the moves are played on and taken back.
+     * @param order  The legal moves, in the order to search them.
+     * @param k      The number of moves wanted.
+     * @param depth  The depth of the search.
+     * @param ranked Receives the best moves, best first.
+     * @return true if every move was searched, false if the search was stopped or reached a limit.
+     */
+    private boolean rankRoot(Board board, int[] order, int k, int depth, List<ScoredMove> ranked) {
+        startSearch(depth, board);
+        for (int square : order) {
+            int alpha = ranked.size() < k ? Integer.MIN_VALUE : ranked.get(k - 1).score();
+            board.makeMove(this.player, square);
+            this.ply = 1;
+            int score = min(board, depth - 1, alpha, Integer.MAX_VALUE);
+            this.ply = 0;
+            board.unmakeMove();
+            if (limitReached || stopped) {
+                return false;
+            }
+            if (alpha == Integer.MIN_VALUE || score > alpha) {
+                storePv(0, square);
+                int rank = 0;
+                while (rank < ranked.size() && ranked.get(rank).score() >= score) {
+                    rank++;
+                }
+                ranked.add(rank, new ScoredMove(new Move(square / size, square % size), score, getPrincipalVariation()));
+                if (ranked.size() > k) {
+                    ranked.remove(k);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Plays one of the best moves, each half as likely as the one before it, see {@link #setChoices(int)}.
+     *
+     * @param board The current board state.
+     */
+    private void chooseTopMove(Board board) {
+        List<ScoredMove> ranked = getTopMoves(board, this.choices);
+        if (ranked.isEmpty()) {
+            // The node limit stopped the first depth before any move was ranked: the first legal move, as deepen does
+            List<Move> legalMoves = board.getAllLegalMoves(this.player);
+            if (!legalMoves.isEmpty()) {
+                startSearch(0, null);
+                this.bestMove = new int[]{legalMoves.get(0).getRow(), legalMoves.get(0).getCol()};
+                this.bestScore = 0;
+            }
+            return;
+        }
+        int n = ranked.size();
+        int draw = random.nextInt((1 << n) - 1);
+        int pick = 0;
+        while (draw >= 1 << (n - 1 - pick)) {
+            draw -= 1 << (n - 1 - pick);
+            pick++;
+        }
+        ScoredMove chosen = ranked.get(pick);
+        startSearch(0, null);
+        List<Move> line = chosen.line();
+        for (int i = 0; i < line.size() && i < pvTable[0].length; i++) {
+            Move move = line.get(i);
+            pvTable[0][i] = move.isPass() ? PASS : move.getRow() * size + move.getCol();
+            pvLength[0] = i + 1;
+        }
+        this.bestMove = new int[]{chosen.move().getRow(), chosen.move().getCol()};
+        this.bestScore = chosen.score();
+    }
+
+    /**
+     * Gets the principal variation of the last search, starting with the best move.
+     *
+     * @return The moves of the best line, passes as (-1, -1).
+     */
+    public List<Move> getPrincipalVariation() {
+        List<Move> line = new ArrayList<>(pvLength[0]);
+        for (int i = 0; i < pvLength[0]; i++) {
+            int square = pvTable[0][i];
+            line.add(square == PASS ? new Move(-1, -1) : new Move(square / size, square % size));
+        }
+        return line;
+    }
+
+    /**
+     * Stops the search in progress as soon as possible; its result must then be ignored.
+     * Can be called from any thread.
+     */
+    public void stop() {
+        this.stopped = true;
+    }
+
+    /**
+     * Checks whether the search was stopped before completing.
+     *
+     * @return true if {@link #stop()} was called, false otherwise.
+     */
+    public boolean isStopped() {
+        return this.stopped;
     }
 
     /**
@@ -62,42 +642,91 @@ public class IntelligentAI {
      * @see #getBestMove(Board)
      */
     private int max(Board board, int depth, int alpha, int beta) {
-        if (depth == 0 || board.isGameOver()) {
-            return board.evaluate(this.player);
+        pvLength[ply] = ply;
+        if (shouldStop() || depth == 0 || board.isGameOver()) {
+            return evaluator.evaluate(board, this.player);
+        }
+        if (ply > 0 && reachesEnd(board, depth)) {
+            // The opponent's stable discs are still theirs at the end: the score cannot rise above what is left
+            long opp = board.getBitBoard(this.opponent);
+            int scale = evaluator.getEndgameScale();
+            if (scale * (SQUARES - 2 * Long.bitCount(opp)) <= alpha) {
+                int bound = scale * (SQUARES - 2 * Long.bitCount(Stability.stableDiscs(opp, board.getBitBoard(this.player))));
+                if (bound <= alpha) {
+                    return bound;
+                }
+            }
         }
 
+        long key = tableKey(board, this.player);
+        long entry = table != null ? table.probe(key) : 0L;
+        if (entry != 0 && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+            int score = TranspositionTable.score(entry);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && score >= beta)
+                    || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                return score;
+            }
+        }
+        int firstMove = entry != 0 ? TranspositionTable.move(entry) : TranspositionTable.NO_MOVE;
+        int originalAlpha = alpha;
+
         int maxScore = Integer.MIN_VALUE;
+        int bestSquare = TranspositionTable.NO_MOVE;
         boolean moveFound = false;
 
-        for (int i = 0; i < board.getSize(); i++) {
-            for (int j = 0; j < board.getSize(); j++) {
-                if (board.isLegalMove(new Move(i, j), this.player)) {
-                    moveFound = true;
+        // The best move of a previous search of the position goes first, then the squares in order
+        long[] moves = moveSets[ply];
+        board.fillLegalMoves(this.player, moves);
+        firstMove = takeFirstMove(moves, firstMove);
+        for (int w = -1; w < moves.length; w++) {
+            for (long bits = w < 0 ? firstMoveBit(firstMove) : moves[w]; bits != 0; bits &= bits - 1) {
+                int square = w < 0 ? firstMove : (w << 6) + Long.numberOfTrailingZeros(bits);
+                int i = square / size;
+                int j = square % size;
+                moveFound = true;
 
-                    board.makeMove(this.player, new Move(i, j));
-                    int score = min(board, depth - 1, alpha, beta);
-                    board.undoMove(new Move(i, j));
+                board.makeMove(this.player, square);
+                ply++;
+                int score = min(board, depth - 1, alpha, beta);
+                ply--;
+                board.unmakeMove();
+                if (limitReached || stopped) {
+                    break;
+                }
 
-                    if (score > maxScore) {
-                        maxScore = score;
-                        if (depth == this.depth) {
-                            this.bestMove[0] = i;
-                            this.bestMove[1] = j;
-                        }
-                    }
-                    alpha = Math.max(alpha, score);
-                    if (beta <= alpha) {
-                        break;
+                int ranked = (ply == 0 && noise > 0) ? score + random.nextInt(2 * noise + 1) - noise : score;
+                if (ranked > maxScore) {
+                    maxScore = ranked;
+                    bestSquare = square;
+                    storePv(ply, square);
+                    if (ply == 0) {
+                        this.bestMove[0] = i;
+                        this.bestMove[1] = j;
                     }
                 }
+                alpha = Math.max(alpha, score);
+                if (beta <= alpha) {
+                    break;
+                }
+            }
+            if (beta <= alpha || limitReached || stopped) {
+                break;
             }
         }
 
         if (!moveFound) {
+            ply++;
             int score = min(board, depth, alpha, beta);
+            ply--;
             maxScore = Math.max(maxScore, score);
+            storePv(ply, PASS);
         }
 
+        if (ply > 0 || noise == 0) {
+            storeResult(key, maxScore, depth, originalAlpha, beta, bestSquare);
+        }
         return maxScore;
     }
 
@@ -115,37 +744,197 @@ public class IntelligentAI {
      * @see #getBestMove(Board)
      */
     private int min(Board board, int depth, int alpha, int beta) {
-        if (depth == 0 || board.isGameOver()) {
-            return board.evaluate(this.player);
+        pvLength[ply] = ply;
+        if (shouldStop() || depth == 0 || board.isGameOver()) {
+            return evaluator.evaluate(board, this.player);
+        }
+        if (ply > 0 && reachesEnd(board, depth)) {
+            // The player's stable discs are still theirs at the end: the score cannot fall below them
+            long own = board.getBitBoard(this.player);
+            int scale = evaluator.getEndgameScale();
+            if (scale * (2 * Long.bitCount(own) - SQUARES) >= beta) {
+                int bound = scale * (2 * Long.bitCount(Stability.stableDiscs(own, board.getBitBoard(this.opponent))) - SQUARES);
+                if (bound >= beta) {
+                    return bound;
+                }
+            }
+        }
+
+        long key = tableKey(board, this.opponent);
+        long entry = table != null ? table.probe(key) : 0L;
+        if (entry != 0 && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+            int score = TranspositionTable.score(entry);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && score >= beta)
+                    || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                return score;
+            }
         }
+        int firstMove = entry != 0 ? TranspositionTable.move(entry) : TranspositionTable.NO_MOVE;
+        int originalBeta = beta;
+
         int minScore = Integer.MAX_VALUE;
+        int bestSquare = TranspositionTable.NO_MOVE;
         boolean moveFound = false;
 
-        for (int i = 0; i < board.getSize(); i++) {
-            for (int j = 0; j < board.getSize(); j++) {
-                if (board.isLegalMove(new Move(i, j), this.opponent)) {
-                    moveFound = true;
+        long[] moves = moveSets[ply];
+        board.fillLegalMoves(this.opponent, moves);
+        firstMove = takeFirstMove(moves, firstMove);
+        for (int w = -1; w < moves.length; w++) {
+            for (long bits = w < 0 ? firstMoveBit(firstMove) : moves[w]; bits != 0; bits &= bits - 1) {
+                int square = w < 0 ? firstMove : (w << 6) + Long.numberOfTrailingZeros(bits);
+                moveFound = true;
 
-                    board.makeMove(this.opponent, new Move(i, j));
-                    int score = max(board, depth - 1, alpha, beta);
-                    board.undoMove(new Move(i, j));
+                board.makeMove(this.opponent, square);
+                ply++;
+                int score = max(board, depth - 1, alpha, beta);
+                ply--;
+                board.unmakeMove();
+                if (limitReached || stopped) {
+                    break;
+                }
 
-                    if (score < minScore) {
-                        minScore = score;
-                    }
-                    beta = Math.min(beta, score);
-                    if (beta <= alpha) {
-                        break;
-                    }
+                if (score < minScore) {
+                    minScore = score;
+                    bestSquare = square;
+                    storePv(ply, square);
                 }
+                beta = Math.min(beta, score);
+                if (beta <= alpha) {
+                    break;
+                }
+            }
+            if (beta <= alpha || limitReached || stopped) {
+                break;
             }
         }
 
         if (!moveFound) {
+            ply++;
             int score = max(board, depth, alpha, beta);
+            ply--;
             minScore = Math.min(minScore, score);
+            storePv(ply, PASS);
         }
+
+        storeResult(key, minScore, depth, alpha, originalBeta, bestSquare);
         return minScore;
     }
 
+    /**
+     * Checks whether every line searched from a node ends the game, on an 8x8 board whose finished games the evaluator
+     * scores by their discs, so the stable discs bound the score of the node.
+     *
+     * @param board The current board state.
+     * @param depth The depth left to search.
+     * @return true if stability cutoffs are sound at the node.
+     * @see Evaluator#getEndgameScale()
+     */
+    private boolean reachesEnd(Board board, int depth) {
+        return size == Board.DEFAULT_SIZE && evaluator.getEndgameScale() > 0
+                && depth >= SQUARES - Long.bitCount(board.getBitBoard('B') | board.getBitBoard('W'));
+    }
+
+    /**
+     * Computes the transposition table key of a position: the position, the side to move, the point of view of the scores
+     * and the evaluator, with its settings (e.g. tuned weights) as of the start of the search.
+     *
+     * @param board      The current board state.
+     * @param sideToMove The player to move.
+     * @return The key of the position.
+     */
+    private long tableKey(Board board, char sideToMove) {
+        return board.getHash(sideToMove) ^ (this.player == 'W' ? WHITE_PERSPECTIVE : 0L)
+                ^ evaluatorKey;
+    }
+
+    /**
+     * Stores the result of a node in the transposition table, unless the search was cut short.
+     *
+     * @param key        The key of the position.
+     * @param score      The score found.
+     * @param depth      The depth searched.
+     * @param alpha      The alpha value the node was entered with.
+     * @param beta       The beta value the node was entered with.
+     * @param bestSquare The best move as row * size + col, or NO_MOVE.
+     */
+    private void storeResult(long key, int score, int depth, int alpha, int beta, int bestSquare) {
+        if (table == null || limitReached || stopped) {
+            return;
+        }
+        int bound = score <= alpha ? TranspositionTable.UPPER
+                : score >= beta ? TranspositionTable.LOWER
+                : TranspositionTable.EXACT;
+        table.store(key, score, depth, bound, bestSquare);
+    }
+
+    /**
+     * Counts a node and checks whether the search must stop, because it was stopped or reached a limit.
+     *
+     * @return true if the search must stop, false otherwise.
+     */
+    private boolean shouldStop() {
+        if (++nodes >= nodeStop || ((nodes & 63) == 0 && System.nanoTime() > deadline)) {
+            limitReached = true;
+        }
+        return limitReached || stopped;
+    }
+
+    /**
+     * Prepares the principal variation table and the move sets for a search of the given depth.
+     * A line holds at most one pass per move, so its length is bounded by twice the depth.
+     *
+     * @param depth The depth of the search.
+     * @param board The board searched, or null if no search follows.
+     */
+    private void startSearch(int depth, Board board) {
+        int maxPly = 2 * depth + 2;
+        if (pvTable == null || pvTable.length < maxPly) {
+            pvTable = new int[maxPly][maxPly];
+            pvLength = new int[maxPly];
+        }
+        if (board != null && (moveSets == null || moveSets.length < maxPly || moveSets[0].length != board.getBitSetWords())) {
+            moveSets = new long[maxPly][board.getBitSetWords()];
+        }
+        this.ply = 0;
+        this.pvLength[0] = 0;
+        // Once per search, as the cache id of tuned weights is a hash of all of them
+        this.evaluatorKey = evaluator.getCacheId() * EVALUATOR_KEY;
+    }
+
+    /**
+     * Removes the move of the transposition table from the legal moves, to search it first.
+     *
+     * @param moves     The legal moves, as a bit set.
+     * @param firstMove The move of the transposition table, or NO_MOVE.
+     * @return The move to search first, or NO_MOVE if it is not legal.
+     */
+    private static int takeFirstMove(long[] moves, int firstMove) {
+        if (firstMove == TranspositionTable.NO_MOVE || (firstMove >>> 6) >= moves.length
+                || (moves[firstMove >>> 6] & (1L << firstMove)) == 0) {
+            return TranspositionTable.NO_MOVE;
+        }
+        moves[firstMove >>> 6] &= ~(1L << firstMove);
+        return firstMove;
+    }
+
+    // A single bit, so that the first round of the move loop runs once for the first move
+    private static long firstMoveBit(int firstMove) {
+        return firstMove == TranspositionTable.NO_MOVE ? 0L : 1L;
+    }
+
+    /**
+     * Records a new best move at the given ply, followed by the best line of the next ply.
+     *
+     * @param ply    The ply of the move.
+     * @param square The move as row * size + col, or -1 for a pass.
+     */
+    private void storePv(int ply, int square) {
+        pvTable[ply][ply] = square;
+        int childLength = pvLength[ply + 1];
+        System.arraycopy(pvTable[ply + 1], ply + 1, pvTable[ply], ply + 1, childLength - ply - 1);
+        pvLength[ply] = Math.max(childLength, ply + 1);
+    }
+
 }
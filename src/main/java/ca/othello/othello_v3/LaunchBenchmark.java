@@ -0,0 +1,104 @@
+package ca.othello.othello_v3;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares launches of the application image with and without its class-data sharing archive
+ * (built by the appcds profile): each run starts a {@link ScriptedLaunch} in a new process and reads its timings,
+ * the runs with and without the archive taking turns, and the median of each timing is reported:
+ * <pre>
+ * mvn -Pappcds package
+ * java -cp target/classes ca.othello.othello_v3.LaunchBenchmark [image=target/othello] [runs=5] [--headless]
+ * </pre>
+ * Each timing is the time from starting the process to reading its line, as the start time the operating system
+ * gives a process is too coarse to compare launches. With the archive, the runs use -Xshare:on, so they fail
+ * rather than silently run without it.
+ */
+public class LaunchBenchmark {
+
+    private static final String[] TIMINGS = {
+            ScriptedLaunch.MAIN, ScriptedLaunch.FIRST_FRAME, ScriptedLaunch.FIRST_AI_MOVE, ScriptedLaunch.FINISHED};
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        boolean headless = options.remove("--headless");
+        Path image = Path.of(options.size() > 0 ? options.get(0) : "target/othello");
+        int runs = options.size() > 1 ? Integer.parseInt(options.get(1)) : 5;
+        Path java = image.resolve("bin").resolve("java");
+        if (!Files.isExecutable(java)) {
+            System.err.println("No application image in " + image + ", build it with: mvn -Pappcds package");
+            System.exit(1);
+        }
+
+        Map<String, List<Long>> without = new HashMap<>();
+        Map<String, List<Long>> with = new HashMap<>();
+        for (int run = 0; run < runs; run++) {
+            launch(java, "-Xshare:off", headless, without);
+            launch(java, "-Xshare:on", headless, with);
+            System.out.printf("Run %d of %d%n", run + 1, runs);
+        }
+
+        System.out.printf("%-18s %12s %12s %8s%n", "median (ms)", "without CDS", "with CDS", "gain");
+        for (String timing : TIMINGS) {
+            long before = median(without.get(timing));
+            long after = median(with.get(timing));
+            if (before < 0 || after < 0) {
+                continue;
+            }
+            System.out.printf("%-18s %12d %12d %7.0f%%%n", timing, before, after, 100.0 * (before - after) / before);
+        }
+    }
+
+    /**
+     * Run the launch script once and collect its timings.
+     *
+     * @param java     the java launcher of the image
+     * @param share    the class-data sharing option
+     * @param headless true to run the script without the window
+     * @param timings  receives the timings, by name
+     */
+    private static void launch(Path java, String share, boolean headless, Map<String, List<Long>> timings)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(java.toString(), share,
+                "-m", "ca.othello.othello_v3/ca.othello.othello_v3.ScriptedLaunch"));
+        if (headless) {
+            command.add("--headless");
+        }
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> output = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.add(line);
+                if (line.startsWith(ScriptedLaunch.PREFIX)) {
+                    String name = line.substring(ScriptedLaunch.PREFIX.length(), line.indexOf('='));
+                    timings.computeIfAbsent(name, t -> new ArrayList<>()).add((System.nanoTime() - start) / 1_000_000);
+                }
+            }
+        }
+        if (process.waitFor() != 0) {
+            output.forEach(System.err::println);
+            throw new IllegalStateException("The launch with " + share + " failed with exit code " + process.exitValue());
+        }
+    }
+
+    private static long median(List<Long> values) {
+        if (values == null || values.isEmpty()) {
+            return -1;
+        }
+        List<Long> sorted = new ArrayList<>(values);
+        sorted.sort(null);
+        return sorted.get(sorted.size() / 2);
+    }
+}
@@ -0,0 +1,428 @@
+package ca.othello.othello_v3;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * An AI choosing its moves by Monte Carlo Tree Search: it plays many random games
+ * ({@link Playout playouts}) on bit boards, and grows a tree of the positions met, choosing which move to try next by UCT
+ * (the mean result of a move plus a bonus for moves tried less often).
+ * <ul>
+ *     <li>Several threads search the same tree. A thread going through a node counts its visit at once,
+ *     before the result is known (a virtual loss), which steers the other threads to other moves.</li>
+ *     <li>The nodes live in two pools of arrays allocated once: searching allocates nothing.</li>
+ *     <li>The tree is kept between moves: the part below the new position is moved to the
+ *     other pool and the search continues from it. An instance is meant to play one side of one game.</li>
+ * </ul>
+ * The playouts run on 8x8 bit boards, so only 8x8 games are supported.
+ *
+ * @see IntelligentAI
+ */
+public class MctsAI implements Engine {
+
+    private static final int PASS = 64;
+    private static final double EXPLORATION = 1.0;
+    private static final int MAX_PLIES = 128;
+    private static final long DEFAULT_PLAYOUTS = 20_000;
+
+    private final char player;
+    private final int threads;
+    private final long seed;
+    private Pool pool;
+    private Pool spare;
+    private final int[] copyQueue;
+    private long playoutLimit = DEFAULT_PLAYOUTS;
+
+    // The root of the tree and its position, the AI to move
+    private int root = -1;
+    private long rootOwn;
+    private long rootOpp;
+
+    // State of the search in progress
+    private final AtomicLong playouts = new AtomicLong();
+    private volatile long deadline;
+    private volatile boolean poolFull;
+    private long lastPlayouts;
+    private long searches;
+    private int reusedNodes;
+
+    /**
+     * The nodes of a tree, as parallel arrays. The children of a node are contiguous.
+     * Scores count 2 per win and 1 per draw for the player who moved into the node.
+     */
+    private static final class Pool {
+        static final int UNEXPANDED = 0;
+        static final int EXPANDING = 1;
+        static final int EXPANDED = 2;
+
+        final byte[] move;
+        final int[] firstChild;
+        final byte[] childCount;
+        final AtomicIntegerArray visits;
+        final AtomicLongArray score;
+        final AtomicIntegerArray state;
+        final AtomicInteger size = new AtomicInteger();
+
+        Pool(int capacity) {
+            move = new byte[capacity];
+            firstChild = new int[capacity];
+            childCount = new byte[capacity];
+            visits = new AtomicIntegerArray(capacity);
+            score = new AtomicLongArray(capacity);
+            state = new AtomicIntegerArray(capacity);
+        }
+
+        int capacity() {
+            return move.length;
+        }
+
+        int add(int square) {
+            int node = size.getAndIncrement();
+            init(node, square);
+            return node;
+        }
+
+        void init(int node, int square) {
+            move[node] = (byte) square;
+            childCount[node] = 0;
+            visits.set(node, 0);
+            score.set(node, 0);
+            state.set(node, UNEXPANDED);
+        }
+    }
+
+    /**
+     * Constructor for an AI searching with one thread per core and a tree of up to a million nodes.
+     *
+     * @param player The player character ('W' or 'B') that the AI will play as.
+     */
+    public MctsAI(char player) {
+        this(player, Runtime.getRuntime().availableProcessors(), 1 << 20, System.nanoTime());
+    }
+
+    /**
+     * Constructor for the MctsAI class.
+     *
+     * @param player   The player character ('W' or 'B') that the AI will play as.
+     * @param threads  The number of threads searching the tree.
+     * @param capacity The maximum number of nodes of the tree; two pools of this size are allocated, about 60 bytes per node in all.
+     * @param seed     The seed of the random playouts.
+     */
+    public MctsAI(char player, int threads, int capacity, long seed) {
+        this.player = player;
+        this.threads = Math.max(1, threads);
+        this.seed = seed;
+        this.pool = new Pool(capacity);
+        this.spare = new Pool(capacity);
+        this.copyQueue = new int[capacity];
+    }
+
+    /**
+     * Sets the number of playouts of {@link #getBestMove(Board)}.
+     *
+     * @param playouts The number of playouts per move.
+     */
+    public void setPlayoutLimit(long playouts) {
+        this.playoutLimit = playouts;
+    }
+
+    /**
+     * Gets the number of playouts of the last search.
+     *
+     * @return The number of playouts.
+     */
+    public long getPlayouts() {
+        return lastPlayouts;
+    }
+
+    /**
+     * Gets the number of nodes kept from the previous move's tree at the start of the last search.
+     *
+     * @return The number of nodes reused.
+     */
+    public int getReusedNodes() {
+        return reusedNodes;
+    }
+
+    /**
+     * Gets the number of nodes of the tree.
+     *
+     * @return The number of nodes.
+     */
+    public int getTreeSize() {
+        return pool.size.get();
+    }
+
+    /**
+     * Gets the best move after a fixed number of playouts.
+     *
+     * @param board The current board state.
+     * @return The best move as an array of two integers.
+     * @see #setPlayoutLimit(long)
+     */
+    @Override
+    public int[] getBestMove(Board board) {
+        return search(board, playoutLimit, Long.MAX_VALUE);
+    }
+
+    /**
+     * Gets the best move found by playouts within a time budget.
+     *
+     * @param board        The current board state.
+     * @param timeBudgetMs The time the search may take, in milliseconds.
+     * @return The best move as an array of two integers, or null if the AI has no legal move.
+     */
+    @Override
+    public int[] getBestMove(Board board, long timeBudgetMs) {
+        return search(board, Long.MAX_VALUE, System.nanoTime() + timeBudgetMs * 1_000_000L);
+    }
+
+    /**
+     * Runs the playouts from the board and chooses the most visited move.
+     */
+    private int[] search(Board board, long limit, long deadline) {
+        char opponent = (player == 'W') ? 'B' : 'W';
+        long own = board.getBitBoard(player);
+        long opp = board.getBitBoard(opponent);
+        if (BitBoard.legalMoves(own, opp) == 0) {
+            return null;
+        }
+        moveRoot(own, opp);
+        reusedNodes = pool.size.get();
+
+        this.deadline = deadline;
+        this.poolFull = false;
+        playouts.set(0);
+        long searchSeed = seed + 0xBF58476D1CE4E5B9L * searches++;
+        Thread[] helpers = new Thread[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            long workerSeed = searchSeed + 0x9E3779B97F4A7C15L * (i + 1);
+            helpers[i] = new Thread(() -> work(limit, workerSeed), "mcts-" + i);
+            helpers[i].setDaemon(true);
+            helpers[i].start();
+        }
+        work(limit, searchSeed);
+        for (Thread helper : helpers) {
+            try {
+                helper.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Each thread counted one playout it did not run before stopping
+        lastPlayouts = Math.min(playouts.get() - threads, limit);
+
+        int best = -1;
+        int first = pool.firstChild[root];
+        for (int child = first; child < first + pool.childCount[root]; child++) {
+            if (best < 0 || pool.visits.get(child) > pool.visits.get(best)) {
+                best = child;
+            }
+        }
+        int square = pool.move[best];
+        return new int[]{square / 8, square % 8};
+    }
+
+    /**
+     * The loop of one searching thread.
+     */
+    private void work(long limit, long workerSeed) {
+        Playout random = new Playout(workerSeed);
+        int[] path = new int[MAX_PLIES];
+        while (playouts.getAndIncrement() < limit && System.nanoTime() < deadline) {
+            playout(path, random);
+        }
+    }
+
+    /**
+     * One iteration: descend the tree by UCT, expand the leaf, play a random game from it and record the result.
+     */
+    private void playout(int[] path, Playout random) {
+        long own = rootOwn;
+        long opp = rootOpp;
+        int node = root;
+        int depth = 0;
+        path[0] = node;
+        pool.visits.incrementAndGet(node);
+
+        while (true) {
+            int state = pool.state.get(node);
+            if (state == Pool.UNEXPANDED && (node == root || pool.visits.get(node) > 1) && !poolFull
+                    && pool.state.compareAndSet(node, Pool.UNEXPANDED, Pool.EXPANDING)) {
+                expand(node, own, opp);
+                state = pool.state.get(node);
+            }
+            if (state != Pool.EXPANDED || pool.childCount[node] == 0) {
+                break;
+            }
+            node = select(node);
+            pool.visits.incrementAndGet(node);
+            int square = pool.move[node];
+            if (square != PASS) {
+                long flipped = FlipTables.flips(own, opp, square);
+                own |= flipped | (1L << square);
+                opp &= ~flipped;
+            }
+            long swap = own;
+            own = opp;
+            opp = swap;
+            path[++depth] = node;
+        }
+
+        // Random game from the leaf; the result is for the side to move at the leaf
+        boolean leafIsRoot = (depth & 1) == 0;
+        int difference = random.play(own, opp);
+        int leafResult = difference > 0 ? 2 : difference == 0 ? 1 : 0;
+        int rootResult = leafIsRoot ? leafResult : 2 - leafResult;
+
+        // The player who moved into path[i] is the side to move at path[i - 1]: the root player when i - 1 is even
+        for (int i = depth; i > 0; i--) {
+            pool.score.addAndGet(path[i], ((i - 1) & 1) == 0 ? rootResult : 2 - rootResult);
+        }
+    }
+
+    /**
+     * Choose the child with the best UCT value. Unvisited children come first.
+     */
+    private int select(int node) {
+        int first = pool.firstChild[node];
+        int count = pool.childCount[node];
+        double logVisits = Math.log(Math.max(1, pool.visits.get(node)));
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < first + count; child++) {
+            int visits = pool.visits.get(child);
+            if (visits == 0) {
+                return child;
+            }
+            double value = pool.score.get(child) / (2.0 * visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Create the children of a node: one per legal move, a single pass if only the opponent can move, none at the end of the game.
+     */
+    private void expand(int node, long own, long opp) {
+        long moves = BitBoard.legalMoves(own, opp);
+        int count = moves != 0 ? Long.bitCount(moves) : BitBoard.legalMoves(opp, own) != 0 ? 1 : 0;
+        int first = pool.size.getAndAdd(count);
+        if (first + count > pool.capacity()) {
+            poolFull = true;
+            pool.state.set(node, Pool.UNEXPANDED);
+            return;
+        }
+        if (moves == 0 && count == 1) {
+            pool.init(first, PASS);
+        }
+        int child = first;
+        for (long bits = moves; bits != 0; bits &= bits - 1) {
+            pool.init(child++, Long.numberOfTrailingZeros(bits));
+        }
+        pool.firstChild[node] = first;
+        pool.childCount[node] = (byte) count;
+        pool.state.set(node, Pool.EXPANDED);
+    }
+
+    /**
+     * Make the node of the new position the root, keeping its subtree, or start a new tree if it is not in the tree.
+     * The new position is searched among the positions two plies below the root, passes included.
+     */
+    private void moveRoot(long own, long opp) {
+        int found = -1;
+        if (root >= 0) {
+            found = own == rootOwn && opp == rootOpp ? root : -1;
+            int first = pool.firstChild[root];
+            for (int child = first; found < 0 && isExpanded(root) && child < first + pool.childCount[root]; child++) {
+                if (!isExpanded(child)) {
+                    continue;
+                }
+                long[] afterChild = play(rootOwn, rootOpp, pool.move[child]);
+                int grandFirst = pool.firstChild[child];
+                for (int grandChild = grandFirst; grandChild < grandFirst + pool.childCount[child]; grandChild++) {
+                    long[] position = play(afterChild[0], afterChild[1], pool.move[grandChild]);
+                    if (position[0] == own && position[1] == opp) {
+                        found = grandChild;
+                        break;
+                    }
+                }
+            }
+        }
+
+        spare.size.set(0);
+        if (found >= 0) {
+            root = copySubtree(found);
+        } else {
+            root = spare.add(PASS);
+        }
+        Pool swap = pool;
+        pool = spare;
+        spare = swap;
+        rootOwn = own;
+        rootOpp = opp;
+    }
+
+    private boolean isExpanded(int node) {
+        return pool.state.get(node) == Pool.EXPANDED;
+    }
+
+    /**
+     * Play a move (or a pass) and return the position from the other side's point of view: {own, opp}.
+     */
+    private static long[] play(long own, long opp, int square) {
+        if (square != PASS) {
+            long flipped = FlipTables.flips(own, opp, square);
+            own |= flipped | (1L << square);
+            opp &= ~flipped;
+        }
+        return new long[]{opp, own};
+    }
+
+    /**
+     * Copy the subtree of a node of the pool to the spare pool, breadth first so children stay contiguous.
+     *
+     * @return the index of the node in the spare pool
+     */
+    private int copySubtree(int node) {
+        int[] queue = copyQueue;
+        int newRoot = spare.add(pool.move[node]);
+        copyStats(node, newRoot);
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = node;
+        while (head < tail) {
+            int from = queue[head];
+            int to = head;
+            head++;
+            int count = isExpanded(from) ? pool.childCount[from] : 0;
+            if (count == 0) {
+                spare.state.set(to, isExpanded(from) ? Pool.EXPANDED : Pool.UNEXPANDED);
+                continue;
+            }
+            int first = spare.size.getAndAdd(count);
+            int oldFirst = pool.firstChild[from];
+            for (int k = 0; k < count; k++) {
+                spare.move[first + k] = pool.move[oldFirst + k];
+                copyStats(oldFirst + k, first + k);
+                queue[tail++] = oldFirst + k;
+            }
+            spare.firstChild[to] = first;
+            spare.childCount[to] = (byte) count;
+            spare.state.set(to, Pool.EXPANDED);
+        }
+        return newRoot;
+    }
+
+    private void copyStats(int from, int to) {
+        spare.childCount[to] = 0;
+        spare.visits.set(to, pool.visits.get(from));
+        spare.score.set(to, pool.score.get(from));
+        spare.state.set(to, Pool.UNEXPANDED);
+    }
+}
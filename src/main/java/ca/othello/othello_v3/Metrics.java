@@ -0,0 +1,187 @@
+package ca.othello.othello_v3;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * The process-wide registry of {@link Histogram}s, and their export as JSON or text.
+ * The JSON snapshot can be written to a file periodically, and is served by the METRICS command of {@link OthelloServer}.
+ * <p>
+ * Periodic export is configured by system properties:
+ * othello.metrics.file (the file, or "none" to disable) and othello.metrics.period (in milliseconds, 10000 by default).
+ */
+public final class Metrics {
+
+    private static final Logger logger = Logger.getLogger(Metrics.class.getName());
+
+    /**
+     * Time taken by the AI to choose a move, in microseconds.
+     */
+    public static final String AI_THINK_TIME = "ai.think.time";
+    /**
+     * Positions searched by the AI for one move.
+     */
+    public static final String AI_NODES = "ai.nodes";
+    /**
+     * Time from an AI move request to its answer, queueing included, in microseconds.
+     */
+    public static final String AI_REQUEST_LATENCY = "ai.request.latency";
+    /**
+     * Time taken to refresh the board on the screen, in microseconds.
+     */
+    public static final String UI_RENDER_TIME = "ui.render.time";
+    /**
+     * Flip animations still running when a new one starts.
+     */
+    public static final String UI_ANIMATION_BACKLOG = "ui.animation.backlog";
+    /**
+     * Plies waiting in the spectator feed at each frame.
+     */
+    public static final String SPECTATOR_BACKLOG = "ui.spectator.backlog";
+    /**
+     * Time from the start of the process to the first frame of the main window, in microseconds.
+     */
+    public static final String UI_STARTUP_TIME = "ui.startup.time";
+    /**
+     * Time taken by the first AI move of the process, in microseconds.
+     */
+    public static final String AI_FIRST_MOVE_TIME = "ai.first.move.time";
+
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService exporter;
+    private static Path exportFile;
+
+    private Metrics() {
+    }
+
+    /**
+     * Get the histogram of the given name, creating it on first use.
+     *
+     * @param name the name of the histogram
+     * @param unit the unit of the values, used when the histogram is created
+     * @return the histogram
+     */
+    public static Histogram histogram(String name, String unit) {
+        return histograms.computeIfAbsent(name, n -> new Histogram(n, unit));
+    }
+
+    /**
+     * Take a snapshot of every histogram.
+     *
+     * @return the snapshots, sorted by name
+     */
+    public static List<Histogram.Snapshot> snapshot() {
+        List<Histogram.Snapshot> snapshots = new ArrayList<>();
+        for (Histogram histogram : histograms.values()) {
+            snapshots.add(histogram.snapshot());
+        }
+        snapshots.sort(Comparator.comparing(Histogram.Snapshot::name));
+        return snapshots;
+    }
+
+    /**
+     * Export every histogram as one line of JSON.
+     *
+     * @return the JSON object, keyed by histogram name
+     */
+    public static String toJson() {
+        StringBuilder json = new StringBuilder("{\"time\":\"").append(Instant.now()).append('"');
+        for (Histogram.Snapshot s : snapshot()) {
+            json.append(String.format(Locale.ROOT,
+                    ",\"%s\":{\"unit\":\"%s\",\"count\":%d,\"mean\":%.1f,\"p50\":%d,\"p90\":%d,\"p99\":%d,\"p999\":%d,\"max\":%d}",
+                    s.name(), s.unit(), s.count(), s.mean(), s.p50(), s.p90(), s.p99(), s.p999(), s.max()));
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Export every histogram as a text table.
+     *
+     * @return one line per histogram
+     */
+    public static String toText() {
+        StringBuilder text = new StringBuilder(String.format("%-24s %5s %10s %10s %10s %10s %10s %10s%n",
+                "metric", "unit", "count", "mean", "p50", "p99", "p99.9", "max"));
+        for (Histogram.Snapshot s : snapshot()) {
+            text.append(String.format(Locale.ROOT, "%-24s %5s %10d %10.1f %10d %10d %10d %10d%n",
+                    s.name(), s.unit(), s.count(), s.mean(), s.p50(), s.p99(), s.p999(), s.max()));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Write the JSON snapshot to a file, replacing it atomically.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeTo(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, toJson() + System.lineSeparator(), StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Start writing the JSON snapshot to a file periodically, as configured by the system properties.
+     * Does nothing if the export is disabled or already started.
+     *
+     * @param defaultFile the file used when othello.metrics.file is not set
+     */
+    public static synchronized void startExport(Path defaultFile) {
+        String configured = System.getProperty("othello.metrics.file");
+        if (exporter != null || "none".equals(configured)) {
+            return;
+        }
+        Path file = configured != null ? Path.of(configured) : defaultFile;
+        long periodMs = Long.getLong("othello.metrics.period", 10_000L);
+
+        exporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        exportFile = file;
+        exporter.scheduleAtFixedRate(Metrics::export, periodMs, periodMs, TimeUnit.MILLISECONDS);
+        logger.info("Exporting metrics to " + file + " every " + periodMs + " ms.");
+    }
+
+    /**
+     * Stop the periodic export, then write a last snapshot.
+     */
+    public static synchronized void stopExport() {
+        if (exporter == null) {
+            return;
+        }
+        exporter.shutdown();
+        try {
+            exporter.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exporter = null;
+        export();
+    }
+
+    private static void export() {
+        try {
+            Files.createDirectories(exportFile.toAbsolutePath().getParent());
+            writeTo(exportFile);
+        } catch (IOException e) {
+            logger.warning("Could not export metrics to " + exportFile + ": " + e.getMessage());
+        }
+    }
+}
@@ -31,4 +31,11 @@ public class Move {
      * @return The column of the cell where the player wants to place their piece.
      */
     public int getCol() { return column; }
+
+    /**
+     * Check whether this move is a pass, i.e. the player placed no piece.
+     * Passes are represented as (-1, -1), the same way the history list records them.
+     * @return true if the move is a pass, false otherwise.
+     */
+    public boolean isPass() { return row == -1 && column == -1; }
 }
@@ -0,0 +1,172 @@
+package ca.othello.othello_v3;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how move generation scales with the size of the board: for each size, random positions
+ * are collected from random games, then the legal moves and the flips of every legal move are
+ * computed over and over with {@link WideBitBoard}, and with {@link Board} as the search does it
+ * (legal moves, then make and unmake each move):
+ * <pre>
+ * java ca.othello.othello_v3.MoveGenBenchmark [positions per size=2000] [rounds=50] [seed=1]
+ * </pre>
+ * On 8x8 the single long path of {@link BitBoard} is measured too, and the generic path on an 8x8
+ * board, so that the gain of the fast path can be read directly.
+ */
+public class MoveGenBenchmark {
+
+    private static final int[] SIZES = {6, 8, 10, 12, 14, 16};
+    private static final int WARM_UP_ROUNDS = 10;
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int positions = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        System.out.printf("%-7s %-13s %10s %12s %14s %14s%n",
+                "Size", "Path", "Moves/pos", "Movegen ns", "Flips ns/move", "Make+unmake ns");
+        for (int size : SIZES) {
+            Board[] boards = randomPositions(size, positions, new Random(seed));
+            int words = WideBitBoard.words(size);
+            long[][] own = new long[positions][];
+            long[][] opp = new long[positions][];
+            long legalMoves = 0;
+            for (int i = 0; i < positions; i++) {
+                own[i] = pieces(boards[i], 'B');
+                opp[i] = pieces(boards[i], 'W');
+                legalMoves += boards[i].getAllLegalMoves('B').size();
+            }
+            double movesPerPosition = (double) legalMoves / positions;
+
+            WideBitBoard wide = new WideBitBoard(size);
+            long[] moves = new long[words];
+            long[] flipped = new long[words];
+            for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+                runWide(wide, own, opp, moves, flipped, true);
+                runBoard(boards, moves);
+            }
+            long movegen = time(() -> { for (int r = 0; r < rounds; r++) runWide(wide, own, opp, moves, flipped, false); });
+            long all = time(() -> { for (int r = 0; r < rounds; r++) runWide(wide, own, opp, moves, flipped, true); });
+            long board = time(() -> { for (int r = 0; r < rounds; r++) runBoard(boards, moves); });
+            report(size, "WideBitBoard", movesPerPosition, movegen, all - movegen, -1,
+                    (long) positions * rounds, legalMoves * rounds);
+
+            if (size == Board.DEFAULT_SIZE) {
+                long[] own8 = new long[positions];
+                long[] opp8 = new long[positions];
+                for (int i = 0; i < positions; i++) {
+                    own8[i] = own[i][0];
+                    opp8[i] = opp[i][0];
+                }
+                for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+                    runBitBoard(own8, opp8, true);
+                }
+                long movegen8 = time(() -> { for (int r = 0; r < rounds; r++) runBitBoard(own8, opp8, false); });
+                long all8 = time(() -> { for (int r = 0; r < rounds; r++) runBitBoard(own8, opp8, true); });
+                report(size, "BitBoard", movesPerPosition, movegen8, all8 - movegen8, board,
+                        (long) positions * rounds, legalMoves * rounds);
+            } else {
+                report(size, "Board", movesPerPosition, -1, -1, board,
+                        (long) positions * rounds, legalMoves * rounds);
+            }
+        }
+        System.out.println("(checksum " + Long.toHexString(sink) + ")");
+    }
+
+    // Positions after a random number of random moves, with black to move and at least one legal move
+    private static Board[] randomPositions(int size, int count, Random random) {
+        Board[] boards = new Board[count];
+        int found = 0;
+        while (found < count) {
+            Board board = new Board(size);
+            int plies = 2 * random.nextInt(size * size / 2 - 2);
+            char side = 'B';
+            for (int ply = 0; ply < plies && !board.isGameOver(); ply++) {
+                List<Move> legalMoves = board.getAllLegalMoves(side);
+                if (!legalMoves.isEmpty()) {
+                    board.makeMove(side, legalMoves.get(random.nextInt(legalMoves.size())));
+                }
+                side = (side == 'B') ? 'W' : 'B';
+            }
+            if (side == 'B' && !board.getAllLegalMoves('B').isEmpty()) {
+                boards[found++] = board;
+            }
+        }
+        return boards;
+    }
+
+    private static long[] pieces(Board board, char player) {
+        int size = board.getSize();
+        long[] bits = new long[WideBitBoard.words(size)];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                if (board.getPiece(new Move(row, col)) == player) {
+                    int square = row * size + col;
+                    bits[square >>> 6] |= 1L << square;
+                }
+            }
+        }
+        return bits;
+    }
+
+    private static void runWide(WideBitBoard wide, long[][] own, long[][] opp, long[] moves, long[] flipped,
+                                boolean withFlips) {
+        long total = 0;
+        for (int i = 0; i < own.length; i++) {
+            total += wide.legalMoves(own[i], opp[i], moves);
+            if (withFlips) {
+                for (int w = 0; w < moves.length; w++) {
+                    for (long bits = moves[w]; bits != 0; bits &= bits - 1) {
+                        total += wide.flips(own[i], opp[i], (w << 6) + Long.numberOfTrailingZeros(bits), flipped);
+                    }
+                }
+            }
+        }
+        sink += total;
+    }
+
+    private static void runBitBoard(long[] own, long[] opp, boolean withFlips) {
+        long total = 0;
+        for (int i = 0; i < own.length; i++) {
+            long moves = BitBoard.legalMoves(own[i], opp[i]);
+            total += moves;
+            if (withFlips) {
+                for (long bits = moves; bits != 0; bits &= bits - 1) {
+                    total += BitBoard.flips(own[i], opp[i], Long.numberOfTrailingZeros(bits));
+                }
+            }
+        }
+        sink += total;
+    }
+
+    private static void runBoard(Board[] boards, long[] moves) {
+        long total = 0;
+        for (Board board : boards) {
+            total += board.fillLegalMoves('B', moves);
+            for (int w = 0; w < board.getBitSetWords(); w++) {
+                for (long bits = moves[w]; bits != 0; bits &= bits - 1) {
+                    total += board.makeMove('B', (w << 6) + Long.numberOfTrailingZeros(bits));
+                    board.unmakeMove();
+                }
+            }
+        }
+        sink += total;
+    }
+
+    private static long time(Runnable work) {
+        long begin = System.nanoTime();
+        work.run();
+        return System.nanoTime() - begin;
+    }
+
+    private static void report(int size, String path, double movesPerPosition,
+                               long movegenNanos, long flipsNanos, long boardNanos, long positions, long moves) {
+        System.out.printf("%-7s %-13s %10.1f %12s %14s %14s%n", size + "x" + size, path, movesPerPosition,
+                movegenNanos < 0 ? "-" : String.format("%.1f", (double) movegenNanos / positions),
+                flipsNanos < 0 ? "-" : String.format("%.1f", (double) flipsNanos / moves),
+                boardNanos < 0 ? "-" : String.format("%.1f", (double) boardNanos / moves));
+    }
+}
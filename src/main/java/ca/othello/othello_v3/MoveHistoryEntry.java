@@ -0,0 +1,93 @@
+package ca.othello.othello_v3;
+
+/**
+ * One ply of the move history: who played, where, how many pieces it flipped,
+ * and the scores of both players after it.
+ * Scores are carried over from the previous entry instead of being counted on the board,
+ * and the text shown in the history list is only built when a cell displays the entry.
+ */
+public class MoveHistoryEntry {
+
+    private final Player player;
+    private final byte row;
+    private final byte col;
+    private final short flips;
+    private final short blackScore;
+    private final short whiteScore;
+
+    private MoveHistoryEntry(Player player, int row, int col, int flips, int blackScore, int whiteScore) {
+        this.player = player;
+        this.row = (byte) row;
+        this.col = (byte) col;
+        this.flips = (short) flips;
+        this.blackScore = (short) blackScore;
+        this.whiteScore = (short) whiteScore;
+    }
+
+    /**
+     * Create the entry following the given one.
+     *
+     * @param previous the previous entry, or null for the first ply of the game
+     * @param player   the player who made the move
+     * @param move     the move, or (-1, -1) for a pass
+     * @param flips    the number of pieces flipped by the move
+     * @return the new entry, with the running scores updated
+     */
+    public static MoveHistoryEntry after(MoveHistoryEntry previous, Player player, Move move, int flips) {
+        int black = previous == null ? 2 : previous.blackScore;
+        int white = previous == null ? 2 : previous.whiteScore;
+        if (move.isPass()) {
+            return new MoveHistoryEntry(player, -1, -1, 0, black, white);
+        }
+        if (player.getColor() == 'B') {
+            black += flips + 1;
+            white -= flips;
+        } else {
+            white += flips + 1;
+            black -= flips;
+        }
+        return new MoveHistoryEntry(player, move.getRow(), move.getCol(), flips, black, white);
+    }
+
+    /**
+     * Get the move of this entry.
+     *
+     * @return the move, or (-1, -1) for a pass
+     */
+    public Move getMove() {
+        return new Move(row, col);
+    }
+
+    /**
+     * Check whether the player passed.
+     *
+     * @return true if this entry is a pass, false otherwise
+     */
+    public boolean isPass() {
+        return row < 0;
+    }
+
+    /**
+     * Build the text shown in the history list.
+     *
+     * @return the description of the move and the scores after it
+     */
+    public String describe() {
+        String moveDescription = isPass()
+                ? player.getName() + " passed."
+                : player.getName() + " played at: row " + row + ", col " + col;
+        return moveDescription + " | Scores => Black: " + blackScore + ", White: " + whiteScore;
+    }
+
+    // ============= Getters =============
+
+    public Player getPlayer() { return player; }
+
+    public char getColor() { return player.getColor(); }
+
+    public int getFlips() { return flips; }
+
+    public int getBlackScore() { return blackScore; }
+
+    public int getWhiteScore() { return whiteScore; }
+}
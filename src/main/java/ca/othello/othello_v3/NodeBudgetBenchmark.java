@@ -0,0 +1,84 @@
+package ca.othello.othello_v3;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plays games between two deterministic AIs limited to a number of nodes per move,
+ * from openings drawn from a seed, and reports:
+ * <ul>
+ *     <li>a checksum of every move played and the total number of nodes, which are the same on any machine
+ *     for the same arguments, so a change in them means the engine's behaviour changed;</li>
+ *     <li>the time per move and the nodes per second of this machine, to size capacity for a node budget.</li>
+ * </ul>
+ * <pre>
+ * java ca.othello.othello_v3.NodeBudgetBenchmark [nodesPerMove=20000] [games=20] [seed=1]
+ * </pre>
+ *
+ * @see IntelligentAI#setDeterministic(boolean)
+ */
+public class NodeBudgetBenchmark {
+
+    private static final int RANDOM_OPENING_PLIES = 6;
+
+    public static void main(String[] args) {
+        long nodeBudget = args.length > 0 ? Long.parseLong(args[0]) : 20_000;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        Logger.getLogger("").setLevel(Level.WARNING);
+
+        SplittableRandom random = new SplittableRandom(seed);
+        long checksum = 1;
+        long totalNodes = 0;
+        long[] moveMicros = new long[games * 64];
+        int moves = 0;
+        long start = System.nanoTime();
+
+        for (int game = 0; game < games; game++) {
+            Board board = new Board();
+            char side = 'B';
+            int ply = 0;
+            while (!board.isGameOver()) {
+                if (board.hasLegalMove(side)) {
+                    Move move;
+                    if (ply < RANDOM_OPENING_PLIES) {
+                        List<Move> legalMoves = board.getAllLegalMoves(side);
+                        move = legalMoves.get(random.nextInt(legalMoves.size()));
+                    } else {
+                        IntelligentAI ai = new IntelligentAI(side, 64);
+                        ai.setNodeLimit(nodeBudget);
+                        ai.setDeterministic(true);
+                        long moveStart = System.nanoTime();
+                        int[] best = ai.getBestMove(board);
+                        moveMicros[moves++] = (System.nanoTime() - moveStart) / 1000;
+                        totalNodes += ai.getNodesSearched();
+                        move = new Move(best[0], best[1]);
+                    }
+                    board.makeMove(side, move);
+                    checksum = checksum * 31 + move.getRow() * 8 + move.getCol();
+                } else {
+                    checksum = checksum * 31 + 64;
+                }
+                side = (side == 'B') ? 'W' : 'B';
+                ply++;
+            }
+            checksum = checksum * 31 + board.getScore('B');
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] sorted = Arrays.copyOf(moveMicros, moves);
+        Arrays.sort(sorted);
+        System.out.printf("Games:            %d, %d searched moves, %d nodes per move%n", games, moves, nodeBudget);
+        System.out.printf("Checksum:         %016x%n", checksum);
+        System.out.printf("Total nodes:      %d%n", totalNodes);
+        System.out.printf("Duration:         %.2f s (%.0f nodes per second)%n", seconds, totalNodes / seconds);
+        if (moves == 0) {
+            return;
+        }
+        System.out.printf("Time per move:    p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                sorted[moves / 2] / 1e3, sorted[Math.min(moves - 1, moves * 99 / 100)] / 1e3, sorted[moves - 1] / 1e3);
+    }
+}
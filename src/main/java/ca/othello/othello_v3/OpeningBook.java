@@ -0,0 +1,161 @@
+package ca.othello.othello_v3;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * Opening moves learned from game transcripts: for each position met in the transcripts,
+ * the moves played from it and how often.
+ * Each transcript is learned in its four symmetric forms (the symmetries of the initial position),
+ * so a line starting with f5 also answers d3, c4 and e6.
+ *
+ * @see GameTranscript
+ */
+public class OpeningBook {
+
+    private static final Logger logger = Logger.getLogger(OpeningBook.class.getName());
+
+    private static final String DEFAULT_RESOURCE = "opening-book.txt";
+    private static OpeningBook defaultBook;
+
+    // Position hash (side to move included) -> square (row * 8 + col) -> number of games
+    private final Map<Long, Map<Integer, Integer>> moves = new HashMap<>();
+
+    /**
+     * Get the book built from the transcripts bundled with the game, loaded on first use.
+     *
+     * @return the default book, empty if the transcripts cannot be read
+     */
+    public static synchronized OpeningBook getDefault() {
+        if (defaultBook == null) {
+            defaultBook = new OpeningBook();
+            try (InputStream in = OpeningBook.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+                if (in != null) {
+                    defaultBook.load(in);
+                }
+            } catch (IOException e) {
+                logger.warning("Could not read the opening book: " + e.getMessage());
+            }
+        }
+        return defaultBook;
+    }
+
+    /**
+     * Learn the transcripts of a stream, one per line; blank lines, lines starting with '#'
+     * and transcripts containing an illegal move are skipped.
+     *
+     * @param in the stream
+     * @throws IOException if the stream cannot be read
+     */
+    public void load(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+        String line;
+        int lines = 0;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                try {
+                    add(line);
+                    lines++;
+                } catch (IllegalArgumentException e) {
+                    logger.warning("Skipped opening line \"" + line + "\": " + e.getMessage());
+                }
+            }
+        }
+        logger.info("Opening book: " + lines + " lines, " + size() + " positions.");
+    }
+
+    /**
+     * Learn one transcript.
+     *
+     * @param transcript the transcript
+     * @throws IllegalArgumentException if the transcript contains an illegal move
+     */
+    public synchronized void add(String transcript) {
+        List<Move> plies = GameTranscript.parse(transcript);
+        for (int symmetry = 0; symmetry < 4; symmetry++) {
+            Board board = new Board();
+            char side = 'B';
+            for (Move ply : plies) {
+                if (!ply.isPass()) {
+                    Move move = transform(ply, symmetry);
+                    moves.computeIfAbsent(board.getHash(side), h -> new LinkedHashMap<>())
+                            .merge(move.getRow() * 8 + move.getCol(), 1, Integer::sum);
+                    board.makeMove(side, move);
+                }
+                side = (side == 'B') ? 'W' : 'B';
+            }
+        }
+    }
+
+    /**
+     * Choose a book move for a position, each move weighted by the number of games it was played in.
+     *
+     * @param board  the position
+     * @param side   the side to move
+     * @param random the source of the choice
+     * @return a legal book move, or null if the position is not in the book (always for boards other than 8x8)
+     */
+    public synchronized Move pick(Board board, char side, Random random) {
+        if (board.getSize() != Board.DEFAULT_SIZE) {
+            return null;
+        }
+        Map<Integer, Integer> candidates = moves.get(board.getHash(side));
+        if (candidates == null) {
+            return null;
+        }
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(candidates.entrySet());
+        int total = 0;
+        for (Map.Entry<Integer, Integer> entry : entries) {
+            total += entry.getValue();
+        }
+        int chosen = random.nextInt(total);
+        for (Map.Entry<Integer, Integer> entry : entries) {
+            chosen -= entry.getValue();
+            if (chosen < 0) {
+                Move move = new Move(entry.getKey() / 8, entry.getKey() % 8);
+                // A hash collision must not produce an illegal move
+                return board.isLegalMove(move, side) ? move : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the number of positions in the book.
+     *
+     * @return the number of positions
+     */
+    public synchronized int size() {
+        return moves.size();
+    }
+
+    /**
+     * Apply one of the four symmetries of the initial position to a move:
+     * identity, the two diagonal reflections and the half turn.
+     */
+    private static Move transform(Move move, int symmetry) {
+        int row = move.getRow();
+        int col = move.getCol();
+        switch (symmetry) {
+            case 1:
+                return new Move(col, row);
+            case 2:
+                return new Move(7 - col, 7 - row);
+            case 3:
+                return new Move(7 - row, 7 - col);
+            default:
+                return move;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ca.othello.othello_v3;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal blocking client of {@link OthelloServer}: sends one command and waits for its response.
+ * Running it plays a full AI-vs-AI game against a local server, which checks the protocol end to end.
+ */
+public class OthelloClient implements AutoCloseable {
+
+    private final Socket socket;
+    private final BufferedReader in;
+    private final PrintWriter out;
+
+    /**
+     * Connect to a server.
+     *
+     * @param host the host of the server
+     * @param port the port of the server
+     * @throws IOException if the connection fails
+     */
+    public OthelloClient(String host, int port) throws IOException {
+        this.socket = new Socket(host, port);
+        this.socket.setTcpNoDelay(true);
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        this.out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII), true);
+    }
+
+    /**
+     * Send a command and wait for the response.
+     *
+     * @param command the command line, without the newline
+     * @return the response line
+     * @throws IOException if the connection is closed
+     */
+    public String send(String command) throws IOException {
+        out.println(command);
+        String response = in.readLine();
+        if (response == null) {
+            throw new IOException("Connection closed by the server.");
+        }
+        return response;
+    }
+
+    /**
+     * Play a whole game where the server's AI chooses every move.
+     *
+     * @param budgetMs the time budget of each AI move
+     * @return the final GAMEOVER response
+     * @throws IOException if the connection fails or the server answers an error
+     */
+    public String playSelfGame(long budgetMs) throws IOException {
+        expect(send("NEW"), "OK");
+        while (true) {
+            String response = send("AI " + budgetMs);
+            if (response.startsWith("GAMEOVER")) {
+                return response;
+            }
+            expect(send("PLAY " + response.substring("MOVE ".length())), "OK");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private static void expect(String response, String expected) throws IOException {
+        if (!response.equals(expected)) {
+            throw new IOException("Unexpected response: " + response);
+        }
+    }
+
+    /**
+     * Play one AI-vs-AI game against a server.
+     *
+     * @param args optional host (default 127.0.0.1), port (default 5555) and budget per move in ms (default 50)
+     * @throws IOException if the game cannot be played
+     */
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 5555;
+        long budget = args.length > 2 ? Long.parseLong(args[2]) : 50;
+        try (OthelloClient client = new OthelloClient(host, port)) {
+            System.out.println(client.playSelfGame(budget));
+        }
+    }
+}
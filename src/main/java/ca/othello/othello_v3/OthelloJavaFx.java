@@ -1,5 +1,6 @@
 package ca.othello.othello_v3;
 
+import javafx.animation.AnimationTimer;
 import javafx.animation.RotateTransition;
 import javafx.animation.SequentialTransition;
 import javafx.application.Application;
@@ -15,13 +16,37 @@ import javafx.scene.effect.Glow;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.util.Duration;
-
+import javafx.util.StringConverter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Random;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 public class OthelloJavaFx extends Application {
@@ -32,7 +57,8 @@ public class OthelloJavaFx extends Application {
     private boolean newGame = false;
     private Player player1obj;
     private Player player2obj;
-    private ListView<String> history;
+    private ListView<MoveHistoryEntry> history;
+    private boolean historyScrollPending = false;
 
     private Label message;
     private Button resetButton;
@@ -42,11 +68,82 @@ public class OthelloJavaFx extends Application {
     private RadioButton singlePlayer;
     private RadioButton multiPlayer;
 
-    private StackPane[][] cells = new StackPane[8][8];
+    private StackPane[][] cells = new StackPane[Board.DEFAULT_SIZE][Board.DEFAULT_SIZE];
+    private TilePane boardContainer;
+
+    // Board sizes offered in the set-up form; the cells shrink so that every board takes the same room.
+    private static final Integer[] BOARD_SIZES = {6, 8, 10, 12, 14, 16};
+    private static final double BOARD_PIXELS = 568;
 
     private static final Logger logger = Logger.getLogger(OthelloJavaFx.class.getName());
     private boolean gameStarted = false;
 
+    // Spectator mode: plies are pulled from a feed by an AnimationTimer, at most this much work per frame.
+    private static final long SPECTATOR_FRAME_BUDGET_NANOS = 8_000_000L;
+    private Button spectateButton;
+    private Slider spectatorSpeed;
+    private SpectatorFeed spectatorFeed;
+    private HeadlessMatch headlessMatch;
+    private AnimationTimer spectatorTimer;
+    private boolean spectating = false;
+    private char spectatorTurn;
+    private long nextPlyDue;
+
+    // Saved games: the record of the game in progress, and the one to replay when the game starts.
+    private static final Path AUTOSAVE_FILE = Path.of(System.getProperty("user.home"), ".othello", "autosave.orec");
+    private GameRecord record;
+    private GameRecord pendingRestore;
+
+    // AI answers of earlier sessions, loaded in the background at startup and saved on close.
+    private static final Path POSITION_CACHE_FILE = Path.of(System.getProperty("user.home"), ".othello", "positions.cache");
+
+    // Metrics of the game loop, exported periodically to a file (see Metrics for the settings).
+    private static final Path METRICS_FILE = Path.of(System.getProperty("user.home"), ".othello", "metrics.json");
+    private static final Histogram renderTime = Metrics.histogram(Metrics.UI_RENDER_TIME, "us");
+    private static final Histogram animationBacklog = Metrics.histogram(Metrics.UI_ANIMATION_BACKLOG, "flips");
+    private static final Histogram spectatorBacklog = Metrics.histogram(Metrics.SPECTATOR_BACKLOG, "plies");
+    private static final Histogram startupTime = Metrics.histogram(Metrics.UI_STARTUP_TIME, "us");
+    private static final Histogram firstMoveTime = Metrics.histogram(Metrics.AI_FIRST_MOVE_TIME, "us");
+    private static final AtomicBoolean firstMoveMeasured = new AtomicBoolean();
+    private int runningFlips;
+
+    // AI levels: the Weak, Easy and Hard options play the profiles of these names.
+    private final Map<String, StrengthProfile> profiles = StrengthProfile.load();
+
+    // Takeback: undone plies waiting to be redone, and whether an AI move is being computed.
+    private final Deque<MoveHistoryEntry> redoStack = new ArrayDeque<>();
+    private boolean aiThinking = false;
+
+    // Live analysis: scores are shown on the legal squares and the best line in the side panel.
+    private static final int ANALYSIS_MAX_DEPTH = 8;
+    private static final long ANALYSIS_THROTTLE_MS = 100;
+    private AnalysisService analysis;
+    private boolean analysisEnabled = false;
+    private final AtomicReference<AnalysisService.Snapshot> pendingAnalysis = new AtomicReference<>();
+    private VBox analysisPanel;
+    private Label analysisDepth;
+    private Label analysisLine;
+
+    // Results of earlier games: finished games are added, and the analysis panel shows how the position fared.
+    private static final Path POSITION_DATABASE_DIR = Path.of(System.getProperty("user.home"), ".othello", "positions");
+    // Games are added on their own thread, as adding one writes the files and may remap the index
+    private static final long DATABASE_CLOSE_WAIT_S = 5;
+    private final ExecutorService databaseWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "position-database");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private PositionDatabase positionDatabase;
+    private boolean positionDatabaseFailed = false;
+    private Label analysisGames;
+
+    // Hints: the best move of the human player, searched in the background as soon as the turn starts.
+    private HintService hints;
+    private Button hintButton;
+    private StackPane hintedCell;
+
+    // Variation explorer: depth of the searches scoring the moves of its tree.
+    private static final int EXPLORER_DEPTH = 6;
 
     @Override
     public void start(Stage stage) throws Exception {
@@ -77,16 +174,33 @@ public class OthelloJavaFx extends Application {
         multiPlayer = new RadioButton("Multi-Player");
         multiPlayer.setFocusTraversable(false);
 
+        Label boardSizeLabel = new Label("Board Size:");
+        ComboBox<Integer> boardSizeChoice = new ComboBox<>();
+        boardSizeChoice.getItems().addAll(BOARD_SIZES);
+        boardSizeChoice.setValue(Board.DEFAULT_SIZE);
+        boardSizeChoice.setFocusTraversable(false);
+        boardSizeChoice.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(Integer size) {
+                return size == null ? "" : size + "x" + size;
+            }
+
+            @Override
+            public Integer fromString(String text) {
+                return Integer.valueOf(text.substring(0, text.indexOf('x')));
+            }
+        });
+
         Label AIMode = new Label("AI Mode:");
-        RadioButton weak = new RadioButton("Weak");
+        RadioButton weak = new RadioButton(profileLabel("weak", "Weak"));
         weak.setFocusTraversable(false);
         weak.setDisable(true);
 
-        intelligent_easy = new RadioButton("Intelligent AI (Easy)");
+        intelligent_easy = new RadioButton(profileLabel("easy", "Intelligent AI (Easy)"));
         intelligent_easy.setFocusTraversable(false);
         intelligent_easy.setDisable(true);
 
-        intelligent_hard = new RadioButton("Intelligent AI (Hard)");
+        intelligent_hard = new RadioButton(profileLabel("hard", "Intelligent AI (Hard)"));
         intelligent_hard.setFocusTraversable(false);
         intelligent_hard.setDisable(true);
 
@@ -116,8 +230,28 @@ public class OthelloJavaFx extends Application {
         resetButton.setStyle("-fx-font-size: 12px; -fx-font-weight: bold; -fx-text-fill: #000000; -fx-border-insets: 0; -fx-background-insets: 0;" +
                 "-fx-border-radius: 5; -fx-background-radius: 5;");
 
+        spectateButton = new Button("Spectate");
+        spectateButton.setPrefSize(100, 30);
+        spectateButton.setFocusTraversable(false);
+        spectateButton.setStyle("-fx-font-size: 12px; -fx-font-weight: bold; -fx-text-fill: #000000; -fx-border-insets: 0; -fx-background-insets: 0;" +
+                "-fx-border-radius: 5; -fx-background-radius: 5;");
+
+        hintButton = new Button("Hint");
+        hintButton.setPrefSize(100, 30);
+        hintButton.setFocusTraversable(false);
+        hintButton.setDisable(true);
+        hintButton.setTooltip(new Tooltip("Show the best move"));
+        hintButton.setStyle("-fx-font-size: 12px; -fx-font-weight: bold; -fx-text-fill: #000000; -fx-border-insets: 0; -fx-background-insets: 0;" +
+                "-fx-border-radius: 5; -fx-background-radius: 5;");
+
+        Label spectatorSpeedLabel = new Label("Speed:");
+        spectatorSpeed = new Slider(1, 30, 2);
+        spectatorSpeed.setFocusTraversable(false);
+        spectatorSpeed.setPrefWidth(200);
+        spectatorSpeed.setTooltip(new Tooltip("Spectator speed (moves per second)"));
+
 
-        Label[] Labels = {player1, player2, gameMode, AIMode, player1Symbol_Label, Player2Symbol_Label};
+        Label[] Labels = {player1, player2, gameMode, boardSizeLabel, AIMode, player1Symbol_Label, Player2Symbol_Label, spectatorSpeedLabel};
         for (Label l : Labels) {
             l.setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-text-fill: #000000;");
         }
@@ -132,7 +266,7 @@ public class OthelloJavaFx extends Application {
         //---------------------------------layout---------------------------------
         BorderPane borderPane = new BorderPane();
         VBox headerContainer = new VBox();
-        TilePane boardContainer = new TilePane();
+        boardContainer = new TilePane();
         VBox historyContainer = new VBox();
         history = new ListView<>();
         VBox playerVboxContainer = new VBox();
@@ -140,10 +274,12 @@ public class OthelloJavaFx extends Application {
         HBox player1NameHbox = new HBox();
         HBox player2NameHbox = new HBox();
         HBox gameModeHbox = new HBox();
+        HBox boardSizeHbox = new HBox();
         HBox AILevelHbox = new HBox();
         HBox player1SymbolHbox = new HBox();
         HBox player2SymbolHbox = new HBox();
         HBox buttonHbox = new HBox();
+        HBox spectatorHbox = new HBox();
 
         //-----------------------------styling---------------------------------
 
@@ -157,8 +293,8 @@ public class OthelloJavaFx extends Application {
         borderPane.setMargin(playerVboxContainer, new Insets(0, 10, 0, 0));
 
 
-        boardContainer.setPrefColumns(8);
-        boardContainer.setPrefRows(8);
+        boardContainer.setPrefColumns(board.getSize());
+        boardContainer.setPrefRows(board.getSize());
         boardContainer.setAlignment(Pos.CENTER);
         boardContainer.setMaxWidth(620);
         boardContainer.setMaxHeight(650);
@@ -199,6 +335,10 @@ public class OthelloJavaFx extends Application {
         gameModeHbox.setSpacing(10);
         gameModeHbox.setPadding(new Insets(10, 0, 5, 0));
 
+        boardSizeHbox.setSpacing(10);
+        boardSizeHbox.setAlignment(Pos.CENTER_LEFT);
+        boardSizeHbox.setPadding(new Insets(0, 0, 5, 0));
+
         AILevelHbox.setSpacing(10);
         AILevelHbox.setPadding(new Insets(0, 0, 6, 0));
 
@@ -210,6 +350,9 @@ public class OthelloJavaFx extends Application {
         buttonHbox.setSpacing(10);
         buttonHbox.setAlignment(Pos.CENTER);
 
+        spectatorHbox.setSpacing(10);
+        spectatorHbox.setAlignment(Pos.CENTER);
+
         historyContainer.setBackground(new Background(background_fill));
         historyContainer.setPrefSize(200, 260);
         historyContainer.setMaxHeight(260);
@@ -224,8 +367,23 @@ public class OthelloJavaFx extends Application {
         history.setFocusTraversable(false);
 
 
+        MenuItem saveItem = new MenuItem("Save Game...");
+        MenuItem loadItem = new MenuItem("Load Game...");
+        MenuItem exportItem = new MenuItem("Export Transcript");
+        MenuItem importItem = new MenuItem("Import Transcript...");
+        MenuItem undoItem = new MenuItem("Undo");
+        undoItem.setAccelerator(KeyCombination.keyCombination("Shortcut+Z"));
+        MenuItem redoItem = new MenuItem("Redo");
+        redoItem.setAccelerator(KeyCombination.keyCombination("Shortcut+Y"));
+        CheckMenuItem analysisItem = new CheckMenuItem("Live Analysis");
+        MenuItem explorerItem = new MenuItem("Explore Variations...");
+        MenuBar menuBar = new MenuBar(new Menu("Game", null, saveItem, loadItem, new SeparatorMenuItem(), exportItem, importItem),
+                new Menu("Edit", null, undoItem, redoItem),
+                new Menu("Analysis", null, analysisItem, explorerItem));
+
+
         //-----------------add components to layout-----------------
-        headerContainer.getChildren().addAll(headerText, message);
+        headerContainer.getChildren().addAll(menuBar, headerText, message);
         borderPane.setTop(headerContainer);
         borderPane.setCenter(boardContainer);
 
@@ -240,16 +398,20 @@ public class OthelloJavaFx extends Application {
 
         gameModeHbox.getChildren().addAll(gameMode, singlePlayer, multiPlayer);
 
+        boardSizeHbox.getChildren().addAll(boardSizeLabel, boardSizeChoice);
+
         AILevelHbox.getChildren().addAll(AIMode, weak, intelligent_easy, intelligent_hard);
 
         player1SymbolHbox.getChildren().addAll(player1Symbol_Label, player1Symbol_black, player1Symbol_white);
 
         player2SymbolHbox.getChildren().addAll(Player2Symbol_Label, player2Symbol_black_2, player2Symbol_white_2);
 
-        buttonHbox.getChildren().addAll(startButton, resetButton);
+        buttonHbox.getChildren().addAll(startButton, resetButton, spectateButton, hintButton);
+
+        spectatorHbox.getChildren().addAll(spectatorSpeedLabel, spectatorSpeed);
 
-        playerVbox.getChildren().addAll(player1NameHbox, player2NameHbox, gameModeHbox, AILevelHbox,
-                player1SymbolHbox, player2SymbolHbox, buttonHbox);
+        playerVbox.getChildren().addAll(player1NameHbox, player2NameHbox, gameModeHbox, boardSizeHbox, AILevelHbox,
+                player1SymbolHbox, player2SymbolHbox, buttonHbox, spectatorHbox);
 
         historyContainer.getChildren().add(history);
 
@@ -270,6 +432,13 @@ public class OthelloJavaFx extends Application {
             stage.setTitle("Welcome to Othello!");
             stage.setScene(scene);
             stage.show();
+            new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    stop();
+                    reportStartup();
+                }
+            }.start();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -376,6 +545,7 @@ public class OthelloJavaFx extends Application {
                 alert.setContentText("Please select a different symbol for one of the players!");
                 alert.showAndWait();
             } else {
+                setBoardSize(boardSizeChoice.getValue());
                 for (StackPane[] cellRow : cells) {
                     for (StackPane cell : cellRow) {
                         cell.setDisable(false);
@@ -386,6 +556,7 @@ public class OthelloJavaFx extends Application {
                 player2Name.setDisable(true);
                 singlePlayer.setDisable(true);
                 multiPlayer.setDisable(true);
+                boardSizeChoice.setDisable(true);
 
                 weak.setDisable(true);
                 intelligent_easy.setDisable(true);
@@ -397,6 +568,7 @@ public class OthelloJavaFx extends Application {
                 player2Symbol_black_2.setDisable(true);
 
                 resetButton.setDisable(false);
+                spectateButton.setDisable(true);
 
                 if (player1Symbol_white.isSelected()) {
                     player1obj = new Player(player1Name.getText(), 'W');
@@ -410,7 +582,26 @@ public class OthelloJavaFx extends Application {
                 logger.info("Player1 (" + player1obj.getName() + ") is " + (player1obj.getColor() == 'B' ? "Black" : "White") + ".");
                 logger.info("Player2 (" + player2obj.getName() + ") is " + (player2obj.getColor() == 'B' ? "Black" : "White") + ".");
 
+                Player black = player1obj.getColor() == 'B' ? player1obj : player2obj;
+                Player white = player1obj.getColor() == 'B' ? player2obj : player1obj;
+                record = new GameRecord(black.getName(), white.getName(), board.getSize());
+                if (singlePlayer.isSelected()) {
+                    int engine = weak.isSelected() ? GameRecord.ENGINE_RANDOM : GameRecord.ENGINE_MINIMAX;
+                    int depth = weak.isSelected() ? 0 : Math.min(255, selectedProfile().depth());
+                    record.setEngine(player2obj.getColor(), engine, depth);
+                }
+
                 isPlayer1Turn = player1obj.getColor() == 'B';
+                if (pendingRestore != null) {
+                    GameRecord restored = pendingRestore;
+                    pendingRestore = null;
+                    replayPlies(restored.getMoves());
+                    logger.info("Game restored after " + restored.getPlyCount() + " plies.");
+                    updateTurnMessage();
+                    refreshBoardUI(cells);
+                    checkAndHandlePass(cells);
+                    return;
+                }
                 logger.info("Game started. " + (isPlayer1Turn ? player1obj.getName() + " (B)" : player2obj.getName() + " (W)") + " goes first.");
                 message.setText(isPlayer1Turn ? player1obj.getName() + "'s turn" : player2obj.getName() + "'s turn");
 
@@ -423,8 +614,22 @@ public class OthelloJavaFx extends Application {
             }
         });
 
+        spectateButton.setOnAction(e -> {
+            int depth = intelligent_hard.isSelected() ? 5 : weak.isSelected() ? 0 : 3;
+            SpectatorFeed feed = new SpectatorFeed();
+            headlessMatch = new HeadlessMatch(feed, depth, depth);
+            Thread matchThread = new Thread(headlessMatch, "headless-match");
+            matchThread.setDaemon(true);
+            matchThread.start();
+
+            startButton.setDisable(true);
+            startSpectating(feed, Board.DEFAULT_SIZE, "Black AI", "White AI");
+        });
+
         resetButton.setOnAction(e -> {
             newGame = true;
+            stopSpectating();
+            startButton.setDisable(false);
 
             for (StackPane[] cellRow : cells) {
                 for (StackPane cell : cellRow) {
@@ -446,6 +651,7 @@ public class OthelloJavaFx extends Application {
 
             singlePlayer.setDisable(false);
             multiPlayer.setDisable(false);
+            boardSizeChoice.setDisable(false);
             if (!newGame) {
                 weak.setDisable(false);
                 intelligent_easy.setDisable(false);
@@ -477,35 +683,256 @@ public class OthelloJavaFx extends Application {
 
             player1obj = null;
             player2obj = null;
+            record = null;
+            redoStack.clear();
 
             refreshBoardUI(cells);
 
             gameStarted = false;
             newGame = false;
+            updateAnalysis();
             logger.info("Game reset.");
         });
 
-        //----------------- Helper -----------------
-        for (int i = 0; i < cells.length; i++) {
-            for (int j = 0; j < cells[i].length; j++) {
-                final int row = i;
-                final int col = j;
+        // Fills in the set-up form from a saved game and starts it; the plies are replayed by the start button.
+        Consumer<GameRecord> restoreGame = saved -> {
+            if (gameStarted || spectating) {
+                resetButton.fire();
+            }
+            boolean blackHuman = saved.getBlackEngine() == GameRecord.ENGINE_HUMAN;
+            boolean whiteHuman = saved.getWhiteEngine() == GameRecord.ENGINE_HUMAN;
+            if (!blackHuman && !whiteHuman) {
+                startButton.setDisable(true);
+                startSpectating(SpectatorFeed.replay(saved.getMoves()), saved.getBoardSize(),
+                        saved.getBlackName(), saved.getWhiteName());
+                return;
+            }
+            boardSizeChoice.setValue(saved.getBoardSize());
 
-                cells[i][j].setOnMouseClicked(e -> {
-                    handleCellClick(row, col);
-                });
+            boolean player1Black = blackHuman;
+            if (blackHuman && whiteHuman) {
+                multiPlayer.setSelected(true);
+                player2Name.setText(saved.getWhiteName());
+            } else {
+                singlePlayer.setSelected(true);
+                int engine = blackHuman ? saved.getWhiteEngine() : saved.getBlackEngine();
+                int depth = blackHuman ? saved.getWhiteDepth() : saved.getBlackDepth();
+                if (engine == GameRecord.ENGINE_RANDOM) {
+                    weak.setSelected(true);
+                } else if (depth <= 3) {
+                    intelligent_easy.setSelected(true);
+                } else {
+                    intelligent_hard.setSelected(true);
+                }
+            }
+            player1Name.setText(player1Black ? saved.getBlackName() : saved.getWhiteName());
+            if (player1Black) {
+                player1Symbol_black.setSelected(true);
+            } else {
+                player1Symbol_white.setSelected(true);
             }
+
+            pendingRestore = saved;
+            startButton.fire();
+            pendingRestore = null;
+        };
+
+        undoItem.setOnAction(e -> undoMove());
+        redoItem.setOnAction(e -> redoMove());
+
+        saveItem.setOnAction(e -> {
+            if (!gameStarted || record == null) {
+                showError("No game to save!", "Please start a game first!");
+                return;
+            }
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Save Game");
+            chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Othello games", "*.orec"));
+            File file = chooser.showSaveDialog(stage);
+            if (file != null) {
+                try {
+                    saveGame(file.toPath());
+                } catch (IOException ex) {
+                    logger.warning("Could not save the game: " + ex.getMessage());
+                    showError("Could not save the game!", ex.getMessage());
+                }
+            }
+        });
+
+        loadItem.setOnAction(e -> {
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Load Game");
+            chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Othello games", "*.orec"));
+            File file = chooser.showOpenDialog(stage);
+            if (file != null) {
+                try {
+                    restoreGame.accept(loadGame(file.toPath()));
+                } catch (IOException ex) {
+                    logger.warning("Could not load the game: " + ex.getMessage());
+                    showError("Could not load the game!", ex.getMessage());
+                }
+            }
+        });
+
+        exportItem.setOnAction(e -> {
+            if (record == null) {
+                showError("No game to export!", "Please start a game first!");
+                return;
+            }
+            String transcript = GameTranscript.toTranscript(record.getMoves());
+            ClipboardContent content = new ClipboardContent();
+            content.putString(transcript);
+            Clipboard.getSystemClipboard().setContent(content);
+
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("Export Transcript");
+            alert.setHeaderText("Transcript copied to the clipboard.");
+            alert.setContentText(transcript.isEmpty() ? "(no moves yet)" : transcript);
+            alert.showAndWait();
+        });
+
+        importItem.setOnAction(e -> {
+            TextInputDialog dialog = new TextInputDialog();
+            dialog.setTitle("Import Transcript");
+            dialog.setHeaderText("Fill in the players and board size first, then paste a transcript such as f5d6c3d3c4.");
+            Optional<String> transcript = dialog.showAndWait();
+            if (transcript.isEmpty()) {
+                return;
+            }
+            try {
+                int size = boardSizeChoice.getValue();
+                GameRecord imported = new GameRecord("", "", size);
+                for (Move ply : GameTranscript.parse(transcript.get(), size)) {
+                    imported.addPly(ply);
+                }
+                if (gameStarted) {
+                    resetButton.fire();
+                }
+                pendingRestore = imported;
+                startButton.fire();
+            } catch (IllegalArgumentException ex) {
+                showError("Invalid transcript!", ex.getMessage());
+            } finally {
+                pendingRestore = null;
+            }
+        });
+
+        analysisItem.setOnAction(e -> {
+            analysisEnabled = analysisItem.isSelected();
+            if (analysisPanel == null) {
+                analysisPanel = buildAnalysisPanel();
+                borderPane.setRight(analysisPanel);
+                BorderPane.setAlignment(analysisPanel, Pos.CENTER);
+            }
+            analysisPanel.setVisible(analysisEnabled);
+            analysisPanel.setManaged(analysisEnabled);
+            if (analysisEnabled && analysis == null) {
+                analysis = new AnalysisService(ANALYSIS_MAX_DEPTH, ANALYSIS_THROTTLE_MS, this::publishAnalysis);
+            }
+            updateAnalysis();
+        });
+
+        hintButton.setOnAction(e -> {
+            char color = isPlayer1Turn ? player1obj.getColor() : player2obj.getColor();
+            long position = board.getHash(color);
+            hints().request(board, color, hint -> Platform.runLater(() -> {
+                // The player may have moved while the hint was searched
+                if (gameStarted && board.getHash(color) == position) {
+                    showHint(hint);
+                }
+            }));
+        });
+
+        explorerItem.setOnAction(e -> {
+            char sideToMove = !gameStarted || player1obj == null ? 'B'
+                    : isPlayer1Turn ? player1obj.getColor() : player2obj.getColor();
+            new GameTreeExplorer(stage, board, sideToMove, EXPLORER_DEPTH).show();
+        });
+
+        stage.setOnCloseRequest(e -> {
+            if (analysis != null) {
+                analysis.shutdown();
+            }
+            if (hints != null) {
+                hints.shutdown();
+            }
+            // Let the games being added finish first
+            databaseWriter.shutdown();
+            try {
+                databaseWriter.awaitTermination(DATABASE_CLOSE_WAIT_S, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (positionDatabase != null) {
+                try {
+                    positionDatabase.close();
+                } catch (IOException ex) {
+                    logger.warning("Could not close the position database: " + ex.getMessage());
+                }
+            }
+            stopSpectating();
+            Metrics.stopExport();
+            try {
+                Files.createDirectories(POSITION_CACHE_FILE.getParent());
+                PositionCache.getShared().save(POSITION_CACHE_FILE);
+                logger.info("Position cache: " + PositionCache.getShared() + ".");
+            } catch (IOException ex) {
+                logger.warning("Could not save the position cache: " + ex.getMessage());
+            }
+            if (gameStarted && record != null && record.getPlyCount() > 0) {
+                try {
+                    Files.createDirectories(AUTOSAVE_FILE.getParent());
+                    saveGame(AUTOSAVE_FILE);
+                    logger.info("Game in progress saved to " + AUTOSAVE_FILE + ".");
+                } catch (IOException ex) {
+                    logger.warning("Could not save the game in progress: " + ex.getMessage());
+                }
+            }
+        });
+
+        Metrics.startExport(METRICS_FILE);
+        EngineWarmup.start(profiles.values());
+
+        if (Files.exists(POSITION_CACHE_FILE)) {
+            Thread loader = new Thread(() -> {
+                try {
+                    PositionCache.getShared().load(POSITION_CACHE_FILE);
+                } catch (IOException ex) {
+                    logger.warning("Could not load the position cache: " + ex.getMessage());
+                }
+            }, "position-cache-loader");
+            loader.setDaemon(true);
+            loader.start();
+        }
+
+        if (Files.exists(AUTOSAVE_FILE)) {
+            Platform.runLater(() -> {
+                Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+                alert.setTitle("Resume Game");
+                alert.setHeaderText("A game was interrupted when Othello was closed.");
+                alert.setContentText("Do you want to resume it?");
+                Optional<ButtonType> answer = alert.showAndWait();
+                try {
+                    GameRecord saved = loadGame(AUTOSAVE_FILE);
+                    Files.deleteIfExists(AUTOSAVE_FILE);
+                    if (answer.isPresent() && answer.get() == ButtonType.OK) {
+                        restoreGame.accept(saved);
+                    }
+                } catch (IOException ex) {
+                    logger.warning("Could not resume the interrupted game: " + ex.getMessage());
+                }
+            });
         }
 
         history.setCellFactory(lv -> new ListCell<>() {
             @Override
-            protected void updateItem(String item, boolean empty) {
+            protected void updateItem(MoveHistoryEntry item, boolean empty) {
                 super.updateItem(item, empty);
                 if (empty || item == null) {
                     setText(null);
                     setGraphic(null);
                 } else {
-                    setText(item);
+                    setText(item.describe());
                     setDisable(true);
                     setMouseTransparent(true);
                 }
@@ -516,28 +943,57 @@ public class OthelloJavaFx extends Application {
 
 
     /**
-     * Initializes the 8x8 grid of board cells using StackPane.
+     * Replaces the board and its cells with ones of another size, unless the board already has that size.
+     *
+     * @param size The number of rows and columns of the new board.
+     */
+    private void setBoardSize(int size) {
+        if (size == board.getSize()) {
+            return;
+        }
+        board = new Board(size);
+        cells = new StackPane[size][size];
+        initializeBoardCells(cells);
+
+        boardContainer.getChildren().clear();
+        for (StackPane[] row : cells) {
+            boardContainer.getChildren().addAll(row);
+        }
+        boardContainer.setPrefColumns(size);
+        boardContainer.setPrefRows(size);
+        logger.info("Board size set to " + size + "x" + size + ".");
+    }
+
+    /**
+     * Initializes the grid of board cells using StackPane.
+     * The cells are sized so that the grid takes the same room whatever the size of the board (70 pixels on 8x8).
      *
-     * @param cells The 8x8 array to populate with StackPanes.
+     * @param cells The square array to populate with StackPanes.
      */
     private void initializeBoardCells(StackPane[][] cells) {
+        double cellSize = BOARD_PIXELS / cells.length - 1;
         for (int i = 0; i < cells.length; i++) {
             for (int j = 0; j < cells[i].length; j++) {
                 StackPane cell = new StackPane();
-                cell.setPrefSize(70, 70);
+                cell.setPrefSize(cellSize, cellSize);
 
-                Rectangle background = new Rectangle(70, 70);
+                Rectangle background = new Rectangle(cellSize, cellSize);
                 background.setFill(Color.GREEN);
                 background.setStroke(Color.BLACK);
                 background.setStrokeWidth(1);
-                Circle disk = new Circle(25);
+                Circle disk = new Circle(cellSize * 25 / 70);
                 disk.setVisible(false);
 
-                Circle highlight = new Circle(10);
+                Circle highlight = new Circle(cellSize / 7);
                 highlight.setFill(Color.YELLOW.deriveColor(1, 1, 1, 0.6));
                 highlight.setVisible(false);
 
-                cell.getChildren().addAll(background, disk, highlight);
+                Text score = new Text();
+                score.setFont(Font.font("System", FontWeight.BOLD, Math.max(9, cellSize * 16 / 70)));
+                score.setMouseTransparent(true);
+                score.setVisible(false);
+
+                cell.getChildren().addAll(background, disk, highlight, score);
 
                 final int row = i;
                 final int col = j;
@@ -568,50 +1024,274 @@ public class OthelloJavaFx extends Application {
      */
     private void refreshBoardUI(StackPane[][] cells) {
         logger.info("Refreshing board UI.");
+        long start = System.nanoTime();
 
         for (int i = 0; i < board.getSize(); i++) {
             for (int j = 0; j < board.getSize(); j++) {
-                char piece = board.getPiece(new Move(i, j));
-                StackPane cell = cells[i][j];
-                Circle disk = (Circle) cell.getChildren().get(1);
-
-                if (piece == 'B') {
-                    disk.setFill(Color.BLACK);
-                    disk.setVisible(true);
-                    logger.fine("Placed Black disk at (" + i + ", " + j + ").");
-                } else if (piece == 'W') {
-                    disk.setFill(Color.WHITE);
-                    disk.setVisible(true);
-                    logger.fine("Placed White disk at (" + i + ", " + j + ").");
-                } else {
-                    disk.setVisible(false);
-                    logger.fine("Cleared disk at (" + i + ", " + j + ").");
-                }
+                updateCell(cells[i][j], i, j);
+            }
+        }
+
+        highlightValidMoves();
+        updateAnalysis();
+        updateHint();
+        renderTime.recordSince(start);
+    }
+
+    /**
+     * Refreshes only the given cells to match the game board, then the move highlights.
+     *
+     * @param changedSquares The cells to update, as a bit set (bit row * size + col).
+     */
+    private void refreshCells(long[] changedSquares) {
+        long start = System.nanoTime();
+        int size = board.getSize();
+        for (int word = 0; word < changedSquares.length; word++) {
+            for (long bits = changedSquares[word]; bits != 0; bits &= bits - 1) {
+                int square = (word << 6) + Long.numberOfTrailingZeros(bits);
+                updateCell(cells[square / size][square % size], square / size, square % size);
             }
         }
 
         highlightValidMoves();
+        updateAnalysis();
+        updateHint();
+        renderTime.recordSince(start);
+    }
+
+    /**
+     * Updates the disk of a cell to match the piece on the game board.
+     *
+     * @param cell The cell to update.
+     * @param i    The row of the cell.
+     * @param j    The column of the cell.
+     */
+    private void updateCell(StackPane cell, int i, int j) {
+        char piece = board.getPiece(new Move(i, j));
+        Circle disk = (Circle) cell.getChildren().get(1);
+
+        if (piece == 'B') {
+            disk.setFill(Color.BLACK);
+            disk.setVisible(true);
+            logger.fine("Placed Black disk at (" + i + ", " + j + ").");
+        } else if (piece == 'W') {
+            disk.setFill(Color.WHITE);
+            disk.setVisible(true);
+            logger.fine("Placed White disk at (" + i + ", " + j + ").");
+        } else {
+            disk.setVisible(false);
+            logger.fine("Cleared disk at (" + i + ", " + j + ").");
+        }
+    }
+
+    /**
+     * Takes back the last move of a human player, along with the AI replies and passes that followed it.
+     * The board is restored with the engine's undo stack and only the changed cells are redrawn.
+     */
+    private void undoMove() {
+        if (!gameStarted || spectating || aiThinking) {
+            logger.info("Undo is not available right now.");
+            return;
+        }
+
+        List<MoveHistoryEntry> entries = history.getItems();
+        int target = entries.size() - 1;
+        while (target >= 0 && (entries.get(target).isPass() || !isHuman(entries.get(target).getPlayer()))) {
+            target--;
+        }
+        if (target < 0) {
+            logger.info("Nothing to undo.");
+            return;
+        }
+
+        long[] changedSquares = new long[board.getBitSetWords()];
+        while (entries.size() > target) {
+            MoveHistoryEntry last = entries.remove(entries.size() - 1);
+            if (!last.isPass()) {
+                board.unmakeMove(changedSquares);
+            }
+            record.removeLastPly();
+            redoStack.push(last);
+            isPlayer1Turn = last.getPlayer() == player1obj;
+        }
+        logger.info("Undo: back to " + entries.size() + " plies.");
+
+        updateTurnMessage();
+        refreshCells(changedSquares);
+    }
+
+    /**
+     * Replays the last undone human move, along with the AI replies and passes that followed it.
+     */
+    private void redoMove() {
+        if (!gameStarted || spectating || aiThinking || redoStack.isEmpty()) {
+            logger.info("Redo is not available right now.");
+            return;
+        }
+
+        long[] changedSquares = new long[board.getBitSetWords()];
+        int size = board.getSize();
+        do {
+            MoveHistoryEntry next = redoStack.pop();
+            Move move = next.getMove();
+            List<Move> flippedMoves = next.isPass() ? List.of() : board.makeMove(next.getColor(), move);
+            for (Move flippedMove : flippedMoves) {
+                int square = flippedMove.getRow() * size + flippedMove.getCol();
+                changedSquares[square >>> 6] |= 1L << square;
+            }
+            if (!next.isPass()) {
+                int square = move.getRow() * size + move.getCol();
+                changedSquares[square >>> 6] |= 1L << square;
+            }
+            addMoveToHistory(next.getPlayer(), move, flippedMoves.size());
+            isPlayer1Turn = next.getPlayer() != player1obj;
+        } while (!redoStack.isEmpty() && (redoStack.peek().isPass() || !isHuman(redoStack.peek().getPlayer())));
+        logger.info("Redo: forward to " + history.getItems().size() + " plies.");
+
+        refreshCells(changedSquares);
+        if (checkGameOver()) {
+            return;
+        }
+        updateTurnMessage();
+        if (redoStack.isEmpty()) {
+            checkAndHandlePass(cells);
+        }
+    }
+
+    /**
+     * Determines if the given player is human.
+     *
+     * @param player The player to check.
+     * @return true if the player is human; false if AI.
+     */
+    private boolean isHuman(Player player) {
+        return !singlePlayer.isSelected() || player == player1obj;
     }
 
     /**
      * Adds a move to the history ListView.
+     * The scores are carried over from the previous entry, and scrolling to the new entry
+     * is done once per pulse however many moves were added.
+     *
+     * @param player The player who made the move.
+     * @param move   The move, or (-1, -1) for a pass.
+     * @param flips  The number of pieces flipped by the move.
+     */
+    private void addMoveToHistory(Player player, Move move, int flips) {
+        if (record != null) {
+            record.addPly(move);
+        }
+        List<MoveHistoryEntry> entries = history.getItems();
+        MoveHistoryEntry previous = entries.isEmpty() ? null : entries.get(entries.size() - 1);
+        entries.add(MoveHistoryEntry.after(previous, player, move, flips));
+
+        if (!historyScrollPending) {
+            historyScrollPending = true;
+            Platform.runLater(() -> {
+                historyScrollPending = false;
+                history.scrollTo(history.getItems().size() - 1);
+            });
+        }
+    }
+
+    /**
+     * Replays the plies of a saved game on the board without animations, then sets the turn.
+     * The history list is filled in a single update instead of one per ply.
      *
-     * @param playerName The name of the player who made the move.
-     * @param row        The row of the move.
-     * @param col        The column of the move.
+     * @param plies The plies to replay from the initial position, passes as (-1, -1), checked by {@link #checkPlies(GameRecord)}.
      */
-    private void addMoveToHistory(String playerName, int row, int col) {
-        String moveDescription = (row == -1 && col == -1)
-                ? playerName + " passed."
-                : playerName + " played at: row " + row + ", col " + col;
+    private void replayPlies(List<Move> plies) {
+        List<MoveHistoryEntry> entries = new ArrayList<>(plies.size());
+        MoveHistoryEntry previous = null;
+        char turn = 'B';
+        for (Move ply : plies) {
+            Player mover = turn == player1obj.getColor() ? player1obj : player2obj;
+            int flips = ply.isPass() ? 0 : board.makeMove(turn, ply).size();
+            record.addPly(ply);
+            previous = MoveHistoryEntry.after(previous, mover, ply, flips);
+            entries.add(previous);
+            turn = (turn == 'B') ? 'W' : 'B';
+        }
+        history.getItems().setAll(entries);
+        history.scrollTo(entries.size() - 1);
+        isPlayer1Turn = turn == player1obj.getColor();
+    }
 
-        int blackScore = board.getScore('B');
-        int whiteScore = board.getScore('W');
+    /**
+     * Saves the game in progress, with its players and AI settings, replacing the content of the file.
+     *
+     * @param path The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    private void saveGame(Path path) throws IOException {
+        record.setResult(board);
+        try (GameRecordWriter writer = new GameRecordWriter(path, false)) {
+            writer.write(record);
+        }
+        logger.info("Game saved to " + path + ".");
+    }
+
+    /**
+     * Loads the first game of a game record file.
+     *
+     * @param path The file to read.
+     * @return The saved game.
+     * @throws IOException If the file cannot be read, holds no game or a game that cannot be replayed.
+     */
+    private GameRecord loadGame(Path path) throws IOException {
+        try (GameRecordReader reader = new GameRecordReader(path)) {
+            if (!reader.next()) {
+                throw new IOException("No game found in " + path + ".");
+            }
+            GameRecord saved = reader.toRecord();
+            checkPlies(saved);
+            return saved;
+        }
+    }
 
-        String fullDescription = moveDescription + " | Scores => Black: " + blackScore + ", White: " + whiteScore;
+    /**
+     * Checks that the plies of a saved game can be replayed from the initial position.
+     *
+     * @param saved The saved game.
+     * @throws IOException If the board size is not supported, or at the first ply that is not a legal move
+     *                     (a pass being legal only when the player has no move).
+     */
+    private static void checkPlies(GameRecord saved) throws IOException {
+        Board replay;
+        try {
+            replay = new Board(saved.getBoardSize());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        List<Move> plies = saved.getMoves();
+        char turn = 'B';
+        for (int i = 0; i < plies.size(); i++) {
+            Move ply = plies.get(i);
+            boolean legal = !replay.isGameOver()
+                    && (ply.isPass() ? !replay.hasLegalMove(turn) : replay.isLegalMove(ply, turn));
+            if (!legal) {
+                throw new IOException("Illegal move at ply " + (i + 1) + ": "
+                        + (ply.isPass() ? "pass" : GameTranscript.toNotation(ply)) + ".");
+            }
+            if (!ply.isPass()) {
+                replay.makeMove(turn, ply);
+            }
+            turn = (turn == 'B') ? 'W' : 'B';
+        }
+    }
 
-        history.getItems().add(fullDescription);
-        history.scrollTo(history.getItems().size() - 1);
+    /**
+     * Shows an error alert.
+     *
+     * @param header  The header of the alert.
+     * @param content The content of the alert.
+     */
+    private void showError(String header, String content) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Error");
+        alert.setHeaderText(header);
+        alert.setContentText(content);
+        alert.showAndWait();
     }
 
     /**
@@ -626,12 +1306,12 @@ public class OthelloJavaFx extends Application {
     /**
      * Displays a pass message when a player has no legal moves.
      *
-     * @param playerName The name of the player who must pass.
+     * @param player The player who must pass.
      */
-    private void showPassMessage(String playerName) {
-        message.setText(playerName + " has no legal moves and must pass.");
-        addMoveToHistory(playerName, -1, -1);
-        logger.info(playerName + " has to pass.");
+    private void showPassMessage(Player player) {
+        message.setText(player.getName() + " has no legal moves and must pass.");
+        addMoveToHistory(player, new Move(-1, -1), 0);
+        logger.info(player.getName() + " has to pass.");
     }
 
     /**
@@ -641,6 +1321,11 @@ public class OthelloJavaFx extends Application {
      */
     private boolean checkGameOver() {
         if (board.isGameOver()) {
+            if (record != null) {
+                record.setResult(board);
+                GameRecord finished = record.copy();
+                databaseWriter.execute(() -> addToPositionDatabase(finished));
+            }
             char winner = board.getWinner();
             String resultMessage;
             String finalScoreMessage;
@@ -671,31 +1356,76 @@ public class OthelloJavaFx extends Application {
     }
 
 
+    /**
+     * Gets the strength profile of the selected AI level.
+     *
+     * @return The profile of the Hard, Easy or Weak option.
+     * @throws IllegalStateException if the profiles do not define the level.
+     */
+    private StrengthProfile selectedProfile() {
+        String name = intelligent_hard.isSelected() ? "hard" : intelligent_easy.isSelected() ? "easy" : "weak";
+        StrengthProfile profile = profiles.get(name);
+        if (profile == null) {
+            throw new IllegalStateException("No strength profile named " + name);
+        }
+        return profile;
+    }
+
+    /**
+     * Gets the label of a strength profile, for the option selecting it.
+     *
+     * @param name         The name of the profile.
+     * @param defaultLabel The label used if there is no such profile.
+     * @return The label.
+     */
+    private String profileLabel(String name, String defaultLabel) {
+        StrengthProfile profile = profiles.get(name);
+        return profile != null ? profile.label() : defaultLabel;
+    }
+
     /**
      * Initiates the AI move on a separate thread to prevent UI blocking.
      *
      * @param cells The 8x8 grid of cells representing the board.
      */
     private void handleAIMove(StackPane[][] cells) {
+        aiThinking = true;
         Task<int[]> aiTask = new Task<>() {
             @Override
             protected int[] call() {
-                if (intelligent_easy.isSelected()) {
-                    ai = new IntelligentAI(player2obj.getColor(), 3);
-                } else if (intelligent_hard.isSelected()) {
-                    ai = new IntelligentAI(player2obj.getColor(), 5);
+                if (!board.hasLegalMove(player2obj.getColor())) {
+                    return null;
+                }
+                // The AI needs the cores now; whatever the warm-up compiled so far is kept
+                EngineWarmup.cancel();
+                ai = selectedProfile().createAI(player2obj.getColor());
+                ai.setPositionCache(PositionCache.getShared());
+                long begin = System.nanoTime();
+                int[] move = ai.getBestMove(board);
+                if (firstMoveMeasured.compareAndSet(false, true)) {
+                    firstMoveTime.recordSince(begin);
+                    logger.info(String.format("First AI move in %d ms (%s).", (System.nanoTime() - begin) / 1_000_000,
+                            EngineWarmup.isDone() ? "after warm-up" : EngineWarmup.ENABLED ? "warm-up unfinished" : "no warm-up"));
                 }
-                return ai != null ? ai.getBestMove(board) : getRandomMove();
+                return move;
             }
         };
 
         aiTask.setOnSucceeded(event -> {
             Platform.runLater(() -> {
+                aiThinking = false;
+                redoStack.clear();
                 int[] aiMove = aiTask.getValue();
+                if (aiMove != null && !board.isLegalMove(new Move(aiMove[0], aiMove[1]), player2obj.getColor())) {
+                    // Never let a faulty engine corrupt the game: play the first legal move instead
+                    logger.severe("AI selected the illegal move (" + aiMove[0] + ", " + aiMove[1] + ").");
+                    Move fallback = board.getAllLegalMoves(player2obj.getColor()).get(0);
+                    aiMove = new int[]{fallback.getRow(), fallback.getCol()};
+                }
                 if (aiMove != null) {
                     logger.info("AI selected move: (" + aiMove[0] + ", " + aiMove[1] + ")");
                     List<Move> flippedMoves = board.makeMove(player2obj.getColor(), new Move(aiMove[0], aiMove[1]));
-                    addMoveToHistory(player2obj.getName(), aiMove[0], aiMove[1]);
+                    addMoveToHistory(player2obj, new Move(aiMove[0], aiMove[1]), flippedMoves.size());
                     boolean gameOver = checkGameOver();
                     if (gameOver) {
                         return;
@@ -717,7 +1447,7 @@ public class OthelloJavaFx extends Application {
                     checkAndHandlePass(cells);
                 } else {
                     logger.info("AI has no legal moves and must pass.");
-                    showPassMessage(player2obj.getName());
+                    showPassMessage(player2obj);
                     clearHighlights();
 
                     isPlayer1Turn = true;
@@ -731,6 +1461,7 @@ public class OthelloJavaFx extends Application {
         });
 
         aiTask.setOnFailed(event -> {
+            aiThinking = false;
             aiTask.getException().printStackTrace();
         });
 
@@ -739,23 +1470,147 @@ public class OthelloJavaFx extends Application {
 
 
     /**
-     * Gets a random move for the weak AI.
+     * Starts spectator mode: plies are pulled from the feed on every frame and shown on the board.
+     * Clicks are ignored until the feed is drained or the game is reset.
+     *
+     * @param feed      The feed providing the plies, starting from the initial position.
+     * @param size      The size of the board the plies are played on.
+     * @param blackName The name shown in the history for the black side.
+     * @param whiteName The name shown in the history for the white side.
+     */
+    private void startSpectating(SpectatorFeed feed, int size, String blackName, String whiteName) {
+        stopSpectating();
+        setBoardSize(size);
+        board.resetBoard();
+        history.getItems().clear();
+
+        player1obj = new Player(blackName, 'B');
+        player2obj = new Player(whiteName, 'W');
+        record = null;
+        isPlayer1Turn = true;
+        spectatorTurn = 'B';
+        spectatorFeed = feed;
+        spectating = true;
+        nextPlyDue = 0;
+
+        spectateButton.setDisable(true);
+        resetButton.setDisable(false);
+        message.setText("Spectating: " + blackName + " vs " + whiteName);
+        refreshBoardUI(cells);
+
+        spectatorTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                drainSpectatorFeed(now);
+            }
+        };
+        spectatorTimer.start();
+        logger.info("Spectator mode started.");
+    }
+
+    /**
+     * Stops spectator mode and cancels the headless match feeding it, if any.
+     */
+    private void stopSpectating() {
+        if (spectatorTimer != null) {
+            spectatorTimer.stop();
+            spectatorTimer = null;
+        }
+        if (headlessMatch != null) {
+            headlessMatch.cancel();
+            headlessMatch = null;
+        }
+        spectatorFeed = null;
+        spectating = false;
+        spectateButton.setDisable(false);
+    }
+
+    /**
+     * Applies the plies that are due at this frame, according to the selected speed.
+     * When the UI falls behind, every due ply is applied to the board and rendered once,
+     * without flip animations, as long as the frame budget allows; the rest wait for the next frame.
      *
-     * @return The random move as an array [row, col], or null if no move is found.
+     * @param now The timestamp of the current frame in nanoseconds.
      */
-    private int[] getRandomMove() {
-        List<Move> legalMoves = board.getAllLegalMoves(player2obj.getColor());
-        logger.info("AI has " + legalMoves.size() + " legal moves.");
+    private void drainSpectatorFeed(long now) {
+        long interval = (long) (1_000_000_000L / spectatorSpeed.getValue());
+        if (nextPlyDue == 0) {
+            nextPlyDue = now;
+        }
 
-        if (legalMoves.isEmpty()) {
-            return null;
+        long deadline = System.nanoTime() + SPECTATOR_FRAME_BUDGET_NANOS;
+        int applied = 0;
+        char lastColor = ' ';
+        List<Move> lastFlips = List.of();
+
+        while (now >= nextPlyDue && System.nanoTime() < deadline) {
+            Move ply = spectatorFeed.poll();
+            if (ply == null) {
+                // The producer is slower than the playback speed, don't build up credit.
+                nextPlyDue = now;
+                break;
+            }
+            lastColor = spectatorTurn;
+            lastFlips = applySpectatorPly(ply);
+            applied++;
+            nextPlyDue += interval;
+        }
+
+        spectatorBacklog.record(spectatorFeed.getBacklog());
+        if (applied > 0) {
+            isPlayer1Turn = spectatorTurn == 'B';
+            refreshBoardUI(cells);
+            if (applied == 1) {
+                for (Move flippedMove : lastFlips) {
+                    Circle disk = (Circle) cells[flippedMove.getRow()][flippedMove.getCol()].getChildren().get(1);
+                    animateDiskFlip(disk, lastColor == 'B' ? Color.WHITE : Color.BLACK, lastColor == 'B' ? Color.BLACK : Color.WHITE);
+                }
+            } else {
+                logger.fine("Spectator frame coalesced " + applied + " plies, backlog " + spectatorFeed.getBacklog() + ".");
+            }
+        }
+
+        if (spectatorFeed.isDrained()) {
+            int blackScore = board.getScore('B');
+            int whiteScore = board.getScore('W');
+            char winner = board.getWinner();
+            String result = winner == 'D' ? "It's a draw." : "The winner is: " + (winner == 'B' ? player1obj.getName() : player2obj.getName());
+            spectatorTimer.stop();
+            spectatorTimer = null;
+            headlessMatch = null;
+            spectating = false;
+            message.setText(result + " (Black: " + blackScore + ", White: " + whiteScore + ")");
+            logger.info("Spectator mode finished. " + result);
         }
+    }
 
-        Random rand = new Random();
-        Move selectedMove = legalMoves.get(rand.nextInt(legalMoves.size()));
-        logger.info("AI selects move: (" + selectedMove.getRow() + ", " + selectedMove.getCol() + ")");
+    /**
+     * Applies one ply of the spectated game to the board and the history, without touching the cells.
+     * A move that the side to move cannot play but its opponent can is treated as following an implicit pass.
+     *
+     * @param ply The move to apply, or (-1, -1) for a pass.
+     * @return The list of flipped pieces.
+     */
+    private List<Move> applySpectatorPly(Move ply) {
+        Player mover = spectatorTurn == 'B' ? player1obj : player2obj;
+        char opponent = spectatorTurn == 'B' ? 'W' : 'B';
+
+        if (ply.isPass()) {
+            addMoveToHistory(mover, new Move(-1, -1), 0);
+            spectatorTurn = opponent;
+            return List.of();
+        }
+        if (!board.isLegalMove(ply, spectatorTurn) && board.isLegalMove(ply, opponent)) {
+            addMoveToHistory(mover, new Move(-1, -1), 0);
+            spectatorTurn = opponent;
+            mover = spectatorTurn == 'B' ? player1obj : player2obj;
+            opponent = spectatorTurn == 'B' ? 'W' : 'B';
+        }
 
-        return new int[]{selectedMove.getRow(), selectedMove.getCol()};
+        List<Move> flippedMoves = board.makeMove(spectatorTurn, ply);
+        addMoveToHistory(mover, ply, flippedMoves.size());
+        spectatorTurn = opponent;
+        return flippedMoves;
     }
 
     /**
@@ -773,7 +1628,7 @@ public class OthelloJavaFx extends Application {
             if (board.hasLegalMove(player1obj.getColor())) {
                 return;
             } else if (board.hasLegalMove(player2obj.getColor())) {
-                showPassMessage(player1obj.getName());
+                showPassMessage(player1obj);
                 isPlayer1Turn = false;
                 updateTurnMessage();
 
@@ -789,7 +1644,7 @@ public class OthelloJavaFx extends Application {
                     handleAIMove(buttons);
                 }
             } else if (board.hasLegalMove(player1obj.getColor())) {
-                showPassMessage(player2obj.getName());
+                showPassMessage(player2obj);
                 isPlayer1Turn = true;
                 updateTurnMessage();
             } else {
@@ -809,6 +1664,10 @@ public class OthelloJavaFx extends Application {
             logger.warning("Players are not initialized. Please start a new game.");
             return;
         }
+        if (spectating) {
+            logger.info("Spectator mode is running, ignoring click at (" + row + ", " + col + ").");
+            return;
+        }
 
         char currentColor = isPlayer1Turn ? player1obj.getColor() : player2obj.getColor();
         logger.info("Player " + (isPlayer1Turn ? "1" : "2") + " (" + currentColor + ") clicked on (" + row + ", " + col + ").");
@@ -816,8 +1675,9 @@ public class OthelloJavaFx extends Application {
 
         if (board.isLegalMove(new Move(row, col), currentColor)) {
             Player currentPlayer = isPlayer1Turn ? player1obj : player2obj;
+            redoStack.clear();
             List<Move> flippedMoves = board.makeMove(currentColor, new Move(row, col));
-            addMoveToHistory(currentPlayer.getName(), row, col);
+            addMoveToHistory(currentPlayer, new Move(row, col), flippedMoves.size());
             refreshBoardUI(cells);
 
             for (Move flippedMove : flippedMoves) {
@@ -878,10 +1738,17 @@ public class OthelloJavaFx extends Application {
         rotateIn.setToAngle(360);
 
         SequentialTransition flipTransition = new SequentialTransition(rotateOut, rotateIn);
+        flipTransition.setOnFinished(event -> runningFlips--);
+        animationBacklog.record(runningFlips++);
         flipTransition.play();
     }
 
     private void highlightValidMoves() {
+        clearHint();
+        if (spectating) {
+            clearHighlights();
+            return;
+        }
         if (!gameStarted || player1obj == null || player2obj == null) {
             logger.info("Players are not initialized. Skipping move highlighting.");
             clearHighlights();
@@ -925,6 +1792,274 @@ public class OthelloJavaFx extends Application {
         }
     }
 
+    /**
+     * Starts or stops the live analysis to follow the position on the board.
+     * Only the moves of a human player are analysed, so the analysis never competes with the AI.
+     */
+    private void updateAnalysis() {
+        if (analysis == null) {
+            return;
+        }
+        if (!analysisEnabled || !gameStarted || spectating || player1obj == null || !isCurrentPlayerHuman()) {
+            analysis.stop();
+            showAnalysis(null);
+            analysisGames.setText("");
+            return;
+        }
+        char currentColor = isPlayer1Turn ? player1obj.getColor() : player2obj.getColor();
+        analysis.analyze(board, currentColor);
+        showPositionStats(currentColor);
+    }
+
+    /**
+     * Prepares the hint of the position as soon as it is a human player's turn, so that the Hint button
+     * answers without delay, and enables the button only then.
+     */
+    private void updateHint() {
+        char currentColor = player1obj == null || player2obj == null ? ' '
+                : isPlayer1Turn ? player1obj.getColor() : player2obj.getColor();
+        boolean humanToMove = gameStarted && !spectating && currentColor != ' ' && isCurrentPlayerHuman()
+                && board.hasLegalMove(currentColor);
+        hintButton.setDisable(!humanToMove);
+        if (humanToMove) {
+            hints().prepare(board, currentColor);
+        } else if (hints != null) {
+            hints.cancel();
+        }
+    }
+
+    /**
+     * Gets the hint service, started on first use.
+     *
+     * @return The hint service.
+     */
+    private HintService hints() {
+        if (hints == null) {
+            hints = new HintService();
+        }
+        return hints;
+    }
+
+    /**
+     * Outlines the square of a hint and tells its score; the outline goes at the next move.
+     *
+     * @param hint The hint of the position on the board.
+     */
+    private void showHint(HintService.Hint hint) {
+        clearHint();
+        hintedCell = cells[hint.move().getRow()][hint.move().getCol()];
+        Rectangle background = (Rectangle) hintedCell.getChildren().get(0);
+        background.setStroke(Color.GOLD);
+        background.setStrokeWidth(3);
+        message.setText("Hint: " + GameTranscript.toNotation(hint.move()) + " (" + (hint.score() > 0 ? "+" : "") + hint.score() + ")");
+        logger.info("Hint shown: " + GameTranscript.toNotation(hint.move()) + ".");
+    }
+
+    /**
+     * Removes the outline of the last hint, if any.
+     */
+    private void clearHint() {
+        if (hintedCell != null) {
+            Rectangle background = (Rectangle) hintedCell.getChildren().get(0);
+            background.setStroke(Color.BLACK);
+            background.setStrokeWidth(1);
+            hintedCell = null;
+        }
+    }
+
+    /**
+     * Shows how the position on the board fared in earlier games, from the position database.
+     * A lookup is a probe of the memory-mapped index and one read, so it is done on the FX thread.
+     *
+     * @param currentColor The player to move.
+     */
+    private void showPositionStats(char currentColor) {
+        PositionDatabase.Stats stats = null;
+        PositionDatabase database = positionDatabase();
+        if (database != null) {
+            try {
+                stats = database.lookup(board, currentColor);
+            } catch (IOException ex) {
+                logger.warning("Could not read the position database: " + ex.getMessage());
+            }
+        }
+        if (stats == null) {
+            analysisGames.setText("No game reached this position.");
+            return;
+        }
+        String best = stats.bestMove() == PositionDatabase.NO_MOVE ? "-"
+                : GameTranscript.toNotation(new Move(stats.bestMove() / board.getSize(), stats.bestMove() % board.getSize()));
+        analysisGames.setText(String.format("%d games: %d won, %d drawn, %d lost (%.0f%%)%nBest move: %s",
+                stats.visits(), stats.wins(), stats.draws(), stats.losses(), 100 * stats.score(), best));
+    }
+
+    /**
+     * Adds a finished game to the position database, on the database thread.
+     *
+     * @param finished A copy of the record of the game.
+     */
+    private void addToPositionDatabase(GameRecord finished) {
+        PositionDatabase database = positionDatabase();
+        if (database == null) {
+            return;
+        }
+        try {
+            database.ingest(finished);
+        } catch (IOException ex) {
+            logger.warning("Could not add the game to the position database: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Opens the position database on first use, from the FX thread or the database thread.
+     *
+     * @return The database, or null if it could not be opened.
+     */
+    private synchronized PositionDatabase positionDatabase() {
+        if (positionDatabase == null && !positionDatabaseFailed) {
+            try {
+                positionDatabase = PositionDatabase.open(POSITION_DATABASE_DIR);
+                logger.info("Position database: " + positionDatabase.size() + " positions.");
+            } catch (IOException ex) {
+                positionDatabaseFailed = true;
+                logger.warning("Could not open the position database: " + ex.getMessage());
+            }
+        }
+        return positionDatabase;
+    }
+
+    /**
+     * Logs and records the time from the start of the process to the first frame of the window,
+     * the startup time a player sees (JVM and JavaFX startup included).
+     */
+    private void reportStartup() {
+        Optional<Instant> processStart = ProcessHandle.current().info().startInstant();
+        if (processStart.isEmpty()) {
+            return;
+        }
+        long micros = ChronoUnit.MICROS.between(processStart.get(), Instant.now());
+        startupTime.record(micros);
+        logger.info("Window shown " + micros / 1000 + " ms after the process started.");
+        if (ScriptedLaunch.isActive()) {
+            ScriptedLaunch.report(ScriptedLaunch.FIRST_FRAME);
+            playScriptedLaunch();
+        }
+    }
+
+    /**
+     * Plays the script of {@link ScriptedLaunch} once the window is shown: an AI move,
+     * then a game between AIs watched at full speed, then quits.
+     */
+    private void playScriptedLaunch() {
+        Thread script = new Thread(() -> {
+            ScriptedLaunch.playFirstAIMove();
+            Platform.runLater(() -> {
+                SpectatorFeed feed = new SpectatorFeed();
+                HeadlessMatch match = new HeadlessMatch(feed, ScriptedLaunch.getMatchDepth(), ScriptedLaunch.getMatchDepth());
+                headlessMatch = match;
+                Thread matchThread = new Thread(match, "headless-match");
+                matchThread.setDaemon(true);
+                matchThread.start();
+                spectatorSpeed.setValue(spectatorSpeed.getMax());
+                startSpectating(feed, Board.DEFAULT_SIZE, "Black AI", "White AI");
+                new AnimationTimer() {
+                    @Override
+                    public void handle(long now) {
+                        if (!spectating) {
+                            stop();
+                            try {
+                                ScriptedLaunch.finish(match.getRecord());
+                            } catch (IOException ex) {
+                                logger.warning("Could not save the scripted game: " + ex.getMessage());
+                            }
+                            Platform.exit();
+                        }
+                    }
+                }.start();
+            });
+        }, "scripted-launch");
+        script.setDaemon(true);
+        script.start();
+    }
+
+    /**
+     * Builds the analysis side panel, the first time live analysis is turned on,
+     * so that starting the game does not pay for a panel most games never show.
+     *
+     * @return The panel.
+     */
+    private VBox buildAnalysisPanel() {
+        analysisDepth = new Label("Depth: -");
+        analysisDepth.setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-text-fill: #000000;");
+        analysisLine = new Label();
+        analysisLine.setWrapText(true);
+        analysisLine.setStyle("-fx-font-size: 14px; -fx-text-fill: #000000;");
+        analysisGames = new Label();
+        analysisGames.setWrapText(true);
+        analysisGames.setStyle("-fx-font-size: 14px; -fx-text-fill: #000000;");
+        VBox panel = new VBox(10, new Label("Analysis") {{
+            setStyle("-fx-font-size: 24px; -fx-font-weight: bold; -fx-text-fill: #ffffff;");
+        }}, analysisDepth, new Label("Best line:") {{
+            setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-text-fill: #000000;");
+        }}, analysisLine, new Label("Earlier games:") {{
+            setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-text-fill: #000000;");
+        }}, analysisGames);
+        panel.setPadding(new Insets(10, 10, 10, 10));
+        panel.setPrefWidth(180);
+        panel.setMaxHeight(400);
+        panel.setBackground(new Background(new BackgroundFill(Color.rgb(254, 254, 254, 0.3),
+                new CornerRadii(10), Insets.EMPTY)));
+        return panel;
+    }
+
+    /**
+     * Receives a snapshot from the analysis threads and hands it to the FX thread.
+     * Only the latest snapshot is kept, so at most one Platform.runLater is pending at any time.
+     *
+     * @param snapshot The latest analysis results.
+     */
+    private void publishAnalysis(AnalysisService.Snapshot snapshot) {
+        if (pendingAnalysis.getAndSet(snapshot) == null) {
+            Platform.runLater(() -> showAnalysis(pendingAnalysis.getAndSet(null)));
+        }
+    }
+
+    /**
+     * Shows the analysis results on the board and in the side panel.
+     *
+     * @param snapshot The results to show, or null to clear them.
+     */
+    private void showAnalysis(AnalysisService.Snapshot snapshot) {
+        char currentColor = player1obj == null ? ' ' : isPlayer1Turn ? player1obj.getColor() : player2obj.getColor();
+        boolean current = snapshot != null && analysisEnabled && gameStarted && snapshot.side() == currentColor;
+
+        for (int i = 0; i < board.getSize(); i++) {
+            for (int j = 0; j < board.getSize(); j++) {
+                Text score = (Text) cells[i][j].getChildren().get(3);
+                int value = current ? snapshot.scores()[i * board.getSize() + j] : AnalysisService.NO_SCORE;
+                if (value == AnalysisService.NO_SCORE || board.getPiece(new Move(i, j)) != ' ') {
+                    score.setVisible(false);
+                } else {
+                    score.setText((value > 0 ? "+" : "") + value);
+                    score.setFill(value >= 0 ? Color.YELLOW : Color.ORANGERED);
+                    score.setVisible(true);
+                }
+            }
+        }
+
+        if (!current) {
+            analysisDepth.setText("Depth: -");
+            analysisLine.setText("");
+            return;
+        }
+        StringBuilder line = new StringBuilder();
+        for (Move move : snapshot.bestLine()) {
+            line.append(move.isPass() ? "--" : GameTranscript.toNotation(move)).append(' ');
+        }
+        analysisDepth.setText("Depth: " + snapshot.depth());
+        analysisLine.setText(line.toString().trim());
+    }
+
     /**
      * Clears all previous highlights from the board.
      */
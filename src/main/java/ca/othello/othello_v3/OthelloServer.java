@@ -0,0 +1,406 @@
+package ca.othello.othello_v3;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+
+/**
+ * Headless server giving access to the board and the AI over a line-based text protocol.
+ * One selector thread serves every connection; AI searches run on the bounded search pool of a
+ * {@link SessionHost} and their answers are handed back to the selector thread,
+ * so thousands of idle sessions cost no thread.
+ * <p>
+ * Each connection is one game. Squares use transcript notation (e.g. "f5"). Commands:
+ * <pre>
+ * NEW          start a new game              -> OK
+ * BOARD        show the position             -> BOARD &lt;64 squares, B W or .&gt; &lt;side to move&gt;
+ * MOVES        legal moves of the side to move -> MOVES f5 d6 ... | MOVES pass | GAMEOVER &lt;winner&gt; &lt;black&gt; &lt;white&gt;
+ * PLAY &lt;sq&gt;    play a move, or "pass"        -> OK | ERR &lt;reason&gt;
+ * AI &lt;ms&gt;      best move within the budget   -> MOVE &lt;sq&gt; | MOVE pass | GAMEOVER ...
+ * METRICS      latency histograms of the process -> METRICS &lt;JSON object&gt;
+ * QUIT         close the connection          -> BYE
+ * </pre>
+ */
+public class OthelloServer implements Runnable, AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(OthelloServer.class.getName());
+    private static final int MAX_LINE_LENGTH = 256;
+    private static final long MAX_AI_BUDGET_MS = 10_000;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final SessionHost host;
+    private final boolean ownsHost;
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    /**
+     * One client connection and its game.
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final GameSession session;
+        final ByteBuffer input = ByteBuffer.allocate(MAX_LINE_LENGTH);
+        final Queue<ByteBuffer> output = new ArrayDeque<>();
+        boolean searching;
+        boolean closing;
+
+        Connection(SocketChannel channel, GameSession session) {
+            this.channel = channel;
+            this.session = session;
+        }
+    }
+
+    /**
+     * Open a server on the given port of the loopback interface.
+     *
+     * @param port          the port, 0 to pick a free one
+     * @param searchThreads the number of threads running AI searches
+     * @throws IOException if the port cannot be bound
+     */
+    public OthelloServer(int port, int searchThreads) throws IOException {
+        this(new InetSocketAddress("127.0.0.1", port), new SessionHost(searchThreads), true);
+    }
+
+    /**
+     * Open a server on the given address, hosting its games in the given host.
+     *
+     * @param address the address to bind
+     * @param host    the host of the sessions, left open when the server closes
+     * @throws IOException if the address cannot be bound
+     */
+    public OthelloServer(InetSocketAddress address, SessionHost host) throws IOException {
+        this(address, host, false);
+    }
+
+    private OthelloServer(InetSocketAddress address, SessionHost host, boolean ownsHost) throws IOException {
+        this.host = host;
+        this.ownsHost = ownsHost;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(address, 1024);
+        this.serverChannel.configureBlocking(false);
+        this.serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Get the port the server listens on.
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Serve connections until {@link #close()} is called.
+     */
+    @Override
+    public void run() {
+        logger.info("Othello server listening on port " + getPort() + ".");
+        while (running) {
+            try {
+                selector.select();
+                Runnable task;
+                while ((task = selectorTasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handleKey(key);
+                }
+            } catch (ClosedSelectorException e) {
+                // close() was called from another thread during select() or while the keys were handled
+                break;
+            } catch (CancelledKeyException e) {
+                // A connection closed by close() while its key was handled; the loop ends with the flag
+                logger.fine("Connection closed during shutdown.");
+            } catch (IOException e) {
+                logger.warning("Selector failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stop serving and close every connection.
+     *
+     * @throws IOException if closing the server socket fails
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        if (ownsHost) {
+            host.close();
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection) {
+                host.close(connection.session.getId());
+            }
+            key.channel().close();
+        }
+        serverChannel.close();
+        selector.close();
+    }
+
+    private void handleKey(SelectionKey key) {
+        try {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isAcceptable()) {
+                SocketChannel channel = serverChannel.accept();
+                if (channel != null) {
+                    channel.configureBlocking(false);
+                    GameSession session = host.open("Black", "White");
+                    channel.register(selector, SelectionKey.OP_READ, new Connection(channel, session));
+                }
+                return;
+            }
+            Connection connection = (Connection) key.attachment();
+            if (key.isReadable()) {
+                read(key, connection);
+            }
+            if (key.isValid() && key.isWritable()) {
+                write(key, connection);
+            }
+        } catch (IOException e) {
+            logger.fine("Connection closed: " + e.getMessage());
+            closeQuietly(key);
+        }
+    }
+
+    private void read(SelectionKey key, Connection connection) throws IOException {
+        if (connection.channel.read(connection.input) < 0) {
+            closeQuietly(key);
+            return;
+        }
+        processLines(key, connection);
+    }
+
+    /**
+     * Execute every complete line in the input buffer, stopping while an AI search is pending.
+     * The connection is not read while a search is pending, so the commands sent meanwhile wait in the socket
+     * and are only taken as too long a line if the buffer is full once every complete line has been executed.
+     */
+    private void processLines(SelectionKey key, Connection connection) {
+        ByteBuffer input = connection.input;
+        input.flip();
+        int start = 0;
+        for (int i = 0; i < input.limit() && !connection.searching && !connection.closing; i++) {
+            if (input.get(i) == '\n') {
+                String line = new String(input.array(), start, i - start, StandardCharsets.US_ASCII).trim();
+                start = i + 1;
+                if (!line.isEmpty()) {
+                    String response = execute(key, connection, line);
+                    if (response != null) {
+                        reply(key, connection, response);
+                    }
+                }
+            }
+        }
+        input.position(start);
+        input.compact();
+        if (connection.searching) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        } else if (!input.hasRemaining()) {
+            reply(key, connection, "ERR line too long");
+            connection.closing = true;
+        } else {
+            key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        }
+    }
+
+    private void write(SelectionKey key, Connection connection) throws IOException {
+        while (!connection.output.isEmpty()) {
+            ByteBuffer buffer = connection.output.peek();
+            connection.channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                return;
+            }
+            connection.output.poll();
+        }
+        if (connection.closing) {
+            closeQuietly(key);
+        } else {
+            key.interestOps(connection.searching ? 0 : SelectionKey.OP_READ);
+        }
+    }
+
+    private void reply(SelectionKey key, Connection connection, String response) {
+        connection.output.add(ByteBuffer.wrap((response + "\n").getBytes(StandardCharsets.US_ASCII)));
+        if (key.isValid()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Execute one command of the protocol.
+     *
+     * @return the response, or null if it will be sent once a search completes
+     */
+    private String execute(SelectionKey key, Connection connection, String line) {
+        String[] parts = line.split("\\s+");
+        String command = parts[0].toUpperCase();
+        GameSession session = connection.session;
+        switch (command) {
+            case "NEW":
+                session.reset();
+                return "OK";
+            case "BOARD":
+                return "BOARD " + squares(session.getBoard()) + " " + session.getTurn();
+            case "MOVES": {
+                if (session.isGameOver()) {
+                    return gameOver(session.getBoard());
+                }
+                List<Move> moves = session.getLegalMoves();
+                if (moves.isEmpty()) {
+                    return "MOVES pass";
+                }
+                StringBuilder response = new StringBuilder("MOVES");
+                for (Move move : moves) {
+                    response.append(' ').append(GameTranscript.toNotation(move));
+                }
+                return response.toString();
+            }
+            case "PLAY":
+                return parts.length < 2 ? "ERR missing move" : play(connection, parts[1]);
+            case "AI":
+                return requestAIMove(key, connection, parts.length < 2 ? "1000" : parts[1]);
+            case "METRICS":
+                return "METRICS " + Metrics.toJson();
+            case "QUIT":
+                connection.closing = true;
+                return "BYE";
+            default:
+                return "ERR unknown command " + parts[0];
+        }
+    }
+
+    private String play(Connection connection, String square) {
+        GameSession session = connection.session;
+        if (session.isGameOver()) {
+            return gameOver(session.getBoard());
+        }
+        if (square.equalsIgnoreCase("pass")) {
+            return session.play(new Move(-1, -1)) ? "OK" : "ERR cannot pass with legal moves";
+        }
+        Move move = parseSquare(square);
+        return move != null && session.play(move) ? "OK" : "ERR illegal move " + square;
+    }
+
+    private String requestAIMove(SelectionKey key, Connection connection, String budget) {
+        long budgetMs;
+        try {
+            budgetMs = Math.min(MAX_AI_BUDGET_MS, Math.max(1, Long.parseLong(budget)));
+        } catch (NumberFormatException e) {
+            return "ERR invalid budget " + budget;
+        }
+        GameSession session = connection.session;
+        if (session.isGameOver()) {
+            return gameOver(session.getBoard());
+        }
+
+        connection.searching = true;
+        host.requestAIMove(session, budgetMs).whenComplete((move, error) -> {
+            String response = error != null ? "ERR search failed"
+                    : move == null ? gameOver(session.getBoard())
+                    : move.isPass() ? "MOVE pass"
+                    : "MOVE " + GameTranscript.toNotation(move);
+            selectorTasks.add(() -> {
+                connection.searching = false;
+                reply(key, connection, response);
+                if (key.isValid()) {
+                    processLines(key, connection);
+                }
+            });
+            selector.wakeup();
+        });
+        return null;
+    }
+
+    private static String gameOver(Board board) {
+        return "GAMEOVER " + board.getWinner() + " " + board.getScore('B') + " " + board.getScore('W');
+    }
+
+    private static String squares(Board board) {
+        StringBuilder squares = new StringBuilder(board.getSize() * board.getSize());
+        for (int i = 0; i < board.getSize(); i++) {
+            for (int j = 0; j < board.getSize(); j++) {
+                char piece = board.getPiece(new Move(i, j));
+                squares.append(piece == ' ' ? '.' : piece);
+            }
+        }
+        return squares.toString();
+    }
+
+    private static Move parseSquare(String square) {
+        if (square.length() != 2) {
+            return null;
+        }
+        int col = Character.toLowerCase(square.charAt(0)) - 'a';
+        int row = square.charAt(1) - '1';
+        return (col < 0 || col >= 8 || row < 0 || row >= 8) ? null : new Move(row, col);
+    }
+
+    private void closeQuietly(SelectionKey key) {
+        if (key.attachment() instanceof Connection connection) {
+            host.close(connection.session.getId());
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            logger.fine("Error closing connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Start a server from the command line.
+     *
+     * @param args optional port (default 5555), number of search threads (default: number of cores)
+     *             and position cache file, loaded at startup and saved at shutdown (default: none)
+     * @throws IOException if the server cannot be started
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 5555;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        if (args.length > 2) {
+            Path cacheFile = Path.of(args[2]);
+            if (Files.exists(cacheFile)) {
+                try {
+                    PositionCache.getShared().load(cacheFile);
+                } catch (IOException e) {
+                    logger.warning("Could not load the position cache: " + e.getMessage());
+                }
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    PositionCache.getShared().save(cacheFile);
+                } catch (IOException e) {
+                    logger.warning("Could not save the position cache: " + e.getMessage());
+                }
+            }));
+        }
+        try (OthelloServer server = new OthelloServer(port, threads)) {
+            server.run();
+        }
+    }
+}
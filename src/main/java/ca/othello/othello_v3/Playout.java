@@ -0,0 +1,141 @@
+package ca.othello.othello_v3;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Random games played to the end on bit boards, as fast as possible: for Monte Carlo search,
+ * the playout evaluator and statistics over random games.
+ * <ul>
+ *     <li>A position is two longs, and moves are generated with {@link BitBoard} and played with {@link FlipTables}: nothing is allocated.</li>
+ *     <li>The random numbers come from a xorshift64* generator held in the instance: a few
+ *     arithmetic operations per number and no synchronization.</li>
+ *     <li>The random move is chosen without looking at each legal move: the index is drawn with
+ *     a multiplication instead of a division, and the square of that index is found with
+ *     {@link Long#expand(long, long)}, a single instruction on most processors.</li>
+ * </ul>
+ * An instance is not thread safe; use {@link #current()} for one per thread, or one instance per thread
+ * created with a seed for repeatable games.
+ *
+ * @see MctsAI
+ * @see Evaluator#PLAYOUTS
+ */
+public final class Playout {
+
+    private static final ThreadLocal<Playout> CURRENT =
+            ThreadLocal.withInitial(() -> new Playout(ThreadLocalRandom.current().nextLong()));
+
+    private long state;
+
+    /**
+     * Constructor for a generator of repeatable games.
+     *
+     * @param seed the seed of the random moves
+     */
+    public Playout(long seed) {
+        setSeed(seed);
+    }
+
+    /**
+     * Get the instance of the calling thread, seeded at random.
+     *
+     * @return the instance of the thread
+     */
+    public static Playout current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Restart the random moves from a seed.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        // The state of xorshift must not be 0; mix the seed so close seeds give unrelated games
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        state = z != 0 ? z : 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Get the next random number.
+     *
+     * @return a random long
+     */
+    public long nextLong() {
+        long x = state;
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        state = x;
+        return x * 0x2545F4914F6CDD1DL;
+    }
+
+    /**
+     * Get a random number below a bound.
+     *
+     * @param bound the bound, positive and at most 2^31 - 1
+     * @return a random int between 0 (inclusive) and bound (exclusive)
+     */
+    public int nextInt(int bound) {
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Choose one square of a set at random.
+     *
+     * @param squares the squares, as a bit board
+     * @return the square chosen, row * 8 + col, or -1 if the set is empty
+     */
+    public int randomSquare(long squares) {
+        if (squares == 0) {
+            return -1;
+        }
+        int index = nextInt(Long.bitCount(squares));
+        return Long.numberOfTrailingZeros(Long.expand(1L << index, squares));
+    }
+
+    /**
+     * Play random moves from a position until neither player can move.
+     *
+     * @param own the pieces of the player to move
+     * @param opp the pieces of the opponent
+     * @return the number of pieces of the player to move minus those of the opponent at the end
+     */
+    public int play(long own, long opp) {
+        boolean swapped = false;
+        boolean passed = false;
+        while (true) {
+            long moves = BitBoard.legalMoves(own, opp);
+            if (moves != 0) {
+                passed = false;
+                int square = Long.numberOfTrailingZeros(Long.expand(1L << nextInt(Long.bitCount(moves)), moves));
+                long flipped = FlipTables.flips(own, opp, square);
+                own |= flipped | (1L << square);
+                opp &= ~flipped;
+            } else if (passed) {
+                break;
+            } else {
+                passed = true;
+            }
+            long swap = own;
+            own = opp;
+            opp = swap;
+            swapped = !swapped;
+        }
+        int difference = Long.bitCount(own) - Long.bitCount(opp);
+        return swapped ? -difference : difference;
+    }
+
+    /**
+     * Play random moves from a board until neither player can move.
+     *
+     * @param board  the position, left unchanged
+     * @param player the player (character) to move
+     * @return the number of pieces of the player minus those of the opponent at the end
+     */
+    public int play(Board board, char player) {
+        return play(board.getBitBoard(player), board.getBitBoard(player == 'W' ? 'B' : 'W'));
+    }
+}
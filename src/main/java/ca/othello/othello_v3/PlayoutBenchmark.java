@@ -0,0 +1,78 @@
+package ca.othello.othello_v3;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Plays random games from the start position with the {@link Playout} kernel and with {@link Board},
+ * choosing moves from {@link Board#getAllLegalMoves(char)} with a new {@link Random} each time as the
+ * random AI used to, and reports the playouts per second of each, with the results of the games:
+ * <pre>
+ * java ca.othello.othello_v3.PlayoutBenchmark [playouts=2000000] [seed=1]
+ * </pre>
+ * The kernel runs on the calling thread only, so its figure is per core. The board games are
+ * 1/100 of the kernel's, as they are much slower.
+ */
+public class PlayoutBenchmark {
+
+    private static final int WARM_UP_PLAYOUTS = 200_000;
+
+    public static void main(String[] args) {
+        int playouts = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+
+        Board start = new Board();
+        long black = start.getBitBoard('B');
+        long white = start.getBitBoard('W');
+        Playout playout = new Playout(seed);
+        for (int i = 0; i < WARM_UP_PLAYOUTS; i++) {
+            playout.play(black, white);
+        }
+
+        playout.setSeed(seed);
+        int blackWins = 0;
+        int draws = 0;
+        long totalDifference = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < playouts; i++) {
+            int difference = playout.play(black, white);
+            totalDifference += difference;
+            if (difference > 0) {
+                blackWins++;
+            } else if (difference == 0) {
+                draws++;
+            }
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.printf("Playout kernel: %d playouts in %.2f s, %.0f playouts per second, %.0f ns per playout%n",
+                playouts, seconds, playouts / seconds, seconds * 1e9 / playouts);
+        System.out.printf("Results:        black %.2f%%, draw %.2f%%, white %.2f%%, mean disc difference %+.3f%n",
+                100.0 * blackWins / playouts, 100.0 * draws / playouts,
+                100.0 * (playouts - blackWins - draws) / playouts, (double) totalDifference / playouts);
+
+        int boardPlayouts = Math.max(1, playouts / 100);
+        begin = System.nanoTime();
+        long boardDifference = 0;
+        for (int i = 0; i < boardPlayouts; i++) {
+            boardDifference += playBoard();
+        }
+        seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.printf("Board:          %d playouts in %.2f s, %.0f playouts per second, %.0f ns per playout"
+                        + " (mean disc difference %+.3f)%n",
+                boardPlayouts, seconds, boardPlayouts / seconds, seconds * 1e9 / boardPlayouts,
+                (double) boardDifference / boardPlayouts);
+    }
+
+    private static int playBoard() {
+        Board board = new Board();
+        char side = 'B';
+        while (!board.isGameOver()) {
+            List<Move> legalMoves = board.getAllLegalMoves(side);
+            if (!legalMoves.isEmpty()) {
+                board.makeMove(side, legalMoves.get(new Random().nextInt(legalMoves.size())));
+            }
+            side = (side == 'B') ? 'W' : 'B';
+        }
+        return board.getScore('B') - board.getScore('W');
+    }
+}
@@ -0,0 +1,218 @@
+package ca.othello.othello_v3;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * A cache of AI answers: the best move and score of a position for given search settings.
+ * The least recently used answer is evicted once the cache holds its maximum number of entries.
+ * All methods are synchronized, so one cache can be shared by every AI of the process.
+ * The cache can be saved to and loaded from a file to survive restarts.
+ *
+ * @see IntelligentAI#setPositionCache(PositionCache)
+ */
+public class PositionCache {
+
+    private static final Logger logger = Logger.getLogger(PositionCache.class.getName());
+
+    private static final int MAGIC = 0x4F504333; // "OPC3"
+    private static final int DEFAULT_ENTRIES = Integer.getInteger("othello.cache.entries", 100_000);
+    private static final PositionCache shared = new PositionCache(DEFAULT_ENTRIES);
+
+    /**
+     * The position and the settings of a search.
+     *
+     * @param hash      the hash of the position, including the side to move
+     * @param depth     the search depth, or 0 for a timed search
+     * @param budgetMs  the time budget of a timed search in milliseconds, 0 for a fixed depth search,
+     *                  or -1 for a deterministic search (see {@link IntelligentAI#setDeterministic(boolean)})
+     * @param nodeLimit the node limit of the search, or 0 for none
+     * @param evaluator the identifier of the evaluator, see {@link Evaluator#getCacheId()}
+     */
+    public record Key(long hash, int depth, long budgetMs, long nodeLimit, int evaluator) {
+    }
+
+    /**
+     * The answer of a search.
+     *
+     * @param square the best move as row * size + col
+     * @param score  the score of the best move, from the point of view of the side to move
+     */
+    public record Result(int square, int score) {
+    }
+
+    private final int maxEntries;
+    private final LinkedHashMap<Key, Result> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructor for an empty cache.
+     *
+     * @param maxEntries the maximum number of answers kept
+     */
+    public PositionCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+                if (size() > PositionCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the cache shared by the whole process.
+     * Its size is set by the system property othello.cache.entries (100000 by default).
+     *
+     * @return the shared cache
+     */
+    public static PositionCache getShared() {
+        return shared;
+    }
+
+    /**
+     * Look up the answer of a search, marking it as recently used.
+     *
+     * @param key the position and search settings
+     * @return the answer, or null if it is not cached
+     */
+    public synchronized Result get(Key key) {
+        Result result = entries.get(key);
+        if (result != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return result;
+    }
+
+    /**
+     * Store the answer of a search.
+     *
+     * @param key    the position and search settings
+     * @param result the answer
+     */
+    public synchronized void put(Key key, Result result) {
+        entries.put(key, result);
+    }
+
+    /**
+     * Remove every answer; the metrics are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Get the number of answers cached.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the number of lookups that found an answer.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of lookups that found no answer.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of answers evicted to make room for newer ones.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long lookups = hits + misses;
+        return String.format("%d/%d entries, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                entries.size(), maxEntries, hits, misses, lookups == 0 ? 0.0 : 100.0 * hits / lookups, evictions);
+    }
+
+    /**
+     * Save the answers to a file, least recently used first, replacing the file atomically.
+     *
+     * @param path the file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path) throws IOException {
+        List<Map.Entry<Key, Result>> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(entries.entrySet());
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<Key, Result> entry : snapshot) {
+                out.writeLong(entry.getKey().hash());
+                out.writeInt(entry.getKey().depth());
+                out.writeLong(entry.getKey().budgetMs());
+                out.writeLong(entry.getKey().nodeLimit());
+                out.writeInt(entry.getKey().evaluator());
+                out.writeByte(entry.getValue().square());
+                out.writeInt(entry.getValue().score());
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Saved " + snapshot.size() + " cached positions to " + path + ".");
+    }
+
+    /**
+     * Load the answers saved in a file, in addition to the cached ones.
+     *
+     * @param path the file
+     * @throws IOException if the file cannot be read or is not a cache file
+     */
+    public void load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a position cache file: " + path);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Key key = new Key(in.readLong(), in.readInt(), in.readLong(), in.readLong(), in.readInt());
+                Result result = new Result(in.readUnsignedByte(), in.readInt());
+                put(key, result);
+            }
+            logger.info("Loaded " + count + " cached positions from " + path + ".");
+        }
+    }
+}
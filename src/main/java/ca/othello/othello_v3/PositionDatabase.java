@@ -0,0 +1,629 @@
+package ca.othello.othello_v3;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+import java.util.logging.Logger;
+
+/**
+ * How positions fared in recorded games, on disk: for each position (side to move included), the number
+ * of games that went through it, how they ended for the side to move, and the best move played from it.
+ * <p>
+ * A database is a directory of two files:
+ * <ul>
+ *     <li>positions.log, an append-only log of fixed-size entries: the key of the position (its hash,
+ *     see {@link Board#getHash(char)}), visits, wins, draws, losses, the best move and the key of the
+ *     position it leads to. Entries are never modified: new results of a position are appended as a new
+ *     entry holding the totals, which supersedes the older ones.</li>
+ *     <li>positions.idx, an open-addressing hash table from the key of a position to the offset of its latest
+ *     entry, memory-mapped, so a lookup is a probe or two of mapped memory and one read of the log.</li>
+ * </ul>
+ * The index is marked as covering the log only between ingests; if it is missing or marked otherwise when
+ * the database is opened, after a crash, it is rebuilt from the log. The index file is only ever grown in place,
+ * never truncated or replaced, since a mapped file cannot be on every system.
+ * <p>
+ * The best move of a position is the move whose resulting position has the best results for the player,
+ * among the best move stored before and the moves played from it in the games merged along with the latest
+ * results (the game of an ingest, or up to a batch of positions of a file): only the best move is stored, so a move
+ * played in earlier games alone is not considered again, even if the results of the stored best move have since
+ * become worse.
+ * Positions with the same 64-bit key share their results.
+ * <p>
+ * All methods are synchronized; only one process may open a database at a time.
+ * <pre>
+ * java ca.othello.othello_v3.PositionDatabase ingest &lt;directory&gt; games.orec...
+ * java ca.othello.othello_v3.PositionDatabase lookup &lt;directory&gt; [transcript]
+ * </pre>
+ *
+ * @see GameRecordReader
+ */
+public final class PositionDatabase implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(PositionDatabase.class.getName());
+
+    /** The best move of a position from which no move was played. */
+    public static final int NO_MOVE = -1;
+
+    private static final String LOG_FILE = "positions.log";
+    private static final String INDEX_FILE = "positions.idx";
+
+    // Log entry: key, visits, wins, draws, losses, best move, unused, key of the position after the best move
+    private static final int ENTRY_LENGTH = 40;
+
+    // Index: magic, version, capacity, number of positions, length of the log covered (-1 while ingesting), slots
+    private static final int INDEX_MAGIC = 0x4F504458; // "OPDX"
+    private static final int INDEX_VERSION = 1;
+    private static final int HEADER_LENGTH = 32;
+    private static final int SLOT_LENGTH = 16;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    // Positions gathered in memory before they are merged into the database
+    private static final int BATCH_POSITIONS = 1 << 17;
+
+    /**
+     * The results of a position for the side to move.
+     *
+     * @param visits   the number of games through the position
+     * @param wins     the number of those games won by the side to move
+     * @param draws    the number of those games drawn
+     * @param losses   the number of those games lost by the side to move
+     * @param bestMove the square (row * size + col) of the best move, {@link #NO_MOVE} if none was played
+     */
+    public record Stats(int visits, int wins, int draws, int losses, int bestMove) {
+
+        /**
+         * Get the mean result of the games for the side to move.
+         *
+         * @return 1 if every game was won, 0 if every game was lost, a draw counting half
+         */
+        public double score() {
+            return visits == 0 ? 0.5 : (wins + draws / 2.0) / visits;
+        }
+    }
+
+    private final Path indexPath;
+    private final FileChannel log;
+    private final ByteBuffer entry = ByteBuffer.allocate(ENTRY_LENGTH);
+    private final ByteBuffer appendBuffer = ByteBuffer.allocateDirect(ENTRY_LENGTH * 8192);
+    private long logLength;
+    private long appended;
+
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int capacity;
+    private long count;
+
+    private final Map<Long, Pending> batch = new HashMap<>();
+
+    private PositionDatabase(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.indexPath = directory.resolve(INDEX_FILE);
+        this.log = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = log.size();
+        logLength = size - size % ENTRY_LENGTH;
+        if (logLength != size) {
+            logger.warning("Dropping a partial entry at the end of " + directory.resolve(LOG_FILE) + ".");
+            log.truncate(logLength);
+        }
+        appended = logLength;
+        if (!openIndex()) {
+            rebuildIndex();
+        }
+    }
+
+    /**
+     * Open a database, creating it if the directory holds none.
+     *
+     * @param directory the directory of the database
+     * @return the database
+     * @throws IOException if the files cannot be opened, created or rebuilt
+     */
+    public static PositionDatabase open(Path directory) throws IOException {
+        return new PositionDatabase(directory);
+    }
+
+    /**
+     * Get the results of a position.
+     *
+     * @param board      the position
+     * @param sideToMove the player (character) to move
+     * @return the results for the side to move, or null if no game went through the position
+     * @throws IOException if the log cannot be read
+     */
+    public Stats lookup(Board board, char sideToMove) throws IOException {
+        return lookup(board.getHash(sideToMove));
+    }
+
+    /**
+     * Get the results of a position.
+     *
+     * @param key the hash of the position, see {@link Board#getHash(char)}
+     * @return the results for the side to move, or null if no game went through the position
+     * @throws IOException if the log cannot be read
+     */
+    public synchronized Stats lookup(long key) throws IOException {
+        long offset = find(key);
+        if (offset < 0) {
+            return null;
+        }
+        readEntry(offset);
+        return new Stats(entry.getInt(8), entry.getInt(12), entry.getInt(16), entry.getInt(20), entry.getInt(24));
+    }
+
+    /**
+     * Add the positions of every remaining game of a reader, as in {@link #ingest(GameRecord)}.
+     *
+     * @param reader the reader, positioned before the first game to add
+     * @return the number of games added
+     * @throws IOException if a file cannot be read or written
+     */
+    public synchronized long ingest(GameRecordReader reader) throws IOException {
+        long games = 0;
+        markIngesting();
+        try {
+            while (reader.next()) {
+                if (addGame(reader.getBoardSize(), reader::getPly, reader.getPlyCount())) {
+                    games++;
+                }
+            }
+        } finally {
+            flushBatch();
+            commit();
+        }
+        return games;
+    }
+
+    /**
+     * Add the positions of a game. Games that are not finished or hold an illegal move are skipped.
+     *
+     * @param record the game
+     * @return true if the game was added
+     * @throws IOException if the files cannot be read or written
+     */
+    public synchronized boolean ingest(GameRecord record) throws IOException {
+        markIngesting();
+        try {
+            return addGame(record.getBoardSize(), record::getPly, record.getPlyCount());
+        } finally {
+            flushBatch();
+            commit();
+        }
+    }
+
+    /**
+     * Get the number of positions in the database.
+     *
+     * @return the number of distinct position keys
+     */
+    public synchronized long size() {
+        return count;
+    }
+
+    /**
+     * Write everything to disk and close the files.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        flushBatch();
+        commit();
+        indexChannel.close();
+        log.close();
+    }
+
+    // ============= Games =============
+
+    /**
+     * Replay a game and add its positions to the batch, merging the batch into the database when it is full.
+     *
+     * @param size      the size of the board
+     * @param plies     the encoded plies of the game, see {@link GameRecord#getPly(int)}
+     * @param plyCount  the number of plies
+     * @return true if the game was added, false if it is not finished or holds an illegal move
+     */
+    private boolean addGame(int size, IntUnaryOperator plies, int plyCount) throws IOException {
+        if (size < Board.MIN_SIZE || size > Board.MAX_SIZE || size % 2 != 0) {
+            return false;
+        }
+        Board board = new Board(size);
+        long[] keys = new long[plyCount + 1];
+        int[] moves = new int[plyCount];
+        char side = 'B';
+        for (int i = 0; i < plyCount; i++) {
+            keys[i] = board.getHash(side);
+            int ply = plies.applyAsInt(i);
+            if (ply == GameRecord.PASS) {
+                moves[i] = NO_MOVE;
+            } else {
+                if (ply >= size * size || !board.isLegalMove(new Move(ply / size, ply % size), side)) {
+                    return false;
+                }
+                board.makeMove(side, ply);
+                moves[i] = ply;
+            }
+            side = (side == 'B') ? 'W' : 'B';
+        }
+        keys[plyCount] = board.getHash(side);
+        if (!board.isGameOver()) {
+            return false;
+        }
+
+        int blackResult = Integer.compare(board.getScore('B'), board.getScore('W'));
+        for (int i = 0; i <= plyCount; i++) {
+            Pending pending = batch.computeIfAbsent(keys[i], key -> new Pending());
+            pending.addResult(i % 2 == 0 ? blackResult : -blackResult);
+            if (i < plyCount && moves[i] != NO_MOVE) {
+                pending.addMove(moves[i], keys[i + 1]);
+            }
+        }
+        if (batch.size() >= BATCH_POSITIONS) {
+            flushBatch();
+        }
+        return true;
+    }
+
+    /**
+     * Merge the batch into the database: add the totals already stored, choose the best moves,
+     * then append an entry per position and point the index to it.
+     */
+    private void flushBatch() throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<Long, Pending> position : batch.entrySet()) {
+            long offset = find(position.getKey());
+            if (offset >= 0) {
+                readEntry(offset);
+                Pending pending = position.getValue();
+                pending.visits += entry.getInt(8);
+                pending.wins += entry.getInt(12);
+                pending.draws += entry.getInt(16);
+                pending.losses += entry.getInt(20);
+                if (entry.getInt(24) != NO_MOVE) {
+                    pending.addMove(entry.getInt(24), entry.getLong(32));
+                }
+            }
+        }
+        // The results of a move are those of the position it leads to, for the opponent
+        for (Pending pending : batch.values()) {
+            double bestScore = -1;
+            for (int m = 0; m < pending.moveCount; m++) {
+                Pending child = batch.get(pending.children[m]);
+                Stats stats = child != null ? child.toStats() : lookup(pending.children[m]);
+                if (stats == null) {
+                    continue;
+                }
+                // Smoothed, so that a single won game does not beat a move won nine times out of ten
+                double score = (stats.losses() + stats.draws() / 2.0 + 1) / (stats.visits() + 2);
+                if (score > bestScore) {
+                    bestScore = score;
+                    pending.bestMove = pending.moves[m];
+                    pending.bestChild = pending.children[m];
+                }
+            }
+        }
+        for (Map.Entry<Long, Pending> position : batch.entrySet()) {
+            Pending pending = position.getValue();
+            if (appendBuffer.remaining() < ENTRY_LENGTH) {
+                writeAppendBuffer();
+            }
+            appendBuffer.putLong(position.getKey())
+                    .putInt(pending.visits)
+                    .putInt(pending.wins)
+                    .putInt(pending.draws)
+                    .putInt(pending.losses)
+                    .putInt(pending.bestMove)
+                    .putInt(0)
+                    .putLong(pending.bestChild);
+            put(position.getKey(), logLength);
+            logLength += ENTRY_LENGTH;
+        }
+        writeAppendBuffer();
+        batch.clear();
+    }
+
+    private void writeAppendBuffer() throws IOException {
+        appendBuffer.flip();
+        while (appendBuffer.hasRemaining()) {
+            appended += log.write(appendBuffer, appended);
+        }
+        appendBuffer.clear();
+    }
+
+    private void readEntry(long offset) throws IOException {
+        entry.clear();
+        while (entry.hasRemaining()) {
+            if (log.read(entry, offset + entry.position()) < 0) {
+                throw new IOException("Truncated position log at offset " + offset);
+            }
+        }
+    }
+
+    // ============= Index =============
+
+    /**
+     * Map the index file, if it exists and covers the whole log.
+     *
+     * @return true if the index can be used
+     */
+    private boolean openIndex() throws IOException {
+        if (!Files.exists(indexPath) || Files.size(indexPath) < HEADER_LENGTH) {
+            return false;
+        }
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+        long indexCapacity = index.getLong(8);
+        // The file may be longer than the table, if it held a larger one before a rebuild
+        boolean valid = index.getInt(0) == INDEX_MAGIC && index.getInt(4) == INDEX_VERSION
+                && Long.bitCount(indexCapacity) == 1 && indexCapacity <= MAX_CAPACITY
+                && indexChannel.size() >= HEADER_LENGTH + indexCapacity * SLOT_LENGTH
+                && index.getLong(24) == logLength;
+        if (!valid) {
+            // The file stays open and mapped, and the rebuilt table overwrites it
+            logger.warning("The position index does not match the log; rebuilding it.");
+            return false;
+        }
+        capacity = (int) indexCapacity;
+        count = index.getLong(16);
+        return true;
+    }
+
+    /**
+     * Create the index again from the log, the last entry of each position winning.
+     */
+    private void rebuildIndex() throws IOException {
+        long entries = logLength / ENTRY_LENGTH;
+        int initialCapacity = INITIAL_CAPACITY;
+        while (initialCapacity < MAX_CAPACITY && entries > initialCapacity / 2) {
+            initialCapacity *= 2;
+        }
+        resetIndex(initialCapacity);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(ENTRY_LENGTH * 8192);
+        for (long offset = 0; offset < logLength; ) {
+            buffer.clear();
+            while (buffer.hasRemaining() && offset + buffer.position() < logLength) {
+                log.read(buffer, offset + buffer.position());
+            }
+            buffer.flip();
+            while (buffer.remaining() >= ENTRY_LENGTH) {
+                put(buffer.getLong(buffer.position()), offset);
+                buffer.position(buffer.position() + ENTRY_LENGTH);
+                offset += ENTRY_LENGTH;
+            }
+        }
+        commit();
+        if (count > 0) {
+            logger.info("Position index rebuilt: " + count + " positions.");
+        }
+    }
+
+    /**
+     * Map an empty table of the given capacity at the start of the index file, growing the file if it is too short.
+     * The previous mapping, if any, is left to the garbage collector: there is no way to release it sooner.
+     *
+     * @param newCapacity the number of slots of the table
+     */
+    private void resetIndex(int newCapacity) throws IOException {
+        if (indexChannel == null) {
+            indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        }
+        int length = HEADER_LENGTH + newCapacity * SLOT_LENGTH;
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        for (int at = HEADER_LENGTH; at < length; at += 8) {
+            index.putLong(at, 0);
+        }
+        index.putInt(0, INDEX_MAGIC);
+        index.putInt(4, INDEX_VERSION);
+        index.putLong(8, newCapacity);
+        index.putLong(16, 0);
+        index.putLong(24, -1);
+        capacity = newCapacity;
+        count = 0;
+    }
+
+    /**
+     * Find the entry of a position.
+     *
+     * @param key the key of the position
+     * @return the offset of its latest entry in the log, or -1 if the position is not in the database
+     */
+    private long find(long key) {
+        int mask = capacity - 1;
+        for (int slot = (int) (key ^ (key >>> 32)) & mask; ; slot = (slot + 1) & mask) {
+            int at = HEADER_LENGTH + slot * SLOT_LENGTH;
+            long offset = index.getLong(at + 8);
+            if (offset == 0) {
+                return -1;
+            }
+            if (index.getLong(at) == key) {
+                return offset - 1;
+            }
+        }
+    }
+
+    /**
+     * Point the index entry of a position to an entry of the log, doubling the table when it is 3/4 full.
+     * A slot holds the key and the offset plus one, 0 standing for an empty slot.
+     *
+     * @param key    the key of the position
+     * @param offset the offset of its entry in the log
+     */
+    private void put(long key, long offset) throws IOException {
+        if (count >= capacity / 4 * 3) {
+            grow();
+        }
+        int mask = capacity - 1;
+        for (int slot = (int) (key ^ (key >>> 32)) & mask; ; slot = (slot + 1) & mask) {
+            int at = HEADER_LENGTH + slot * SLOT_LENGTH;
+            long stored = index.getLong(at + 8);
+            if (stored == 0 || index.getLong(at) == key) {
+                if (stored == 0) {
+                    count++;
+                }
+                index.putLong(at, key);
+                index.putLong(at + 8, offset + 1);
+                return;
+            }
+        }
+    }
+
+    private void grow() throws IOException {
+        if (capacity == MAX_CAPACITY) {
+            throw new IOException("The position database is full (" + count + " positions)");
+        }
+        // The slots are copied aside to a plain file, then the table is doubled in place and filled again from the copy
+        int length = capacity * SLOT_LENGTH;
+        Path copy = indexPath.resolveSibling(INDEX_FILE + ".tmp");
+        try (FileChannel slots = FileChannel.open(copy, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DELETE_ON_CLOSE)) {
+            ByteBuffer old = index.duplicate().position(HEADER_LENGTH).limit(HEADER_LENGTH + length);
+            while (old.hasRemaining()) {
+                slots.write(old);
+            }
+            resetIndex(capacity * 2);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(SLOT_LENGTH * 8192);
+            for (long position = 0; position < length; ) {
+                buffer.clear();
+                while (buffer.hasRemaining() && position + buffer.position() < length) {
+                    slots.read(buffer, position + buffer.position());
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    long offset = buffer.getLong(buffer.position() + 8);
+                    if (offset != 0) {
+                        put(buffer.getLong(buffer.position()), offset - 1);
+                    }
+                    buffer.position(buffer.position() + SLOT_LENGTH);
+                    position += SLOT_LENGTH;
+                }
+            }
+        }
+    }
+
+    // Mark the index as not covering the log until the next commit, in case the process dies on the way
+    private void markIngesting() {
+        index.putLong(24, -1);
+        index.force();
+    }
+
+    // Write the log, then mark the index as covering it
+    private void commit() throws IOException {
+        log.force(false);
+        index.putLong(16, count);
+        index.putLong(24, logLength);
+        index.force();
+    }
+
+    /**
+     * The results of a position gathered from the games of a batch, then merged with the stored ones.
+     */
+    private static final class Pending {
+        int visits;
+        int wins;
+        int draws;
+        int losses;
+        int bestMove = NO_MOVE;
+        long bestChild;
+        int[] moves = new int[2];
+        long[] children = new long[2];
+        int moveCount;
+
+        void addResult(int result) {
+            visits++;
+            if (result > 0) {
+                wins++;
+            } else if (result == 0) {
+                draws++;
+            } else {
+                losses++;
+            }
+        }
+
+        void addMove(int square, long child) {
+            for (int m = 0; m < moveCount; m++) {
+                if (moves[m] == square) {
+                    return;
+                }
+            }
+            if (moveCount == moves.length) {
+                moves = Arrays.copyOf(moves, moveCount * 2);
+                children = Arrays.copyOf(children, moveCount * 2);
+            }
+            moves[moveCount] = square;
+            children[moveCount] = child;
+            moveCount++;
+        }
+
+        Stats toStats() {
+            return new Stats(visits, wins, draws, losses, bestMove);
+        }
+    }
+
+    // ============= Command line =============
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !(args[0].equals("ingest") || args[0].equals("lookup"))) {
+            System.out.println("Usage: PositionDatabase ingest <directory> games.orec...");
+            System.out.println("       PositionDatabase lookup <directory> [transcript]");
+            return;
+        }
+        try (PositionDatabase database = open(Path.of(args[1]))) {
+            if (args[0].equals("ingest")) {
+                long begin = System.nanoTime();
+                long games = 0;
+                for (int i = 2; i < args.length; i++) {
+                    try (GameRecordReader reader = new GameRecordReader(Path.of(args[i]))) {
+                        games += database.ingest(reader);
+                    }
+                }
+                System.out.printf("%d games added in %.1f s; %d positions in the database%n",
+                        games, (System.nanoTime() - begin) / 1e9, database.size());
+                return;
+            }
+
+            Board board = new Board();
+            char side = 'B';
+            for (Move ply : GameTranscript.parse(args.length > 2 ? args[2] : "")) {
+                if (!ply.isPass()) {
+                    board.makeMove(side, ply);
+                }
+                side = (side == 'B') ? 'W' : 'B';
+            }
+            Stats stats = database.lookup(board, side);
+            if (stats == null) {
+                System.out.println("No game went through this position.");
+                return;
+            }
+            System.out.printf("%s to move: %s%n", side == 'B' ? "Black" : "White", describe(stats));
+            List<Move> legalMoves = board.getAllLegalMoves(side);
+            for (Move move : legalMoves) {
+                board.makeMove(side, move);
+                Stats child = database.lookup(board, side == 'B' ? 'W' : 'B');
+                board.unmakeMove();
+                if (child != null) {
+                    Stats forMover = new Stats(child.visits(), child.losses(), child.draws(), child.wins(), NO_MOVE);
+                    boolean best = move.getRow() * Board.DEFAULT_SIZE + move.getCol() == stats.bestMove();
+                    System.out.printf("  %s%s %s%n", GameTranscript.toNotation(move), best ? "*" : " ", describe(forMover));
+                }
+            }
+        }
+    }
+
+    private static String describe(Stats stats) {
+        return String.format("%d games, %d wins, %d draws, %d losses (%.1f%%)", stats.visits(), stats.wins(),
+                stats.draws(), stats.losses(), 100 * stats.score());
+    }
+}
@@ -0,0 +1,140 @@
+package ca.othello.othello_v3;
+
+import javafx.application.Application;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A launch of the game that plays itself, to train the class-data sharing archive of the application
+ * image (see the appcds profile of the build) and to time launches ({@link LaunchBenchmark}):
+ * <pre>
+ * java -m ca.othello.othello_v3/ca.othello.othello_v3.ScriptedLaunch [--headless]
+ * </pre>
+ * The game starts as usual; once its window is shown, the AI plays a move, a game between AIs is
+ * watched in spectator mode at full speed, the record of the game is saved and read back, and the game quits.
+ * Each step prints a "launch: &lt;name&gt;=&lt;milliseconds&gt;" line as soon as it is done, with the time since the
+ * start of the process given by the operating system (to the second on some systems).
+ * Without a display, or with --headless, the same script runs without the window.
+ * <p>
+ * The script runs in a temporary home directory, so it neither reads nor changes the player's files in ~/.othello.
+ */
+public final class ScriptedLaunch {
+
+    /** Printed before every timing. */
+    static final String PREFIX = "launch: ";
+    static final String MAIN = "main-ms";
+    static final String FIRST_FRAME = "first-frame-ms";
+    static final String FIRST_AI_MOVE = "first-ai-move-ms";
+    static final String FINISHED = "finished-ms";
+
+    private static final int MATCH_DEPTH = 3;
+
+    private static volatile boolean active;
+
+    private ScriptedLaunch() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path home = Files.createTempDirectory("othello-launch");
+        System.setProperty("user.home", home.toString());
+        active = true;
+        report(MAIN);
+        try {
+            boolean headless = List.of(args).contains("--headless");
+            if (!headless) {
+                try {
+                    Application.launch(OthelloJavaFx.class);
+                    return;
+                } catch (RuntimeException e) {
+                    System.err.println("The window cannot be shown (" + e.getMessage() + "), running without it.");
+                }
+            }
+            playFirstAIMove();
+            SpectatorFeed feed = new SpectatorFeed();
+            HeadlessMatch match = new HeadlessMatch(feed, MATCH_DEPTH, MATCH_DEPTH);
+            match.run();
+            while (feed.poll() != null) {
+                // The window would show them
+            }
+            finish(match.getRecord());
+        } finally {
+            try (Stream<Path> files = Files.walk(home)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Check whether the game was launched by this script, and must play it.
+     *
+     * @return true within a scripted launch
+     */
+    static boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Get the depth of the AIs of the scripted match.
+     *
+     * @return the search depth of both sides
+     */
+    static int getMatchDepth() {
+        return MATCH_DEPTH;
+    }
+
+    /**
+     * Print a time measured from the start of the process.
+     *
+     * @param name the name of the timing
+     */
+    static void report(String name) {
+        long millis = ProcessHandle.current().info().startInstant()
+                .map(start -> Duration.between(start, Instant.now()).toMillis())
+                .orElse(-1L);
+        System.out.println(PREFIX + name + "=" + millis);
+    }
+
+    /**
+     * Let the hard AI choose the first move of a game, outside the opening book, and print when it is chosen.
+     */
+    static void playFirstAIMove() {
+        // As the game does when the AI's turn comes
+        EngineWarmup.cancel();
+        StrengthProfile hard = StrengthProfile.load().get("hard");
+        IntelligentAI ai = hard != null ? hard.createAI('B') : new IntelligentAI('B', 5);
+        ai.setOpeningBook(null);
+        ai.setPositionCache(PositionCache.getShared());
+        ai.getBestMove(new Board());
+        report(FIRST_AI_MOVE);
+    }
+
+    /**
+     * Save the record of the scripted game and read it back, as the game does on quitting and resuming,
+     * then print the end of the script.
+     *
+     * @param record the record of the scripted game, or null if the match was not played
+     * @throws IOException if the record cannot be written or read
+     */
+    static void finish(GameRecord record) throws IOException {
+        if (record != null) {
+            Path file = Path.of(System.getProperty("user.home"), "launch.orec");
+            try (GameRecordWriter writer = new GameRecordWriter(file)) {
+                writer.write(record);
+            }
+            try (GameRecordReader reader = new GameRecordReader(file)) {
+                while (reader.next()) {
+                    reader.getPlyCount();
+                }
+            }
+            GameTranscript.toTranscript(record.getMoves());
+        }
+        report(FINISHED);
+    }
+}
@@ -0,0 +1,109 @@
+package ca.othello.othello_v3;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plays games of an AI level against itself and appends their records to a file, as training data
+ * for {@link WeightTuner}:
+ * <pre>
+ * java ca.othello.othello_v3.SelfPlay games.orec [games=1000] [profile=easy] [threads=cores] [seed=1]
+ * </pre>
+ * The first plies of each game are random and the AIs add at least {@link #MIN_NOISE} to their scores,
+ * so the games differ.
+ *
+ * @see StrengthProfile
+ */
+public class SelfPlay {
+
+    private static final int RANDOM_OPENING_PLIES = 6;
+    private static final int MIN_NOISE = 2;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path path = Path.of(args[0]);
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        String name = args.length > 2 ? args[2] : "easy";
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+        StrengthProfile profile = StrengthProfile.load().get(name);
+        if (profile == null) {
+            throw new IllegalArgumentException("Unknown strength profile: " + name);
+        }
+        Logger.getLogger("").setLevel(Level.WARNING);
+
+        AtomicInteger next = new AtomicInteger();
+        long begin = System.nanoTime();
+        try (GameRecordWriter writer = new GameRecordWriter(path)) {
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                SplittableRandom random = new SplittableRandom(seed + t);
+                workers[t] = new Thread(() -> {
+                    for (int game = next.getAndIncrement(); game < games; game = next.getAndIncrement()) {
+                        GameRecord record = play(profile, random);
+                        synchronized (writer) {
+                            try {
+                                writer.write(record);
+                            } catch (IOException e) {
+                                throw new IllegalStateException("Could not write the game: " + e.getMessage(), e);
+                            }
+                        }
+                        if ((game + 1) % Math.max(1, games / 10) == 0) {
+                            System.out.printf("%d games%n", game + 1);
+                        }
+                    }
+                }, "self-play-" + t);
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.printf("%d games of %s written to %s in %.1f s%n", games, profile.label(), path, seconds);
+    }
+
+    /**
+     * Play one game of the profile against itself.
+     *
+     * @param profile the AI level of both sides
+     * @param random  the source of the random opening
+     * @return the record of the game, with its result
+     */
+    private static GameRecord play(StrengthProfile profile, SplittableRandom random) {
+        IntelligentAI black = profile.createAI('B');
+        IntelligentAI white = profile.createAI('W');
+        black.setNoise(Math.max(MIN_NOISE, profile.noise()));
+        white.setNoise(Math.max(MIN_NOISE, profile.noise()));
+        GameRecord record = new GameRecord(profile.label(), profile.label());
+        int depth = Math.min(255, profile.depth());
+        record.setEngine('B', GameRecord.ENGINE_MINIMAX, depth);
+        record.setEngine('W', GameRecord.ENGINE_MINIMAX, depth);
+
+        Board board = new Board();
+        char side = 'B';
+        int ply = 0;
+        while (!board.isGameOver()) {
+            Move move = new Move(-1, -1);
+            if (board.hasLegalMove(side)) {
+                if (ply < RANDOM_OPENING_PLIES) {
+                    List<Move> legalMoves = board.getAllLegalMoves(side);
+                    move = legalMoves.get(random.nextInt(legalMoves.size()));
+                } else {
+                    int[] best = (side == 'B' ? black : white).getBestMove(board);
+                    move = new Move(best[0], best[1]);
+                }
+                board.makeMove(side, move);
+            }
+            record.addPly(move);
+            side = (side == 'B') ? 'W' : 'B';
+            ply++;
+        }
+        record.setResult(board);
+        return record;
+    }
+}
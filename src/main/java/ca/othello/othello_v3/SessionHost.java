@@ -0,0 +1,165 @@
+package ca.othello.othello_v3;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Hosts many concurrent {@link GameSession}s in one JVM.
+ * AI searches are CPU-bound and run on the bounded set of platform threads of an {@link AIMoveBatcher},
+ * so they never oversubscribe the cores. Requests that block (waiting on players, see {@link SessionLoadTest})
+ * can be run by {@link #handle(Runnable)} on virtual threads, which cost a few hundred bytes while parked;
+ * {@link OthelloServer} does not need them, as it handles every request on its selector thread and only
+ * waits for searches through the futures of {@link #requestAIMove(GameSession, long)}.
+ */
+public class SessionHost implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(SessionHost.class.getName());
+
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final ExecutorService requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AIMoveBatcher batcher;
+
+    // Extra time a search result may take beyond its budget before the request counts as late
+    private static final long DEADLINE_SLACK_MS = 1000;
+    private static final int TABLE_BITS = 20;
+
+    /**
+     * Constructor for a host with one search thread per core.
+     */
+    public SessionHost() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for a host.
+     *
+     * @param searchThreads the number of platform threads running AI searches
+     */
+    public SessionHost(int searchThreads) {
+        this.batcher = new AIMoveBatcher(searchThreads, TABLE_BITS);
+    }
+
+    /**
+     * Open a new session.
+     *
+     * @param blackName the name of the black player
+     * @param whiteName the name of the white player
+     * @return the new session
+     */
+    public GameSession open(String blackName, String whiteName) {
+        long id = nextId.getAndIncrement();
+        GameSession session = new GameSession(id, new Player(blackName, 'B'), new Player(whiteName, 'W'));
+        sessions.put(id, session);
+        return session;
+    }
+
+    /**
+     * Get an open session.
+     *
+     * @param id the identifier of the session
+     * @return the session, or null if there is none with this identifier
+     */
+    public GameSession get(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Close a session.
+     *
+     * @param id the identifier of the session
+     */
+    public void close(long id) {
+        sessions.remove(id);
+    }
+
+    /**
+     * Get the number of open sessions.
+     *
+     * @return the number of sessions
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Run a request on its own virtual thread.
+     *
+     * @param request the request to run
+     * @return a future completed when the request is done
+     */
+    public CompletableFuture<Void> handle(Runnable request) {
+        return CompletableFuture.runAsync(request, requestExecutor);
+    }
+
+    /**
+     * Search the best move of the side to move of a session, due one second after its budget.
+     *
+     * @param session  the session
+     * @param budgetMs the time budget of the search, in milliseconds
+     * @return a future completed with the move, (-1, -1) for a pass, or null if the game is over
+     * @see #requestAIMove(GameSession, long, long)
+     */
+    public CompletableFuture<Move> requestAIMove(GameSession session, long budgetMs) {
+        return requestAIMove(session, budgetMs, System.nanoTime() + (budgetMs + DEADLINE_SLACK_MS) * 1_000_000L);
+    }
+
+    /**
+     * Search the best move of the side to move of a session, through the batcher shared by all sessions.
+     *
+     * @param session  the session
+     * @param budgetMs the time budget of the search, in milliseconds
+     * @param deadline the time the move is needed by, as a {@link System#nanoTime()} value
+     * @return a future completed with the move, (-1, -1) for a pass, or null if the game is over
+     * @see GameSession#requestAIMove(AIMoveBatcher, long, long)
+     */
+    public CompletableFuture<Move> requestAIMove(GameSession session, long budgetMs, long deadline) {
+        return session.requestAIMove(batcher, budgetMs, deadline);
+    }
+
+    /**
+     * Get the statistics of the AI move requests.
+     *
+     * @return the statistics of the batcher
+     */
+    public AIMoveBatcher.Stats getAIStats() {
+        return batcher.getStats();
+    }
+
+    /**
+     * Close the sessions that have been idle for longer than the given time.
+     *
+     * @param idleMs the maximum idle time, in milliseconds
+     * @return the number of sessions closed
+     */
+    public int evictIdle(long idleMs) {
+        long limit = System.currentTimeMillis() - idleMs;
+        int evicted = 0;
+        for (Iterator<GameSession> it = sessions.values().iterator(); it.hasNext(); ) {
+            if (it.next().getLastActive() < limit) {
+                it.remove();
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            logger.info("Evicted " + evicted + " idle sessions.");
+        }
+        return evicted;
+    }
+
+    /**
+     * Stop the executors; open sessions are dropped.
+     */
+    @Override
+    public void close() {
+        requestExecutor.shutdownNow();
+        batcher.close();
+        sessions.clear();
+    }
+}
@@ -0,0 +1,97 @@
+package ca.othello.othello_v3;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Load test of {@link SessionHost}: many concurrent sessions, each driven by its own virtual thread.
+ * Players think for a random time between moves (the idle part of a session), and a share of the
+ * sessions play against the AI through the bounded search pool (the active part).
+ * Reports the heap used per open session, the duration, the throughput and the latency of the AI requests.
+ * <pre>
+ * java ca.othello.othello_v3.SessionLoadTest [sessions=10000] [aiSessionPercent=5] [aiBudgetMs=2] [maxThinkMs=20]
+ * </pre>
+ */
+public class SessionLoadTest {
+
+    public static void main(String[] args) {
+        int sessionCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int aiPercent = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long aiBudgetMs = args.length > 2 ? Long.parseLong(args[2]) : 2;
+        int maxThinkMs = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        Logger.getLogger("").setLevel(Level.WARNING);
+
+        try (SessionHost host = new SessionHost()) {
+            long heapBefore = usedHeap();
+            List<GameSession> sessions = new ArrayList<>(sessionCount);
+            for (int i = 0; i < sessionCount; i++) {
+                sessions.add(host.open("Player " + i, i % 100 < aiPercent ? "Computer" : "Opponent " + i));
+            }
+            long heapPerSession = (usedHeap() - heapBefore) / sessionCount;
+
+            AtomicLong plies = new AtomicLong();
+            AtomicLong aiMoves = new AtomicLong();
+            long start = System.nanoTime();
+            List<CompletableFuture<Void>> games = new ArrayList<>(sessionCount);
+            for (GameSession session : sessions) {
+                boolean againstAI = session.getWhite().getName().equals("Computer");
+                games.add(host.handle(() -> playGame(host, session, againstAI, aiBudgetMs, maxThinkMs, plies, aiMoves)));
+            }
+            CompletableFuture.allOf(games.toArray(new CompletableFuture<?>[0])).join();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("Sessions:          %d (%d%% against the AI)%n", sessionCount, aiPercent);
+            System.out.printf("Heap per session:  ~%d bytes%n", heapPerSession);
+            System.out.printf("Duration:          %.2f s%n", seconds);
+            System.out.printf("Plies:             %d (%.0f per second)%n", plies.get(), plies.get() / seconds);
+            System.out.printf("AI moves:          %d (%.0f per second)%n", aiMoves.get(), aiMoves.get() / seconds);
+            System.out.printf("AI requests:       %s%n", host.getAIStats());
+            System.out.printf("Position cache:    %s%n", PositionCache.getShared());
+            System.out.print(Metrics.toText());
+        }
+    }
+
+    /**
+     * Play one session to the end: random moves after a think time, or AI moves for the white side.
+     */
+    private static void playGame(SessionHost host, GameSession session, boolean againstAI, long aiBudgetMs,
+                                 int maxThinkMs, AtomicLong plies, AtomicLong aiMoves) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (!session.isGameOver()) {
+            Move move;
+            if (againstAI && session.getTurn() == 'W') {
+                move = host.requestAIMove(session, aiBudgetMs).join();
+                aiMoves.incrementAndGet();
+            } else {
+                sleep(random.nextInt(maxThinkMs + 1));
+                List<Move> legalMoves = session.getLegalMoves();
+                move = legalMoves.isEmpty() ? new Move(-1, -1) : legalMoves.get(random.nextInt(legalMoves.size()));
+            }
+            if (move == null || !session.play(move)) {
+                throw new IllegalStateException("Session " + session.getId() + " rejected its own move.");
+            }
+            plies.incrementAndGet();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,84 @@
+package ca.othello.othello_v3;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A stream of plies (moves and passes) to be shown in spectator mode.
+ * Producers (a recorded game or a running headless match) publish plies from any thread,
+ * and the JavaFX thread polls them at its own pace.
+ * Passes are published as {@code new Move(-1, -1)}.
+ *
+ * @see HeadlessMatch
+ * @see Move#isPass()
+ */
+public class SpectatorFeed {
+
+    private final ConcurrentLinkedQueue<Move> plies = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger backlog = new AtomicInteger();
+    private volatile boolean finished;
+
+    /**
+     * Create a feed that replays an already known sequence of plies.
+     *
+     * @param plies the plies of the game, in order
+     * @return a finished feed containing all the plies
+     */
+    public static SpectatorFeed replay(List<Move> plies) {
+        SpectatorFeed feed = new SpectatorFeed();
+        for (Move ply : plies) {
+            feed.publish(ply);
+        }
+        feed.finish();
+        return feed;
+    }
+
+    /**
+     * Append a ply to the feed.
+     *
+     * @param ply the move played, or (-1, -1) for a pass
+     */
+    public void publish(Move ply) {
+        plies.add(ply);
+        backlog.incrementAndGet();
+    }
+
+    /**
+     * Mark the feed as complete, no more plies will be published.
+     */
+    public void finish() {
+        this.finished = true;
+    }
+
+    /**
+     * Take the next ply from the feed.
+     *
+     * @return the next ply, or null if none is available yet
+     */
+    public Move poll() {
+        Move ply = plies.poll();
+        if (ply != null) {
+            backlog.decrementAndGet();
+        }
+        return ply;
+    }
+
+    /**
+     * Get the number of plies published but not yet polled.
+     *
+     * @return the number of pending plies
+     */
+    public int getBacklog() {
+        return backlog.get();
+    }
+
+    /**
+     * Check whether the feed is finished and every ply has been polled.
+     *
+     * @return true if nothing more will come out of the feed, false otherwise
+     */
+    public boolean isDrained() {
+        return finished && plies.isEmpty();
+    }
+}
@@ -0,0 +1,187 @@
+package ca.othello.othello_v3;
+
+/**
+ * Stable discs on 8x8 bit boards (bit row * 8 + col for square (row, col)): the discs of a player that
+ * no sequence of moves can flip, so they are still the player's at the end of the game.
+ * <p>
+ * The result is a safe subset of the stable discs, cheap enough to compute at most nodes of a search:
+ * <ul>
+ *     <li>a disc on an edge can only be flipped along the edge, so its stability is read from a table of all
+ *     the edge patterns, computed once by playing every possible sequence of moves along the edge;</li>
+ *     <li>an inner disc is stable if, in each of the four directions, its line has no empty square or
+ *     it touches a stable disc of the same player, which shields it along that line.
+ *     The second rule grows the stable discs from those already found, so it is repeated until they stop growing.</li>
+ * </ul>
+ *
+ * @see Evaluator#STABILITY
+ * @see BitBoard
+ */
+public final class Stability {
+
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long FILE_H = 0x8080808080808080L;
+    private static final long INNER = 0x007E7E7E7E7E7E00L;
+    // Gathers the squares of the first file into the top byte
+    private static final long FILE_TO_BYTE = 0x0102040810204080L;
+
+    // Stable discs of the player along an edge, by the player's and the opponent's discs of the edge (own << 8 | opp)
+    private static final byte[] EDGE_STABLE = new byte[1 << 16];
+    // The squares of the first file, by the byte the file gathers into
+    private static final long[] BYTE_TO_FILE = new long[256];
+    // The diagonals of each direction, as square masks
+    private static final long[] DIAGONALS_9 = new long[15];
+    private static final long[] DIAGONALS_7 = new long[15];
+
+    static {
+        boolean[] known = new boolean[EDGE_STABLE.length];
+        for (int own = 0; own < 256; own++) {
+            for (int opp = 0; opp < 256; opp++) {
+                if ((own & opp) == 0) {
+                    edgeStable(own, opp, known);
+                }
+            }
+        }
+        for (int row = 0; row < 8; row++) {
+            long square = 1L << (row * 8);
+            BYTE_TO_FILE[gatherFile(square)] = square;
+        }
+        for (int b = 1; b < 256; b++) {
+            BYTE_TO_FILE[b] = BYTE_TO_FILE[b & -b] | BYTE_TO_FILE[b & (b - 1)];
+        }
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                DIAGONALS_9[row - col + 7] |= 1L << (row * 8 + col);
+                DIAGONALS_7[row + col] |= 1L << (row * 8 + col);
+            }
+        }
+    }
+
+    private Stability() {
+    }
+
+    /**
+     * Get the stable discs of a player.
+     *
+     * @param own the discs of the player
+     * @param opp the discs of the opponent
+     * @return the discs of the player that can never be flipped (a subset of them, see above)
+     */
+    public static long stableDiscs(long own, long opp) {
+        long stable = edgeStableDiscs(own, opp);
+        long inner = own & INNER;
+        if (inner == 0) {
+            return stable;
+        }
+
+        long filled = own | opp;
+        long fullRows = fullRows(filled);
+        long fullFiles = fullFiles(filled);
+        long fullDiagonals9 = fullLines(filled, DIAGONALS_9);
+        long fullDiagonals7 = fullLines(filled, DIAGONALS_7);
+        long candidates = inner & fullRows & fullFiles & fullDiagonals9 & fullDiagonals7;
+        stable |= candidates;
+        candidates = inner & ~candidates;
+
+        long grown;
+        do {
+            long row = fullRows | ((stable << 1) & ~FILE_A) | ((stable >>> 1) & ~FILE_H);
+            long file = fullFiles | (stable << 8) | (stable >>> 8);
+            long diagonal9 = fullDiagonals9 | ((stable << 9) & ~FILE_A) | ((stable >>> 9) & ~FILE_H);
+            long diagonal7 = fullDiagonals7 | ((stable << 7) & ~FILE_H) | ((stable >>> 7) & ~FILE_A);
+            grown = candidates & row & file & diagonal9 & diagonal7;
+            stable |= grown;
+            candidates &= ~grown;
+        } while (grown != 0);
+        return stable;
+    }
+
+    // The stable discs of the four edges, the corners being on two of them
+    private static long edgeStableDiscs(long own, long opp) {
+        long stable = EDGE_STABLE[(int) (own & 0xFF) << 8 | (int) (opp & 0xFF)] & 0xFFL;
+        stable |= (EDGE_STABLE[(int) (own >>> 56) << 8 | (int) (opp >>> 56)] & 0xFFL) << 56;
+        stable |= BYTE_TO_FILE[EDGE_STABLE[gatherFile(own) << 8 | gatherFile(opp)] & 0xFF];
+        stable |= BYTE_TO_FILE[EDGE_STABLE[gatherFile(own >>> 7) << 8 | gatherFile(opp >>> 7)] & 0xFF] << 7;
+        return stable;
+    }
+
+    // The squares of the first file as a byte
+    private static int gatherFile(long bits) {
+        return (int) (((bits & FILE_A) * FILE_TO_BYTE) >>> 56);
+    }
+
+    // Squares whose row is full: each row is ANDed into its first square, then spread back over the row
+    private static long fullRows(long filled) {
+        long full = filled & (filled >>> 1);
+        full &= full >>> 2;
+        full &= full >>> 4;
+        return (full & FILE_A) * 0xFF;
+    }
+
+    // Squares whose file is full, the same way with the files ANDed into the first row
+    private static long fullFiles(long filled) {
+        long full = filled & (filled >>> 8);
+        full &= full >>> 16;
+        full &= full >>> 32;
+        return (full & 0xFF) * FILE_A;
+    }
+
+    private static long fullLines(long filled, long[] lines) {
+        long full = 0L;
+        for (long line : lines) {
+            if ((filled & line) == line) {
+                full |= line;
+            }
+        }
+        return full;
+    }
+
+    /**
+     * Compute the stable discs of the player along an edge, and those of the positions it can lead to.
+     * A disc is stable if it is still the player's after any move of either player on any empty square of the edge:
+     * a move made legal by a disc off the edge flips nothing along it, so every placement is allowed.
+     *
+     * @param own   the player's discs of the edge, bit i for square i
+     * @param opp   the opponent's discs of the edge
+     * @param known the patterns already computed
+     * @return the stable discs of the player
+     */
+    private static int edgeStable(int own, int opp, boolean[] known) {
+        int index = own << 8 | opp;
+        if (known[index]) {
+            return EDGE_STABLE[index] & 0xFF;
+        }
+        int stable = own;
+        for (int empty = ~(own | opp) & 0xFF; empty != 0 && stable != 0; empty &= empty - 1) {
+            int placed = empty & -empty;
+            int flips = edgeFlips(placed, own, opp);
+            stable &= edgeStable(own | placed | flips, opp & ~flips, known);
+            flips = edgeFlips(placed, opp, own);
+            stable &= edgeStable(own & ~flips, opp | placed | flips, known);
+        }
+        EDGE_STABLE[index] = (byte) stable;
+        known[index] = true;
+        return stable;
+    }
+
+    // The discs flipped along the edge by the mover placing a disc, in both directions
+    private static int edgeFlips(int placed, int mover, int other) {
+        int flips = 0;
+        int run = 0;
+        int square = placed << 1;
+        for (; (square & other) != 0; square <<= 1) {
+            run |= square;
+        }
+        if ((square & mover) != 0) {
+            flips |= run;
+        }
+        run = 0;
+        square = placed >>> 1;
+        for (; (square & other) != 0; square >>>= 1) {
+            run |= square;
+        }
+        if ((square & mover) != 0) {
+            flips |= run;
+        }
+        return flips;
+    }
+}
@@ -0,0 +1,128 @@
+package ca.othello.othello_v3;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * The settings of one AI level: how deep and how long it searches, how it scores positions,
+ * how much it randomises its choice and whether it plays from the opening book.
+ * Profiles are read from strength-profiles.properties, bundled with the game, then from
+ * ~/.othello/strength-profiles.properties if it exists, whose entries override the bundled ones.
+ * <p>
+ * A node limit is a hard bound on the work of a move, so the CPU cost of each level is predictable.
+ *
+ * @param name          the name of the profile in the configuration
+ * @param label         the name shown to players
+ * @param depth         the maximum search depth, 0 for no limit
+ * @param nodeLimit     the maximum number of positions searched per move, 0 for no limit
+ * @param timeLimitMs   the time budget per move in milliseconds, 0 for no limit
+ * @param evaluator     the evaluation function
+ * @param noise         the largest random amount added to the score of a move, 0 for none
+ * @param choices       the number of best moves the AI chooses from, 1 to always play the best one
+ * @param book          whether the opening book is used
+ * @param deterministic whether the moves depend only on the position, see {@link IntelligentAI#setDeterministic(boolean)}
+ */
+public record StrengthProfile(String name, String label, int depth, long nodeLimit, long timeLimitMs,
+                              Evaluator evaluator, int noise, int choices, boolean book, boolean deterministic) {
+
+    private static final Logger logger = Logger.getLogger(StrengthProfile.class.getName());
+
+    private static final String RESOURCE = "strength-profiles.properties";
+    private static final Path OVERRIDE_FILE = Path.of(System.getProperty("user.home"), ".othello", RESOURCE);
+
+    /**
+     * Create an AI playing with this profile.
+     *
+     * @param color the player (character) the AI plays as
+     * @return the AI
+     */
+    public IntelligentAI createAI(char color) {
+        // Without a depth limit, search deep enough to reach the end of the game
+        IntelligentAI ai = new IntelligentAI(color, depth > 0 ? depth : 64);
+        ai.setNodeLimit(nodeLimit);
+        ai.setTimeLimit(timeLimitMs);
+        ai.setEvaluator(evaluator);
+        ai.setNoise(noise);
+        ai.setChoices(choices);
+        ai.setOpeningBook(book ? OpeningBook.getDefault() : null);
+        ai.setDeterministic(deterministic);
+        return ai;
+    }
+
+    /**
+     * Load the profiles from the bundled configuration and the user's override file.
+     *
+     * @return the profiles by name, in the order of the "profiles" entry
+     * @throws IllegalArgumentException if a profile is incomplete or invalid
+     */
+    public static Map<String, StrengthProfile> load() {
+        Properties properties = new Properties();
+        try (InputStream in = StrengthProfile.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            logger.warning("Could not read the bundled strength profiles: " + e.getMessage());
+        }
+        if (Files.exists(OVERRIDE_FILE)) {
+            try (InputStream in = Files.newInputStream(OVERRIDE_FILE)) {
+                properties.load(in);
+                logger.info("Strength profiles overridden by " + OVERRIDE_FILE + ".");
+            } catch (IOException e) {
+                logger.warning("Could not read " + OVERRIDE_FILE + ": " + e.getMessage());
+            }
+        }
+        return parse(properties);
+    }
+
+    /**
+     * Read the profiles of a configuration.
+     *
+     * @param properties the configuration
+     * @return the profiles by name, in the order of the "profiles" entry
+     * @throws IllegalArgumentException if a profile is incomplete or invalid
+     */
+    public static Map<String, StrengthProfile> parse(Properties properties) {
+        Map<String, StrengthProfile> profiles = new LinkedHashMap<>();
+        for (String name : properties.getProperty("profiles", "").split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            StrengthProfile profile = new StrengthProfile(name,
+                    properties.getProperty(name + ".label", name),
+                    (int) number(properties, name, "depth"),
+                    number(properties, name, "nodes"),
+                    number(properties, name, "timeMs"),
+                    Evaluator.forName(properties.getProperty(name + ".evaluator", "positional")),
+                    (int) number(properties, name, "noise"),
+                    Math.max(1, (int) number(properties, name, "choices")),
+                    Boolean.parseBoolean(properties.getProperty(name + ".book", "false").trim()),
+                    Boolean.parseBoolean(properties.getProperty(name + ".deterministic", "false").trim()));
+            if (profile.depth() == 0 && profile.nodeLimit() == 0 && profile.timeLimitMs() == 0) {
+                throw new IllegalArgumentException("Profile " + name + " has no depth, node or time limit");
+            }
+            profiles.put(name, profile);
+        }
+        return profiles;
+    }
+
+    private static long number(Properties properties, String name, String setting) {
+        String value = properties.getProperty(name + "." + setting, "0").trim();
+        try {
+            long number = Long.parseLong(value);
+            if (number < 0) {
+                throw new IllegalArgumentException("Negative " + name + "." + setting + ": " + value);
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + "." + setting + ": " + value);
+        }
+    }
+}
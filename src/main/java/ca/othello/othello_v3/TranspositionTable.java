@@ -0,0 +1,142 @@
+package ca.othello.othello_v3;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size table of search results indexed by position hash, shared by any number of searching threads.
+ * Each entry is two longs: the data (score, depth, bound and best move) and the key XOR-ed with the data.
+ * The table takes no lock; an entry torn by two threads writing at once fails the key check on probe
+ * and reads as a miss, so a thread never uses the data of another position.
+ *
+ * @see IntelligentAI#setTranspositionTable(TranspositionTable)
+ */
+public class TranspositionTable {
+
+    /**
+     * The score is the exact value of the position.
+     */
+    public static final int EXACT = 1;
+    /**
+     * The score is a lower bound: the search failed high.
+     */
+    public static final int LOWER = 2;
+    /**
+     * The score is an upper bound: the search failed low.
+     */
+    public static final int UPPER = 3;
+    /**
+     * The best move of an entry that has none (a pass or a leaf).
+     */
+    public static final int NO_MOVE = 0x1FF;
+
+    // Data layout: score in bits 0-31, depth in bits 32-39, bound in bits 40-41, move in bits 42-50 (up to 16x16 boards), bit 63 always set
+    private static final long VALID = 1L << 63;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+
+    /**
+     * Constructor for a table of 2^bits entries, 16 bytes each.
+     *
+     * @param bits the base 2 logarithm of the number of entries
+     */
+    public TranspositionTable(int bits) {
+        if (bits < 1 || bits > 28) {
+            throw new IllegalArgumentException("Table size out of range: 2^" + bits);
+        }
+        this.keys = new long[1 << bits];
+        this.data = new long[1 << bits];
+        this.mask = (1 << bits) - 1;
+    }
+
+    /**
+     * Look up a position.
+     *
+     * @param key the hash of the position
+     * @return the entry of the position, or 0 if it is not in the table
+     */
+    public long probe(long key) {
+        int index = (int) key & mask;
+        long entry = data[index];
+        return (keys[index] ^ entry) == key ? entry : 0L;
+    }
+
+    /**
+     * Store the result of a search, replacing the entry in the slot unless it holds a deeper search of the same position.
+     *
+     * @param key   the hash of the position
+     * @param score the score of the position
+     * @param depth the depth the position was searched to
+     * @param bound EXACT, LOWER or UPPER
+     * @param move  the best move as row * size + col, or NO_MOVE
+     */
+    public void store(long key, int score, int depth, int bound, int move) {
+        int index = (int) key & mask;
+        long old = data[index];
+        if ((keys[index] ^ old) == key && depth(old) > depth) {
+            return;
+        }
+        long entry = VALID | ((long) (move & NO_MOVE) << 42) | ((long) bound << 40) | ((long) (depth & 0xFF) << 32)
+                | (score & 0xFFFFFFFFL);
+        data[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    /**
+     * Remove every entry.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(data, 0L);
+    }
+
+    /**
+     * Get the number of entries of the table.
+     *
+     * @return the capacity of the table
+     */
+    public int capacity() {
+        return data.length;
+    }
+
+    /**
+     * Get the score of an entry.
+     *
+     * @param entry an entry returned by {@link #probe(long)}
+     * @return the score
+     */
+    public static int score(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Get the depth of an entry.
+     *
+     * @param entry an entry returned by {@link #probe(long)}
+     * @return the depth the position was searched to
+     */
+    public static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    /**
+     * Get the bound of an entry.
+     *
+     * @param entry an entry returned by {@link #probe(long)}
+     * @return EXACT, LOWER or UPPER
+     */
+    public static int bound(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    /**
+     * Get the best move of an entry.
+     *
+     * @param entry an entry returned by {@link #probe(long)}
+     * @return the move as row * size + col, or NO_MOVE
+     */
+    public static int move(long entry) {
+        return (int) (entry >>> 42) & NO_MOVE;
+    }
+}
@@ -0,0 +1,263 @@
+package ca.othello.othello_v3;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fits the weights of {@link Evaluator#TUNED} to the results of recorded games. Every position of the
+ * games is scored with the weights from the side to move, the score is turned into an expected result
+ * by a logistic curve, and the weights are adjusted by gradient descent to minimise the mean squared
+ * error between the expected and the actual results (1 for a win, 0.5 for a draw, 0 for a loss):
+ * <pre>
+ * java ca.othello.othello_v3.WeightTuner [-o weights.properties] [-e epochs=300] [-r rate=0.1] [-t threads=cores] games.orec...
+ * </pre>
+ * The tuning runs in two passes, so the memory it uses does not depend on the number of positions:
+ * <ol>
+ *     <li>The records are streamed with {@link GameRecordReader} and replayed, and the features of each
+ *     position ({@link EvaluationWeights#FEATURES}) are appended to a temporary file with its result,
+ *     7 bytes per position.</li>
+ *     <li>Each epoch, the positions are split in one range per thread; each thread reads its range
+ *     through memory-mapped windows and sums the gradient, and the sums make one step of Adam.</li>
+ * </ol>
+ * Only finished 8x8 games are used, and the first plies of each game are skipped, as they come from
+ * the opening book or random openings more than from the players. The descent starts from the current
+ * weights, and the fitted ones are written to ~/.othello/evaluation-weights.properties unless another
+ * file is given.
+ *
+ * @see SelfPlay
+ */
+public class WeightTuner {
+
+    /** The score whose expected result is 1 / (1 + e^-1), about 0.73. */
+    static final double SCALE = 16;
+
+    private static final int SKIPPED_PLIES = 4;
+    private static final int FEATURE_COUNT = EvaluationWeights.FEATURE_COUNT;
+    private static final int ENTRY_LENGTH = FEATURE_COUNT + 1;
+    private static final long WINDOW_POSITIONS = (64L << 20) / ENTRY_LENGTH;
+
+    private static final double BETA1 = 0.9;
+    private static final double BETA2 = 0.999;
+    private static final double EPSILON = 1e-8;
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        Path output = EvaluationWeights.OVERRIDE_FILE;
+        int epochs = 300;
+        double rate = 0.1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-o" -> output = Path.of(args[++i]);
+                case "-e" -> epochs = Integer.parseInt(args[++i]);
+                case "-r" -> rate = Double.parseDouble(args[++i]);
+                case "-t" -> threads = Integer.parseInt(args[++i]);
+                default -> files.add(Path.of(args[i]));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: WeightTuner [-o weights.properties] [-e epochs] [-r rate] [-t threads] games.orec...");
+            System.exit(1);
+        }
+        Logger.getLogger("").setLevel(Level.WARNING);
+
+        Path positions = Files.createTempFile("othello-positions", ".bin");
+        try {
+            long begin = System.nanoTime();
+            long[] counts = extract(files, positions);
+            long count = counts[1];
+            System.out.printf("Extracted %d positions of %d games in %.1f s (%d records skipped)%n",
+                    count, counts[0], (System.nanoTime() - begin) / 1e9, counts[2]);
+            if (count == 0) {
+                System.out.println("No position to tune on.");
+                return;
+            }
+
+            double[] weights = EvaluationWeights.getDefault().toArray();
+            double initialError;
+            double error;
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try (FileChannel channel = FileChannel.open(positions, StandardOpenOption.READ)) {
+                double[] m = new double[FEATURE_COUNT];
+                double[] v = new double[FEATURE_COUNT];
+                begin = System.nanoTime();
+                initialError = Double.NaN;
+                error = Double.NaN;
+                for (int epoch = 0; epoch <= epochs; epoch++) {
+                    double[] sums = sumGradient(pool, channel, count, threads, weights);
+                    error = sums[FEATURE_COUNT] / count;
+                    if (epoch == 0) {
+                        initialError = error;
+                    }
+                    if (epoch % Math.max(1, epochs / 10) == 0 || epoch == epochs) {
+                        System.out.printf("Epoch %4d: error %.6f, %s%n", epoch, error, format(weights));
+                    }
+                    if (epoch == epochs) {
+                        break;
+                    }
+                    // Adam: steps of about the rate per weight, whatever the scale of its feature
+                    for (int f = 0; f < FEATURE_COUNT; f++) {
+                        double gradient = 2 * sums[f] / (SCALE * count);
+                        m[f] = BETA1 * m[f] + (1 - BETA1) * gradient;
+                        v[f] = BETA2 * v[f] + (1 - BETA2) * gradient * gradient;
+                        double mHat = m[f] / (1 - Math.pow(BETA1, epoch + 1));
+                        double vHat = v[f] / (1 - Math.pow(BETA2, epoch + 1));
+                        weights[f] -= rate * mHat / (Math.sqrt(vHat) + EPSILON);
+                    }
+                }
+                double seconds = (System.nanoTime() - begin) / 1e9;
+                System.out.printf("%d epochs in %.1f s (%.0f positions per second)%n",
+                        epochs, seconds, (double) count * (epochs + 1) / seconds);
+            } finally {
+                pool.shutdown();
+            }
+
+            new EvaluationWeights(weights).save(output, String.format(Locale.ROOT,
+                    "Fitted by WeightTuner on %d positions of %d games: error %.6f, %.6f with the previous weights.",
+                    count, counts[0], error, initialError));
+            System.out.println("Weights written to " + output + ".");
+        } finally {
+            Files.deleteIfExists(positions);
+        }
+    }
+
+    /**
+     * Replay the games of the record files and write the features and result of their positions.
+     *
+     * @param files     the record files
+     * @param positions the file receiving the positions
+     * @return the number of games used, of positions written and of records skipped
+     * @throws IOException if a file cannot be read or written
+     */
+    private static long[] extract(List<Path> files, Path positions) throws IOException {
+        long games = 0;
+        long count = 0;
+        long skipped = 0;
+        int[] features = new int[FEATURE_COUNT];
+        byte[] game = new byte[GameRecord.MAX_PLIES * ENTRY_LENGTH];
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(positions), 1 << 16)) {
+            for (Path file : files) {
+                try (GameRecordReader reader = new GameRecordReader(file)) {
+                    while (reader.next()) {
+                        if (reader.getBoardSize() != Board.DEFAULT_SIZE) {
+                            skipped++;
+                            continue;
+                        }
+                        // The positions of a game are kept until the game is known to be legal and finished
+                        Board board = new Board();
+                        char side = 'B';
+                        int length = 0;
+                        boolean legal = true;
+                        for (int i = 0; i < reader.getPlyCount() && legal; i++) {
+                            int ply = reader.getPly(i);
+                            if (ply != GameRecord.PASS) {
+                                legal = board.isLegalMove(GameRecord.decode(ply), side);
+                                if (legal && i >= SKIPPED_PLIES) {
+                                    EvaluationWeights.extract(board, side, features);
+                                    for (int f = 0; f < FEATURE_COUNT; f++) {
+                                        game[length + f] = (byte) Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, features[f]));
+                                    }
+                                    // The side to move for now, replaced by its result once the game is over
+                                    game[length + FEATURE_COUNT] = (byte) side;
+                                    length += ENTRY_LENGTH;
+                                }
+                                if (legal) {
+                                    board.makeMove(side, ply);
+                                }
+                            }
+                            side = (side == 'B') ? 'W' : 'B';
+                        }
+                        if (!legal || !board.isGameOver()) {
+                            skipped++;
+                            continue;
+                        }
+                        int blackResult = Integer.compare(board.getScore('B'), board.getScore('W')) + 1;
+                        for (int entry = FEATURE_COUNT; entry < length; entry += ENTRY_LENGTH) {
+                            game[entry] = (byte) (game[entry] == 'B' ? blackResult : 2 - blackResult);
+                        }
+                        out.write(game, 0, length);
+                        count += length / ENTRY_LENGTH;
+                        games++;
+                    }
+                }
+            }
+        }
+        return new long[]{games, count, skipped};
+    }
+
+    /**
+     * Sum the gradient of the squared errors over every position, one range of positions per thread.
+     *
+     * @param pool     the threads
+     * @param channel  the file of positions
+     * @param count    the number of positions
+     * @param threads  the number of threads
+     * @param weights  the current weights
+     * @return the sum of error * p * (1 - p) * feature for each feature, then the sum of the squared errors
+     */
+    private static double[] sumGradient(ExecutorService pool, FileChannel channel, long count, int threads,
+                                        double[] weights) throws InterruptedException, ExecutionException {
+        List<Callable<double[]>> ranges = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            long first = count * t / threads;
+            long end = count * (t + 1) / threads;
+            ranges.add(() -> sumRange(channel, first, end, weights));
+        }
+        double[] sums = new double[FEATURE_COUNT + 1];
+        for (Future<double[]> range : pool.invokeAll(ranges)) {
+            double[] partial = range.get();
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += partial[i];
+            }
+        }
+        return sums;
+    }
+
+    private static double[] sumRange(FileChannel channel, long first, long end, double[] weights) throws IOException {
+        double[] sums = new double[FEATURE_COUNT + 1];
+        for (long start = first; start < end; start += WINDOW_POSITIONS) {
+            int positions = (int) Math.min(WINDOW_POSITIONS, end - start);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                    start * ENTRY_LENGTH, (long) positions * ENTRY_LENGTH);
+            for (int base = 0; base < positions * ENTRY_LENGTH; base += ENTRY_LENGTH) {
+                double score = 0;
+                for (int f = 0; f < FEATURE_COUNT; f++) {
+                    score += weights[f] * window.get(base + f);
+                }
+                double expected = 1 / (1 + Math.exp(-score / SCALE));
+                double error = expected - window.get(base + FEATURE_COUNT) / 2.0;
+                double slope = error * expected * (1 - expected);
+                for (int f = 0; f < FEATURE_COUNT; f++) {
+                    sums[f] += slope * window.get(base + f);
+                }
+                sums[FEATURE_COUNT] += error * error;
+            }
+        }
+        return sums;
+    }
+
+    private static String format(double[] weights) {
+        StringBuilder text = new StringBuilder();
+        for (int f = 0; f < FEATURE_COUNT; f++) {
+            text.append(f == 0 ? "" : ", ").append(EvaluationWeights.FEATURES[f])
+                    .append(String.format(Locale.ROOT, " %.3f", weights[f]));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,200 @@
+package ca.othello.othello_v3;
+
+/**
+ * Move generation and flipping on bit boards of any size up to 16x16: the pieces of each
+ * player as an array of longs, bit row * size + col of the array standing for square (row, col).
+ * This is the generic counterpart of {@link BitBoard}, which handles 8x8 boards in a single long.
+ * <p>
+ * The legal moves are generated like in {@link BitBoard}, by shifting whole boards in the eight
+ * directions, with the shifts carried from one long to the next. An instance holds the masks of
+ * its board size and scratch arrays, so generating moves allocates nothing; it is therefore not
+ * thread safe, each {@link Board} has its own.
+ *
+ * @see Board#fillLegalMoves(char, long[])
+ */
+public final class WideBitBoard {
+
+    /** The largest supported board size. */
+    public static final int MAX_SIZE = 16;
+
+    private static final int[] ROW_STEPS = {-1, 1, 0, 0, -1, -1, 1, 1};
+    private static final int[] COL_STEPS = {0, 0, -1, 1, -1, 1, -1, 1};
+
+    private final int size;
+    private final int words;
+    private final long[] valid;
+    private final long[] innerFiles;
+    private final long[] inner;
+    private final long[] run;
+    private final long[] shifted;
+
+    /**
+     * Constructor for the boards of one size.
+     *
+     * @param size the number of rows and columns, 3 to {@link #MAX_SIZE}
+     */
+    public WideBitBoard(int size) {
+        if (size < 3 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Unsupported board size: " + size);
+        }
+        this.size = size;
+        this.words = words(size);
+        this.valid = new long[words];
+        this.innerFiles = new long[words];
+        for (int square = 0; square < size * size; square++) {
+            valid[square >>> 6] |= 1L << square;
+            int col = square % size;
+            if (col > 0 && col < size - 1) {
+                innerFiles[square >>> 6] |= 1L << square;
+            }
+        }
+        this.inner = new long[words];
+        this.run = new long[words];
+        this.shifted = new long[words];
+    }
+
+    /**
+     * Get the number of longs of the bit boards of a size.
+     *
+     * @param size the number of rows and columns
+     * @return the number of longs holding size * size bits
+     */
+    public static int words(int size) {
+        return (size * size + 63) >>> 6;
+    }
+
+    /**
+     * Get the legal moves of a player.
+     *
+     * @param own   the pieces of the player to move
+     * @param opp   the pieces of the opponent
+     * @param moves receives the squares where the player can move
+     * @return the number of legal moves
+     */
+    public int legalMoves(long[] own, long[] opp, long[] moves) {
+        // Runs of opponent pieces that cross files must not touch the edge files, or they would wrap
+        for (int i = 0; i < words; i++) {
+            inner[i] = opp[i] & innerFiles[i];
+            moves[i] = 0L;
+        }
+        addMoves(own, inner, 1, moves);
+        addMoves(own, inner, -1, moves);
+        addMoves(own, opp, size, moves);
+        addMoves(own, opp, -size, moves);
+        addMoves(own, inner, size - 1, moves);
+        addMoves(own, inner, 1 - size, moves);
+        addMoves(own, inner, size + 1, moves);
+        addMoves(own, inner, -size - 1, moves);
+        int count = 0;
+        for (int i = 0; i < words; i++) {
+            moves[i] &= valid[i] & ~(own[i] | opp[i]);
+            count += Long.bitCount(moves[i]);
+        }
+        return count;
+    }
+
+    // Runs of opponent pieces next to the player's pieces, at most size - 2 long, and the square after them
+    private void addMoves(long[] own, long[] opp, int shift, long[] moves) {
+        shift(own, shift, run);
+        for (int i = 0; i < words; i++) {
+            run[i] &= opp[i];
+        }
+        for (int step = 3; step < size; step++) {
+            shift(run, shift, shifted);
+            for (int i = 0; i < words; i++) {
+                run[i] |= shifted[i] & opp[i];
+            }
+        }
+        shift(run, shift, shifted);
+        for (int i = 0; i < words; i++) {
+            moves[i] |= shifted[i];
+        }
+    }
+
+    // Move every bit by shift places, towards the higher squares if positive
+    private void shift(long[] bits, int shift, long[] into) {
+        if (shift > 0) {
+            for (int i = words - 1; i > 0; i--) {
+                into[i] = (bits[i] << shift) | (bits[i - 1] >>> (64 - shift));
+            }
+            into[0] = bits[0] << shift;
+        } else {
+            shift = -shift;
+            for (int i = 0; i < words - 1; i++) {
+                into[i] = (bits[i] >>> shift) | (bits[i + 1] << (64 - shift));
+            }
+            into[words - 1] = bits[words - 1] >>> shift;
+        }
+    }
+
+    /**
+     * Get the pieces flipped by a move, walking the eight lines from the square.
+     *
+     * @param own     the pieces of the player to move
+     * @param opp     the pieces of the opponent
+     * @param square  the square of the move, row * size + col
+     * @param flipped receives the opponent pieces flipped, empty if the move is illegal
+     * @return the number of pieces flipped
+     */
+    public int flips(long[] own, long[] opp, int square, long[] flipped) {
+        for (int i = 0; i < words; i++) {
+            flipped[i] = 0L;
+        }
+        int row = square / size;
+        int col = square % size;
+        int count = 0;
+        for (int direction = 0; direction < 8; direction++) {
+            int dr = ROW_STEPS[direction];
+            int dc = COL_STEPS[direction];
+            int r = row + dr;
+            int c = col + dc;
+            int length = 0;
+            while (r >= 0 && r < size && c >= 0 && c < size && isSet(opp, r * size + c)) {
+                length++;
+                r += dr;
+                c += dc;
+            }
+            if (length > 0 && r >= 0 && r < size && c >= 0 && c < size && isSet(own, r * size + c)) {
+                for (int k = 1; k <= length; k++) {
+                    int s = (row + k * dr) * size + col + k * dc;
+                    flipped[s >>> 6] |= 1L << s;
+                }
+                count += length;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Check whether a move flips at least one piece, without computing the flips.
+     *
+     * @param own    the pieces of the player to move
+     * @param opp    the pieces of the opponent
+     * @param square the square of the move, row * size + col
+     * @return true if the move flips a piece
+     */
+    public boolean flipsAny(long[] own, long[] opp, int square) {
+        int row = square / size;
+        int col = square % size;
+        for (int direction = 0; direction < 8; direction++) {
+            int dr = ROW_STEPS[direction];
+            int dc = COL_STEPS[direction];
+            int r = row + dr;
+            int c = col + dc;
+            boolean seenOpponent = false;
+            while (r >= 0 && r < size && c >= 0 && c < size && isSet(opp, r * size + c)) {
+                seenOpponent = true;
+                r += dr;
+                c += dc;
+            }
+            if (seenOpponent && r >= 0 && r < size && c >= 0 && c < size && isSet(own, r * size + c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSet(long[] bits, int square) {
+        return (bits[square >>> 6] & (1L << square)) != 0;
+    }
+}